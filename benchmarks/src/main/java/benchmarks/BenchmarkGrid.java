@@ -0,0 +1,61 @@
+package benchmarks;
+
+import algorithm.KakuroLoader;
+import algorithm.cells.Cell;
+
+import java.io.File;
+
+/**
+ * Grid used by the benchmarks, either one of the bundled grids or a generated one
+ * Bundled grids are named after their path relative to the grids folder (e.g. 3x3/grid1_3x3.kakuro), which is
+ * assets/grids unless the kakuro.grids system property says otherwise
+ * Generated grids are named generated-size (e.g. generated-10 for a 10x10 grid)
+ */
+final class BenchmarkGrid {
+    static final String generatedPrefix = "generated-";
+    //same seed on every run so that the results of two versions can be compared
+    private static final long seed = 2024;
+
+    private final Cell[][] cells;
+    private final int rows, columns;
+
+    private BenchmarkGrid(Cell[][] cells, int rows, int columns) {
+        this.cells = cells;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @param name name of the grid
+     * @return the grid, loaded or generated
+     * @throws Exception if the grid file can't be loaded
+     */
+    static BenchmarkGrid load(String name) throws Exception {
+        if (name.startsWith(generatedPrefix)) {
+            int size = Integer.parseInt(name.substring(generatedPrefix.length()));
+            return new BenchmarkGrid(new GridGenerator(seed).generate(size), size, size);
+        }
+        Cell[][] cells = KakuroLoader.openLoader().loadGrid(path(name));
+        return new BenchmarkGrid(cells, cells.length, cells[0].length);
+    }
+
+    /**
+     * @param name name of a bundled grid
+     * @return path of its file
+     */
+    static String path(String name) {
+        return new File(System.getProperty("kakuro.grids", "assets/grids"), name).getPath();
+    }
+
+    Cell[][] getCells() {
+        return cells;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+}
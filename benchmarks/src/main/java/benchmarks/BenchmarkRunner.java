@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar, accepts the usual JMH command line options
+ * unless told otherwise, the allocation rate is measured by the GC profiler and the results are written as JSON into
+ * jmh-result.json so that two versions can be compared
+ */
+public class BenchmarkRunner {
+    private static final String defaultResultFile = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListProfilers()
+                || options.shouldListResultFormats() || options.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (options.getProfilers().isEmpty())
+            builder.addProfiler(GCProfiler.class);
+        if (!options.getResultFormat().hasValue())
+            builder.resultFormat(ResultFormatType.JSON);
+        if (!options.getResult().hasValue())
+            builder.result(defaultResultFile);
+        new Runner(builder.build()).run();
+    }
+}
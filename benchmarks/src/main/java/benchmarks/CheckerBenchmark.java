@@ -0,0 +1,94 @@
+package benchmarks;
+
+import algorithm.CompactGrid;
+import algorithm.ConstraintsChecker;
+import algorithm.KakuroSolver;
+import algorithm.cells.Cell;
+import algorithm.cells.InputCell;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the checks made while playing, on a solved grid
+ * one operation checks every input cell of the grid once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckerBenchmark {
+    @Param({"3x3/grid1_3x3.kakuro", "3x3/grid2_3x3.kakuro", "3x3/grid3_3x3.kakuro",
+            "3x3/grid4_3x3.kakuro", "3x3/grid5_3x3.kakuro", "3x3/grid6_3x3.kakuro",
+            "4x4/grid1_4x4.kakuro", "4x4/grid2_4x4.kakuro", "4x4/grid3_4x4.kakuro",
+            "4x4/grid4_4x4.kakuro", "4x4/grid5_4x4.kakuro", "4x4/grid6_4x4.kakuro",
+            "5x5/grid1_5x5.kakuro", "5x5/grid2_5x5.kakuro", "5x5/grid3_5x5.kakuro",
+            "5x5/grid4_5x5.kakuro", "5x5/grid5_5x5.kakuro", "5x5/grid6_5x5.kakuro",
+            "generated-8", "generated-10", "generated-12"})
+    private String grid;
+
+    private KakuroSolver solver;
+    private CompactGrid solution;
+    private ConstraintsChecker constraints;
+    //input cells of the grid, their coordinates and their value in the solution
+    private int[] positions, rows, columns, values;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkGrid loaded = BenchmarkGrid.load(grid);
+        solver = new KakuroSolver();
+        solver.updateGrid(loaded.getCells(), loaded.getRows(), loaded.getColumns());
+        Cell[][] cells = solver.getSolution();
+        solution = new CompactGrid(cells, loaded.getRows(), loaded.getColumns());
+        constraints = new ConstraintsChecker(solution);
+
+        List<int[]> inputs = new ArrayList<>();
+        for (int i = 0; i < loaded.getRows(); i++) {
+            for (int j = 0; j < loaded.getColumns(); j++) {
+                if (solution.getKind(solution.position(i, j)) == CompactGrid.input)
+                    inputs.add(new int[]{i, j, ((InputCell)cells[i][j]).getValue()});
+            }
+        }
+        positions = new int[inputs.size()];
+        rows = new int[inputs.size()];
+        columns = new int[inputs.size()];
+        values = new int[inputs.size()];
+        for (int n = 0; n < inputs.size(); n++) {
+            rows[n] = inputs.get(n)[0];
+            columns[n] = inputs.get(n)[1];
+            values[n] = inputs.get(n)[2];
+            positions[n] = solution.position(rows[n], columns[n]);
+            //the live grid of the solver is filled the way a player would
+            solver.setValue(rows[n], columns[n], values[n]);
+        }
+    }
+
+    @Benchmark
+    public void isValid(Blackhole blackhole) {
+        for (int position : positions)
+            blackhole.consume(constraints.isValid(solution, position));
+    }
+
+    @Benchmark
+    public void checkMisplacement(Blackhole blackhole) {
+        for (int n = 0; n < positions.length; n++)
+            blackhole.consume(solver.checkMisplacement(rows[n], columns[n]));
+    }
+
+    /**
+     * Empties every cell and fills it back, checking the move each time, as the game does after a move
+     */
+    @Benchmark
+    public void move(Blackhole blackhole) {
+        for (int n = 0; n < positions.length; n++) {
+            solver.setValue(rows[n], columns[n], 0);
+            solver.setValue(rows[n], columns[n], values[n]);
+            blackhole.consume(solver.checkMisplacement(rows[n], columns[n]));
+        }
+    }
+}
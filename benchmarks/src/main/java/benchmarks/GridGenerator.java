@@ -0,0 +1,150 @@
+package benchmarks;
+
+import algorithm.cells.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of large grids for the benchmarks
+ * White cells are drawn at random (the first row and column stay black), cells belonging to a run shorter than 2 or
+ * longer than 9 are removed, then the white cells are filled with distinct digits per run and the clues are computed
+ * from that filling. The grids always have a solution but it isn't necessarily unique
+ */
+final class GridGenerator {
+    //probability of a cell being white before the runs are fixed
+    private static final double density = 0.72;
+
+    private final Random random;
+    private boolean[][] white;
+    private int[][] values;
+    private int size;
+
+    GridGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @param size number of rows and columns
+     * @return a new grid with empty input cells
+     */
+    Cell[][] generate(int size) {
+        this.size = size;
+        while (true) {
+            drawCells();
+            List<int[]> cells = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (white[i][j])
+                        cells.add(new int[]{i, j});
+                }
+            }
+            values = new int[size][size];
+            //nearly empty grids aren't worth measuring
+            if (cells.size() >= size && fill(cells, 0))
+                return toCells();
+        }
+    }
+
+    private void drawCells() {
+        white = new boolean[size][size];
+        for (int i = 1; i < size; i++) {
+            for (int j = 1; j < size; j++)
+                white[i][j] = random.nextDouble() < density;
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < size; i++) {
+                for (int j = 1; j < size; j++) {
+                    if (!white[i][j])
+                        continue;
+                    int horizontal = runLength(i, j, 0, 1), vertical = runLength(i, j, 1, 0);
+                    if (horizontal < 2 || vertical < 2 || horizontal > 9 || vertical > 9) {
+                        white[i][j] = false;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return length of the run going through (i, j) in the direction (di, dj)
+     */
+    private int runLength(int i, int j, int di, int dj) {
+        while (i - di >= 0 && j - dj >= 0 && white[i - di][j - dj]) {
+            i -= di;
+            j -= dj;
+        }
+        int length = 0;
+        for (; i < size && j < size && white[i][j]; i += di, j += dj)
+            length++;
+        return length;
+    }
+
+    /**
+     * Fills the white cells with digits that aren't repeated in their runs
+     * @param cells white cells in row-major order
+     * @param k index of the cell to fill
+     * @return true if the cells have been filled
+     */
+    private boolean fill(List<int[]> cells, int k) {
+        if (k == cells.size())
+            return true;
+        int i = cells.get(k)[0], j = cells.get(k)[1];
+        List<Integer> digits = new ArrayList<>();
+        for (int digit = 1; digit <= 9; digit++)
+            digits.add(digit);
+        Collections.shuffle(digits, random);
+        for (int digit : digits) {
+            if (isUsed(i, j, digit))
+                continue;
+            values[i][j] = digit;
+            if (fill(cells, k + 1))
+                return true;
+            values[i][j] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the digit is already used before (i, j) in one of its runs
+     */
+    private boolean isUsed(int i, int j, int digit) {
+        for (int x = j - 1; x >= 0 && white[i][x]; x--) {
+            if (values[i][x] == digit)
+                return true;
+        }
+        for (int x = i - 1; x >= 0 && white[x][j]; x--) {
+            if (values[x][j] == digit)
+                return true;
+        }
+        return false;
+    }
+
+    private Cell[][] toCells() {
+        Cell[][] grid = new Cell[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (white[i][j]) {
+                    grid[i][j] = new InputCell(i, j);
+                    continue;
+                }
+                int horizontal = 0, vertical = 0;
+                for (int x = j + 1; x < size && white[i][x]; x++)
+                    horizontal += values[i][x];
+                for (int x = i + 1; x < size && white[x][j]; x++)
+                    vertical += values[x][j];
+                if (horizontal == 0 && vertical == 0)
+                    grid[i][j] = new UnreachableCell(i, j);
+                else
+                    grid[i][j] = new ControlCell(i, j, vertical == 0 ? null : vertical,
+                            horizontal == 0 ? null : horizontal);
+            }
+        }
+        return grid;
+    }
+}
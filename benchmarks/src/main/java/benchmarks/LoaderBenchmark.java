@@ -0,0 +1,79 @@
+package benchmarks;
+
+import algorithm.GridCorpus;
+import algorithm.GridCorpusWriter;
+import algorithm.KakuroLoader;
+import algorithm.KakuroParser;
+import algorithm.cells.Cell;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the parsing of the bundled .kakuro files, from the file or already in memory (without building the
+ * Cell model), compared with the decoding of the same grid from a binary corpus
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+    @Param({"3x3/grid1_3x3.kakuro", "3x3/grid2_3x3.kakuro", "3x3/grid3_3x3.kakuro",
+            "3x3/grid4_3x3.kakuro", "3x3/grid5_3x3.kakuro", "3x3/grid6_3x3.kakuro",
+            "4x4/grid1_4x4.kakuro", "4x4/grid2_4x4.kakuro", "4x4/grid3_4x4.kakuro",
+            "4x4/grid4_4x4.kakuro", "4x4/grid5_4x4.kakuro", "4x4/grid6_4x4.kakuro",
+            "5x5/grid1_5x5.kakuro", "5x5/grid2_5x5.kakuro", "5x5/grid3_5x5.kakuro",
+            "5x5/grid4_5x5.kakuro", "5x5/grid5_5x5.kakuro", "5x5/grid6_5x5.kakuro"})
+    private String grid;
+
+    private KakuroLoader loader;
+    private String path;
+    private File corpusFile;
+    private GridCorpus corpus;
+    private ByteBuffer text;
+    private KakuroParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        loader = KakuroLoader.openLoader();
+        path = BenchmarkGrid.path(grid);
+        Cell[][] cells = loader.loadGrid(path);
+        corpusFile = File.createTempFile("loader", ".corpus");
+        try (GridCorpusWriter writer = new GridCorpusWriter(corpusFile)) {
+            writer.add(cells, cells.length, cells[0].length);
+        }
+        corpus = new GridCorpus(corpusFile);
+        text = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path)));
+        parser = new KakuroParser(text);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.close();
+        corpusFile.delete();
+    }
+
+    @Benchmark
+    public Cell[][] loadGrid() throws Exception {
+        return loader.loadGrid(path);
+    }
+
+    @Benchmark
+    public Cell[][] loadFromCorpus() throws Exception {
+        return corpus.getGrid(0);
+    }
+
+    @Benchmark
+    public KakuroParser parseFromMemory() throws Exception {
+        text.rewind();
+        parser.next();
+        return parser;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import algorithm.BranchingStrategy;
+import algorithm.KakuroSolver;
+import algorithm.SolverEngine;
+import algorithm.cells.Cell;
+import algorithm.exceptions.NoSolutionException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time needed by KakuroSolver to solve a grid from scratch, for every engine and branching strategy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({"3x3/grid1_3x3.kakuro", "3x3/grid2_3x3.kakuro", "3x3/grid3_3x3.kakuro",
+            "3x3/grid4_3x3.kakuro", "3x3/grid5_3x3.kakuro", "3x3/grid6_3x3.kakuro",
+            "4x4/grid1_4x4.kakuro", "4x4/grid2_4x4.kakuro", "4x4/grid3_4x4.kakuro",
+            "4x4/grid4_4x4.kakuro", "4x4/grid5_4x4.kakuro", "4x4/grid6_4x4.kakuro",
+            "5x5/grid1_5x5.kakuro", "5x5/grid2_5x5.kakuro", "5x5/grid3_5x5.kakuro",
+            "5x5/grid4_5x5.kakuro", "5x5/grid5_5x5.kakuro", "5x5/grid6_5x5.kakuro",
+            "generated-8", "generated-10", "generated-12"})
+    private String grid;
+
+    @Param({"backtracking", "propagation", "parallel"})
+    private SolverEngine engine;
+
+    @Param({"rowMajor", "mostConstrained"})
+    private BranchingStrategy branching;
+
+    private KakuroSolver solver;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkGrid loaded = BenchmarkGrid.load(grid);
+        solver = new KakuroSolver();
+        solver.updateGrid(loaded.getCells(), loaded.getRows(), loaded.getColumns());
+        solver.setBranching(branching);
+        //every invocation has to solve the grid again
+        solver.setSolutionCache(null);
+    }
+
+    @Benchmark
+    public Cell[][] solve() throws NoSolutionException {
+        //selecting the engine discards the solution computed by the previous invocation
+        solver.setEngine(engine);
+        return solver.getSolution();
+    }
+}
@@ -0,0 +1,11 @@
+package algorithm;
+
+/**
+ * Order in which the solvers pick the next cell to guess
+ * rowMajor : next empty cell going from left to right and up to down, digits in increasing order
+ * mostConstrained : cell with the fewest candidates (ties broken by the number of empty cells in its runs),
+ * digits ordered by the number of combinations of its runs they belong to
+ */
+public enum BranchingStrategy {
+    rowMajor,mostConstrained
+}
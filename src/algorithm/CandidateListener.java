@@ -0,0 +1,13 @@
+package algorithm;
+
+/**
+ * Notified by the CandidateStore when the candidates of a cell of the live grid change after a move
+ */
+public interface CandidateListener {
+    /**
+     * @param row vertical position of the cell
+     * @param column horizontal position of the cell
+     * @param candidates new mask of the digits the cell can hold (0 if it is filled)
+     */
+    void candidatesChanged(int row, int column, int candidates);
+}
@@ -0,0 +1,172 @@
+package algorithm;
+
+/**
+ * Reasoning techniques applied to the candidates of every position, shared by the difficulty rater and the hint engine
+ * Each call applies one technique to one run (or one trial to the whole grid) and removes the candidates it rules out
+ * Keeps its own scratch arrays : an instance is used by one thread at a time
+ */
+class CandidateNarrowing {
+    //techniques applied run by run, from the easiest to the hardest
+    static final Technique[] runTechniques = {Technique.uniqueCombination, Technique.intersection,
+            Technique.sumRemainder, Technique.hiddenSingle, Technique.subset};
+
+    private final ConstraintsChecker index;
+    private final int size;
+
+    //candidates of every position (a single bit once the value is known), shared with the owner of the instance
+    private final int[] domain;
+    private final int[] runCells = new int[CombinationTable.maxLength];
+    private final RunMatching matching;
+    //union and number of the combinations kept by the last call to narrow
+    private int allowed, kept;
+
+    //used to test digits
+    private final PropagationSolver solver;
+
+    /**
+     * @param index run index of the grids
+     * @param domain candidates of every position, narrowed in place
+     * @param solver solver on the same index, used by trial
+     */
+    CandidateNarrowing(ConstraintsChecker index, int[] domain, PropagationSolver solver) {
+        this.index = index;
+        this.domain = domain;
+        this.solver = solver;
+        size = index.getSize();
+        matching = new RunMatching(domain);
+    }
+
+    /**
+     * Applies a technique to a run
+     * @param run subsection to narrow
+     * @param technique technique to apply
+     * @return 1 if candidates were removed, 0 if nothing changed, -1 if the run can't be completed anymore
+     */
+    int narrow(int run, Technique technique) {
+        int length = index.getRunLength(run), sum = index.getRunSum(run);
+        //a clue without any cell after it doesn't constrain anything, a run longer than 9 cells can't be filled
+        if (length == 0)
+            return 0;
+        if (length > CombinationTable.maxLength)
+            return -1;
+        int known = 0, open = 0;
+        for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+            runCells[n] = i;
+            int d = domain[i];
+            if ((d & (d - 1)) != 0) {
+                open |= d;
+            } else {
+                //a value known twice in the same run
+                if ((known & d) != 0)
+                    return -1;
+                known |= d;
+            }
+        }
+
+        //combinations kept by the technique
+        int common = CombinationTable.fullMask;
+        allowed = 0;
+        kept = 0;
+        for (int combination : CombinationTable.getCombinations(sum, length)) {
+            if ((combination & known) != known)
+                continue;
+            if (technique != Technique.uniqueCombination && technique != Technique.intersection
+                    && (combination & ~(known | open)) != 0)
+                continue;
+            if (technique == Technique.subset && !matching.hasMatching(combination, runCells, length))
+                continue;
+            allowed |= combination;
+            common &= combination;
+            kept++;
+        }
+        if (kept == 0)
+            return -1;
+        if (open == 0 || (technique == Technique.uniqueCombination && kept > 1))
+            return 0;
+
+        if (technique == Technique.hiddenSingle)
+            return placeRequired(common & ~known, length);
+
+        boolean changed = false;
+        for (int n = 0; n < length; n++) {
+            int d = domain[runCells[n]];
+            if ((d & (d - 1)) == 0)
+                continue;
+            //known values can't be used by the other cells of the run
+            int narrowed = d & allowed & ~known;
+            if (narrowed == 0)
+                return -1;
+            if (narrowed != d) {
+                domain[runCells[n]] = narrowed;
+                changed = true;
+            }
+        }
+        //digits required once the subsets are removed may also have a single place left
+        if (technique == Technique.subset && !changed)
+            return placeRequired(common & ~known, length);
+        return changed ? 1 : 0;
+    }
+
+    /**
+     * @return digits of the combinations kept by the last call to narrow
+     */
+    int getAllowed() {
+        return allowed;
+    }
+
+    /**
+     * @return number of combinations kept by the last call to narrow
+     */
+    int getKept() {
+        return kept;
+    }
+
+    /**
+     * Places the digits present in every combination of a run that only one cell can still hold
+     * @param required digits missing from the run that every combination contains
+     * @param length number of cells of the run (stored in runCells)
+     * @return 1 if a digit was placed, 0 if nothing changed, -1 if a required digit can't be placed anywhere
+     */
+    private int placeRequired(int required, int length) {
+        boolean changed = false;
+        for (int digits = required; digits != 0; digits &= digits - 1) {
+            int digit = digits & -digits, cell = -1, count = 0;
+            for (int n = 0; n < length; n++) {
+                if ((domain[runCells[n]] & digit) != 0) {
+                    cell = runCells[n];
+                    count++;
+                }
+            }
+            if (count == 0)
+                return -1;
+            if (count == 1 && domain[cell] != digit) {
+                domain[cell] = digit;
+                changed = true;
+            }
+        }
+        return changed ? 1 : 0;
+    }
+
+    /**
+     * Looks for a digit leading to a contradiction once placed and propagated, starting with the cells having the
+     * fewest candidates, and removes it
+     * @return 1 if a digit was removed, 0 if none leads to a contradiction, -1 if a cell has no candidate left
+     */
+    int trial() {
+        for (int count = 2; count <= CombinationTable.maxLength; count++) {
+            for (int i = 0; i < size; i++) {
+                if (Integer.bitCount(domain[i]) != count)
+                    continue;
+                for (int digits = domain[i]; digits != 0; digits &= digits - 1) {
+                    int digit = digits & -digits;
+                    solver.restore(domain);
+                    if (solver.tryDigit(i, digit))
+                        continue;
+                    domain[i] &= ~digit;
+                    return domain[i] == 0 ? -1 : 1;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,123 @@
+package algorithm;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Candidates (pencil marks) of every empty input cell of the live grid, kept up to date move by move
+ * The digits allowed by every run are stored, so a move only recomputes its two runs and the cells they contain
+ * (at most 18 cells) instead of the whole grid. The candidates of a cell are the digits allowed by both of its runs :
+ * digits completing a combination with the values already placed in the run and not used by them
+ * Listeners are only told about the cells whose candidates actually changed
+ */
+public class CandidateStore implements MoveListener {
+    private ConstraintsChecker index;
+    private CompactGrid grid;
+
+    //digits allowed in the empty cells of every run (0 if a digit is repeated)
+    private int[] runCandidates;
+    //candidates of every position (0 for filled cells and for control and unreachable cells)
+    private int[] candidates;
+
+    private final List<CandidateListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Computes the candidates of every cell of a new grid, listeners aren't notified
+     * @param index run index of the grid
+     * @param grid live grid, its moves have to be reported to moveApplied afterwards
+     */
+    public void load(ConstraintsChecker index, CompactGrid grid) {
+        this.index = index;
+        this.grid = grid;
+        runCandidates = new int[index.getRunCount()];
+        candidates = new int[grid.getSize()];
+        for (int run = 0; run < runCandidates.length; run++)
+            runCandidates[run] = computeRun(run);
+        for (int i = 0; i < candidates.length; i++)
+            candidates[i] = computeCell(i);
+    }
+
+    /**
+     * Recomputes the two runs of the cell that changed and the cells they contain
+     * @param event move applied to the live grid
+     */
+    @Override
+    public void moveApplied(MoveEvent event) {
+        int position = grid.position(event.getRow(), event.getColumn());
+        int horizontal = index.getHorizontalRun(position), vertical = index.getVerticalRun(position);
+        if (horizontal != -1)
+            runCandidates[horizontal] = computeRun(horizontal);
+        if (vertical != -1)
+            runCandidates[vertical] = computeRun(vertical);
+        updateRun(horizontal);
+        updateRun(vertical);
+    }
+
+    /**
+     * Recomputes the candidates of the cells of a run and notifies the listeners of those that changed
+     * @param run run that changed (-1 if none)
+     */
+    private void updateRun(int run) {
+        if (run == -1)
+            return;
+        for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+            int updated = computeCell(i);
+            if (updated == candidates[i])
+                continue;
+            candidates[i] = updated;
+            for (CandidateListener listener : listeners)
+                listener.candidatesChanged(i / index.getColumns(), i % index.getColumns(), updated);
+        }
+    }
+
+    /**
+     * @param run run of the grid
+     * @return digits that can be placed in the empty cells of the run
+     */
+    private int computeRun(int run) {
+        int used = 0;
+        for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+            int val = grid.getValue(i);
+            if (val == 0)
+                continue;
+            int mask = CombinationTable.digitMask(val);
+            //a value used twice can't lead to any valid combination
+            if ((used & mask) != 0)
+                return 0;
+            used |= mask;
+        }
+        return CombinationTable.getCandidates(index.getRunSum(run), index.getRunLength(run), used) & ~used;
+    }
+
+    /**
+     * @param position position in the grid
+     * @return digits allowed by both runs of an empty input cell (0 for any other position)
+     */
+    private int computeCell(int position) {
+        if (grid.getKind(position) != CompactGrid.input || grid.getValue(position) != 0)
+            return 0;
+        int horizontal = index.getHorizontalRun(position), vertical = index.getVerticalRun(position);
+        int mask = CombinationTable.fullMask;
+        if (horizontal != -1)
+            mask &= runCandidates[horizontal];
+        if (vertical != -1)
+            mask &= runCandidates[vertical];
+        return mask;
+    }
+
+    /**
+     * @param position position in the grid
+     * @return mask of the digits the cell can hold (0 if it is filled)
+     */
+    public int getCandidates(int position) {
+        return candidates[position];
+    }
+
+    public void addCandidateListener(CandidateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeCandidateListener(CandidateListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,138 @@
+package algorithm;
+
+/**
+ * Precomputed table of the digits that can still appear in a subsection (run)
+ * Digits are stored as 9-bit masks : bit 0 stands for 1, bit 8 stands for 9
+ * The table is built once when the class is loaded and is never modified afterwards, so it can be shared by all threads
+ */
+public final class CombinationTable {
+    public static final int maxSum = 45;
+    public static final int maxLength = 9;
+    public static final int fullMask = 0x1FF;
+
+    //candidates[(sum * (maxLength+1) + length) * 512 + usedMask] : digits that complete usedMask into a valid combination
+    private static final short[] candidates = new short[(maxSum + 1) * (maxLength + 1) * 512];
+
+    //combinations[sum * (maxLength+1) + length] : every set of distinct digits of the given length and sum
+    private static final int[][] combinations = new int[(maxSum + 1) * (maxLength + 1)][];
+
+    static {
+        int[] counts = new int[combinations.length];
+        for (int combination = 1; combination <= fullMask; combination++)
+            counts[maskSum(combination) * (maxLength + 1) + Integer.bitCount(combination)]++;
+        for (int i = 0; i < combinations.length; i++)
+            combinations[i] = new int[counts[i]];
+        for (int combination = fullMask; combination >= 1; combination--) {
+            int i = maskSum(combination) * (maxLength + 1) + Integer.bitCount(combination);
+            combinations[i][--counts[i]] = combination;
+        }
+
+        //every subset of {1..9} is a combination of its own size and sum
+        for (int combination = 1; combination <= fullMask; combination++) {
+            int base = index(maskSum(combination), Integer.bitCount(combination), 0);
+            //every subset of the combination can be completed with the remaining digits of the combination
+            int used = combination;
+            while (true) {
+                used = (used - 1) & combination;
+                candidates[base + used] |= (short) (combination & ~used);
+                if (used == 0)
+                    break;
+            }
+        }
+    }
+
+    private CombinationTable() {}
+
+    private static int index(int sum, int length, int usedMask) {
+        return (sum * (maxLength + 1) + length) * 512 + usedMask;
+    }
+
+    /**
+     * Retrieves the digits that can still be placed in a run
+     * @param sum expected sum of the run (its clue)
+     * @param length number of cells in the run
+     * @param usedMask digits already placed in the run
+     * @return mask of the digits that belong to at least one combination of the run containing all used digits
+     */
+    public static int getCandidates(int sum, int length, int usedMask) {
+        if (sum < 0 || sum > maxSum || length < 1 || length > maxLength)
+            return 0;
+        return candidates[index(sum, length, usedMask & fullMask)];
+    }
+
+    /**
+     * Retrieves every set of distinct digits of a given length matching a given sum
+     * the returned array is shared and must not be modified
+     * @param sum expected sum of the run (its clue)
+     * @param length number of cells in the run
+     * @return masks of the combinations in increasing order
+     */
+    public static int[] getCombinations(int sum, int length) {
+        if (sum < 0 || sum > maxSum || length < 1 || length > maxLength)
+            return new int[0];
+        return combinations[sum * (maxLength + 1) + length];
+    }
+
+    /**
+     * Counts, for every digit, the combinations of a run that contain it and all the digits already used
+     * counts are packed in a long, 6 bits per digit (bits 0-5 for 1, bits 6-11 for 2...) so that the counts of
+     * several runs can be added together without allocating anything
+     * @param sum expected sum of the run (its clue)
+     * @param length number of cells in the run
+     * @param usedMask digits already placed in the run
+     * @return packed counts of every digit
+     */
+    public static long getFrequencies(int sum, int length, int usedMask) {
+        long frequencies = 0;
+        for (int combination : getCombinations(sum, length)) {
+            if ((combination & usedMask) != usedMask)
+                continue;
+            for (int digits = combination; digits != 0; digits &= digits - 1)
+                frequencies += 1L << (6 * Integer.numberOfTrailingZeros(digits));
+        }
+        return frequencies;
+    }
+
+    /**
+     * Picks the digit appearing in the most combinations among a set of digits (the lowest one in case of a tie)
+     * @param frequencies packed counts as returned by getFrequencies
+     * @param digits non empty set of digits to choose from
+     * @return most frequent digit
+     */
+    public static int mostFrequent(long frequencies, int digits) {
+        int best = Integer.numberOfTrailingZeros(digits);
+        if (frequencies == 0)
+            return best + 1;
+        long bestCount = -1;
+        for (; digits != 0; digits &= digits - 1) {
+            int d = Integer.numberOfTrailingZeros(digits);
+            long count = (frequencies >>> (6 * d)) & 63;
+            if (count > bestCount) {
+                bestCount = count;
+                best = d;
+            }
+        }
+        return best + 1;
+    }
+
+    /**
+     * @param digit value between 1 and 9
+     * @return mask containing only the digit passed as parameter
+     */
+    public static int digitMask(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    /**
+     * @param mask set of digits
+     * @return sum of all the digits of the mask
+     */
+    public static int maskSum(int mask) {
+        int sum = 0;
+        for (int digit = 1; digit < 10; digit++) {
+            if ((mask & digitMask(digit)) != 0)
+                sum += digit;
+        }
+        return sum;
+    }
+}
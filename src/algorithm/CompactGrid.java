@@ -0,0 +1,253 @@
+package algorithm;
+
+import algorithm.cells.*;
+
+/**
+ * Array based representation of a kakuro grid used by the solver
+ * Positions are flattened row by row (position = row * columns + column)
+ * Every cell belongs to at most one horizontal and one vertical subsection (run), identified by its index
+ * The structure (kinds, runs and clues) is never modified once built, so copies of the same grid share it
+ */
+public class CompactGrid {
+    //cell kinds
+    public static final byte unreachable = 0;
+    public static final byte control = 1;
+    public static final byte input = 2;
+    public static final byte constant = 3;
+
+    //grid dimensions
+    private final int rows, columns;
+
+    //kind and value (input or constant) of every position
+    private final byte[] kinds;
+    private final byte[] values;
+
+    //run of every position (-1 if the position isn't part of any run)
+    private final int[] horizontalRun, verticalRun;
+
+    //clue and number of cells of every run
+    private final int[] runSum, runLength;
+
+    //clues held by control cells, only used to rebuild the Cell model
+    private final int[] verticalClue, horizontalClue;
+
+    /**
+     * Builds the compact representation of a Cell model
+     * @param grid cell grid
+     * @param rows vertical dimension
+     * @param columns horizontal dimension
+     */
+    public CompactGrid(Cell[][] grid, int rows, int columns) {
+        this(rows, columns, new byte[rows * columns], new byte[rows * columns], new int[rows * columns],
+                new int[rows * columns], grid);
+    }
+
+    /**
+     * Builds a grid from its cells already in compact form (e.g. read by KakuroParser), the arrays are kept as they are
+     * @param rows vertical dimension
+     * @param columns horizontal dimension
+     * @param kinds kind of every position
+     * @param values value of every input and constant position (0 elsewhere)
+     * @param verticalClue vertical clue of every control position (0 if none)
+     * @param horizontalClue horizontal clue of every control position (0 if none)
+     */
+    public CompactGrid(int rows, int columns, byte[] kinds, byte[] values, int[] verticalClue, int[] horizontalClue) {
+        this(rows, columns, kinds, values, verticalClue, horizontalClue, null);
+    }
+
+    /**
+     * Fills the arrays from the Cell model if there is one, then indexes the runs
+     */
+    private CompactGrid(int rows, int columns, byte[] kinds, byte[] values, int[] verticalClue, int[] horizontalClue,
+                        Cell[][] grid) {
+        this.rows = rows;
+        this.columns = columns;
+        int size = rows * columns;
+        this.kinds = kinds;
+        this.values = values;
+        this.verticalClue = verticalClue;
+        this.horizontalClue = horizontalClue;
+        horizontalRun = new int[size];
+        verticalRun = new int[size];
+
+        for (int i = 0; i < rows && grid != null; i++) {
+            for (int j = 0; j < columns; j++) {
+                int position = i * columns + j;
+                Cell c = grid[i][j];
+                switch (c.getType()) {
+                    case unreachable:
+                        kinds[position] = unreachable;
+                        break;
+                    case control:
+                        kinds[position] = control;
+                        Integer vertical = ((ControlCell)c).getVertical();
+                        Integer horizontal = ((ControlCell)c).getHorizontal();
+                        verticalClue[position] = vertical == null ? 0 : vertical;
+                        horizontalClue[position] = horizontal == null ? 0 : horizontal;
+                        break;
+                    case input:
+                        kinds[position] = input;
+                        values[position] = (byte) ((InputCell)c).getValue();
+                        break;
+                    case constant:
+                        kinds[position] = constant;
+                        values[position] = (byte) ((ConstantCell)c).getValue();
+                        break;
+                }
+            }
+        }
+
+        int runs = 0;
+        for (int position = 0; position < size; position++) {
+            //every clue starts a new run
+            if (kinds[position] == control && verticalClue[position] != 0)
+                runs++;
+            if (kinds[position] == control && horizontalClue[position] != 0)
+                runs++;
+        }
+
+        runSum = new int[runs];
+        runLength = new int[runs];
+        int run = 0;
+        //horizontal runs
+        for (int i = 0; i < rows; i++) {
+            int current = -1;
+            for (int j = 0; j < columns; j++) {
+                int position = i * columns + j;
+                if (kinds[position] == control || kinds[position] == unreachable) {
+                    current = -1;
+                    if (kinds[position] == control && horizontalClue[position] != 0) {
+                        current = run++;
+                        runSum[current] = horizontalClue[position];
+                    }
+                    horizontalRun[position] = -1;
+                } else {
+                    horizontalRun[position] = current;
+                    if (current != -1)
+                        runLength[current]++;
+                }
+            }
+        }
+        //vertical runs
+        for (int j = 0; j < columns; j++) {
+            int current = -1;
+            for (int i = 0; i < rows; i++) {
+                int position = i * columns + j;
+                if (kinds[position] == control || kinds[position] == unreachable) {
+                    current = -1;
+                    if (kinds[position] == control && verticalClue[position] != 0) {
+                        current = run++;
+                        runSum[current] = verticalClue[position];
+                    }
+                    verticalRun[position] = -1;
+                } else {
+                    verticalRun[position] = current;
+                    if (current != -1)
+                        runLength[current]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a grid, sharing its structure
+     * @param other grid to copy
+     * @param keepInputs false if all the input values of the copy have to be set to 0
+     */
+    public CompactGrid(CompactGrid other, boolean keepInputs) {
+        rows = other.rows;
+        columns = other.columns;
+        kinds = other.kinds;
+        horizontalRun = other.horizontalRun;
+        verticalRun = other.verticalRun;
+        runSum = other.runSum;
+        runLength = other.runLength;
+        verticalClue = other.verticalClue;
+        horizontalClue = other.horizontalClue;
+        values = other.values.clone();
+        if (!keepInputs) {
+            for (int i = 0; i < values.length; i++) {
+                if (kinds[i] == input)
+                    values[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the Cell model of this grid
+     * @return cell grid holding the current values
+     */
+    public Cell[][] toCells() {
+        Cell[][] grid = new Cell[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int position = i * columns + j;
+                switch (kinds[position]) {
+                    case unreachable:
+                        grid[i][j] = new UnreachableCell(i,j);
+                        break;
+                    case control:
+                        Integer vertical = verticalClue[position] == 0 ? null : verticalClue[position];
+                        Integer horizontal = horizontalClue[position] == 0 ? null : horizontalClue[position];
+                        grid[i][j] = new ControlCell(i,j,vertical,horizontal);
+                        break;
+                    case input:
+                        grid[i][j] = new InputCell(i,j,values[position]);
+                        break;
+                    case constant:
+                        grid[i][j] = new ConstantCell(i,j,values[position]);
+                        break;
+                }
+            }
+        }
+        return grid;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getSize() {
+        return kinds.length;
+    }
+
+    public int getRunCount() {
+        return runSum.length;
+    }
+
+    public int position(int row, int column) {
+        return row * columns + column;
+    }
+
+    public byte getKind(int position) {
+        return kinds[position];
+    }
+
+    public int getValue(int position) {
+        return values[position];
+    }
+
+    public void setValue(int position, int value) {
+        values[position] = (byte) value;
+    }
+
+    public int getHorizontalRun(int position) {
+        return horizontalRun[position];
+    }
+
+    public int getVerticalRun(int position) {
+        return verticalRun[position];
+    }
+
+    public int getRunSum(int run) {
+        return runSum[run];
+    }
+
+    public int getRunLength(int run) {
+        return runLength[run];
+    }
+}
@@ -1,158 +1,168 @@
 package algorithm;
 
-import algorithm.cells.Cell;
-import algorithm.cells.ConstantCell;
-import algorithm.cells.ControlCell;
-import algorithm.cells.InputCell;
-import controller.CellType;
+import java.util.Arrays;
 
+/**
+ * Run index of a grid : computed once per grid structure, it locates for every position its horizontal and vertical
+ * subsections (runs), their clues and bounds and whether the position is the last input cell of its runs
+ * The index is never modified once built, so a single instance can check any number of grids sharing the same
+ * structure at the same time
+ */
 public class ConstraintsChecker {
-    //current grid scope
-    private Cell[][] grid;
+    //grid dimensions
+    private final int columns, size;
 
-    //internal functioning variables
-    //horizontalControlX : coordinates of the horizontally closest control cell to a certain position in the current context
-    //verticalControlX : coordinates of the vertically closest control cell to a certain position in the current context
-    private int horizontalControlColumn, horizontalControlRow;
-    private int verticalControlColumn, verticalControlRow;
+    //run of every position (-1 if the position isn't part of any run)
+    private final int[] horizontalRun, verticalRun;
 
-    //grid dimensions
-    private int rows,columns;
+    //clue, number of cells, first position and distance between two consecutive positions of every run
+    private final int[] runSum, runLength, runStart, runStep;
 
-    public ConstraintsChecker(Cell[][] grid, int rows, int columns) {
-        this.grid = grid;
-        this.rows = rows;
-        this.columns = columns;
-    }
+    //true if the position is the last input cell of its horizontal/vertical run (only constant cells may follow it)
+    private final boolean[] endOfRow, endOfColumn;
 
-    /**
-     * Updates the coordinates of the closest horizontal control cell with respect to the current position
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
-     * @return returns the reference of this cell if it exists
-     */
-    private ControlCell updateClosestControlHorizontal(int row, int column) {
-        for (int i = column; i >= 0; i--) {
-            if (grid[row][i].getType() == CellType.control) {
-                horizontalControlColumn = i;
-                horizontalControlRow = row;
-                return (ControlCell) grid[row][i];
+    //independent part of the grid of every position (-1 for control and unreachable cells)
+    //two positions belong to the same component if they are linked through a chain of runs
+    private final int[] component;
+    private final int componentCount;
+
+    public ConstraintsChecker(CompactGrid grid) {
+        columns = grid.getColumns();
+        size = grid.getSize();
+        horizontalRun = new int[size];
+        verticalRun = new int[size];
+        endOfRow = new boolean[size];
+        endOfColumn = new boolean[size];
+
+        int runs = grid.getRunCount();
+        runSum = new int[runs];
+        runLength = new int[runs];
+        runStart = new int[runs];
+        runStep = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            runSum[run] = grid.getRunSum(run);
+            runLength[run] = grid.getRunLength(run);
+            runStart[run] = -1;
+        }
+
+        //positions are visited in increasing order, so the first position found for a run is its start
+        for (int i = 0; i < size; i++) {
+            horizontalRun[i] = grid.getHorizontalRun(i);
+            verticalRun[i] = grid.getVerticalRun(i);
+            if (horizontalRun[i] != -1 && runStart[horizontalRun[i]] == -1) {
+                runStart[horizontalRun[i]] = i;
+                runStep[horizontalRun[i]] = 1;
+            }
+            if (verticalRun[i] != -1 && runStart[verticalRun[i]] == -1) {
+                runStart[verticalRun[i]] = i;
+                runStep[verticalRun[i]] = columns;
             }
         }
-        return null;
-    }
 
-    /**
-     * Tests if there aren't any repeated horizontal values or if the current horizontal sum surpasses the expected sum
-     * @param newGrid grid being tested
-     * @param row horizontal coordinate
-     * @param column vertical coordinate
-     */
-    public boolean horizontalOK(Cell[][]newGrid, int row, int column) {
-        grid = newGrid;
-        if (updateClosestControlHorizontal(row,column) == null)
-            return true;
-        ControlCell control = ((ControlCell)grid[horizontalControlRow][horizontalControlColumn]);
-        int[] possibleValues = new int[10];
-        int maxSum = control.getHorizontal(), currentSum = 0;
-
-        for (int i = horizontalControlColumn + 1; i < columns; i++) {
-            Cell c = grid[horizontalControlRow][i];
-            int val;
-
-            switch (c.getType()) {
-                //if we already checked the whole subsection then OK
-                case control:
-                case unreachable:
-                    return true;
-                case input:
-                    val = ((InputCell)c).getValue();
-                    currentSum += val;
-                    possibleValues[val]++;
-                    //check if value hasn't been used twice
-                    //or if the accumulated sum is less than the maximum permitted sum
-                    if (val != 0 && (possibleValues[val] > 1 || currentSum > maxSum)) {
-                        return false;
-                    }
-                    break;
-                case constant:
-                    val = ((ConstantCell)c).getValue();
-                    currentSum += val;
-                    possibleValues[val]++;
-                    //check if value hasn't been used twice
-                    //or if the accumulated sum is less than the maximum permitted sum
-                    if (val != 0 && (possibleValues[val] > 1 || currentSum > maxSum)) {
-                        return false;
-                    }
+        //the last input cell of a run is found by iterating backwards from its end
+        for (int run = 0; run < runs; run++) {
+            boolean[] end = runStep[run] == 1 ? endOfRow : endOfColumn;
+            for (int n = runLength[run] - 1; n >= 0; n--) {
+                int position = runStart[run] + n * runStep[run];
+                if (grid.getKind(position) == CompactGrid.input) {
+                    end[position] = true;
                     break;
+                }
             }
         }
+        //positions outside of any run are always considered as ends
+        for (int i = 0; i < size; i++) {
+            if (horizontalRun[i] == -1)
+                endOfRow[i] = true;
+            if (verticalRun[i] == -1)
+                endOfColumn[i] = true;
+        }
 
-        return true;
+        //runs crossing at a position are merged into the same component
+        int[] parent = new int[runs];
+        for (int run = 0; run < runs; run++)
+            parent[run] = run;
+        for (int i = 0; i < size; i++) {
+            if (horizontalRun[i] != -1 && verticalRun[i] != -1)
+                parent[find(parent, horizontalRun[i])] = find(parent, verticalRun[i]);
+        }
+        //components are numbered in the order of their first position
+        component = new int[size];
+        int[] label = new int[runs];
+        Arrays.fill(label, -1);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            byte kind = grid.getKind(i);
+            component[i] = -1;
+            if (kind != CompactGrid.input && kind != CompactGrid.constant)
+                continue;
+            int run = horizontalRun[i] != -1 ? horizontalRun[i] : verticalRun[i];
+            if (run == -1) {
+                //a cell outside of any run is a component on its own
+                component[i] = count++;
+                continue;
+            }
+            int root = find(parent, run);
+            if (label[root] == -1)
+                label[root] = count++;
+            component[i] = label[root];
+        }
+        componentCount = count;
     }
 
     /**
-     * Updates the values of the closest vertical control cell with respect to the current position
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
-     * @return returns the reference towards this control cell
+     * @param parent union-find forest of the runs
+     * @param run run to look for
+     * @return representative of the set the run belongs to
      */
-    private ControlCell updateClosestControlVertical(int row, int column) {
-        for (int i = row; i >= 0; i--) {
-            if (grid[i][column].getType() == CellType.control) {
-                verticalControlColumn = column;
-                verticalControlRow = i;
-                return (ControlCell) grid[i][column];
-            }
+    private static int find(int[] parent, int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]];
+            run = parent[run];
         }
-        return null;
+        return run;
+    }
+
+    /**
+     * Tests if there aren't any repeated horizontal values or if the current horizontal sum surpasses the expected sum
+     * @param grid grid being tested
+     * @param position current position
+     * @return true if the sum doesn't surpass the expected sum and there aren't any repeated values
+     */
+    public boolean horizontalOK(CompactGrid grid, int position) {
+        return horizontalRun[position] == -1 || runOK(grid, horizontalRun[position]);
     }
 
     /**
      * Checks if the current vertical sum doesn't surpass the expected sum and there aren't any repeated values
-     * @param newGrid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
+     * @param grid grid being tested
+     * @param position current position
      * @return true if the sum doesn't surpass the expected sum and there aren't any repeated values
      */
-    public boolean verticalOK(Cell[][]newGrid, int row, int column) {
-        grid = newGrid;
-        if (updateClosestControlVertical(row,column) == null)
-            return true;
-        ControlCell control = ((ControlCell)grid[verticalControlRow][verticalControlColumn]);
-        int[] possibleValues = new int[10];
-        int maxSum = control.getVertical(), currentSum = 0;
-
-        for (int i = verticalControlRow + 1; i < rows; i++) {
-            Cell c = grid[i][verticalControlColumn];
-            int val;
-
-            switch (c.getType()) {
-                //if we already checked the whole subsection then OK
-                case control:
-                case unreachable:
-                    return true;
-                case input:
-                    val = ((InputCell)c).getValue();
-                    currentSum += val;
-                    possibleValues[val]++;
-                    //check if value hasn't been used twice
-                    //or if the accumulated sum is less than the maximum permitted sum
-                    if (val != 0 && (possibleValues[val] > 1 || currentSum > maxSum)) {
-                        return false;
-                    }
-                    break;
-                case constant:
-                    val = ((ConstantCell)c).getValue();
-                    currentSum += val;
-                    possibleValues[val]++;
-                    //check if value hasn't been used twice
-                    //or if the accumulated sum is less than the maximum permitted sum
-                    if (val != 0 && (possibleValues[val] > 1 || currentSum > maxSum)){
-                        return false;
-                    }
-                    break;
-            }
+    public boolean verticalOK(CompactGrid grid, int position) {
+        return verticalRun[position] == -1 || runOK(grid, verticalRun[position]);
+    }
+
+    /**
+     * Iterates through a subsection checking for repeated values or a sum greater than the clue
+     * @param grid grid being tested
+     * @param run subsection being tested
+     * @return true if the subsection is consistent
+     */
+    private boolean runOK(CompactGrid grid, int run) {
+        int maxSum = runSum[run], currentSum = 0, used = 0;
+
+        for (int i = runStart[run], n = 0; n < runLength[run]; i += runStep[run], n++) {
+            int val = grid.getValue(i);
+            if (val == 0)
+                continue;
+            currentSum += val;
+            //check if value hasn't been used twice
+            //or if the accumulated sum is less than the maximum permitted sum
+            int mask = CombinationTable.digitMask(val);
+            if ((used & mask) != 0 || currentSum > maxSum)
+                return false;
+            used |= mask;
         }
 
         return true;
@@ -160,129 +170,168 @@ public class ConstraintsChecker {
 
     /**
      * checks both vertically and horizontally if there aren't any repeated values and if the sum doesn't surpass the
-     * expected values with respect to the grid passed as parameter and the current row and column
+     * expected values with respect to the grid passed as parameter and the current position
      * @param grid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
+     * @param position current position
      * @return boolean
      */
-    public boolean isValid(Cell[][]grid, int row, int column) {
-        return horizontalOK(grid,row,column) && verticalOK(grid,row,column);
+    public boolean isValid(CompactGrid grid, int position) {
+        return horizontalOK(grid,position) && verticalOK(grid,position);
     }
 
     /**
      * Checks if the current position is located at the end of a horizontal subsection
-     * @param grid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
+     * @param position current position
      * @return boolean
      */
-    public boolean isEndOfRow(Cell[][]grid, int row, int column) {
-        //it is the end of the row if there aren't any more columns
-        if (column == columns-1)
-            return true;
-        //or if the next position is unreachable or a control cell
-        //or if the next position is a constant cell but the following is the end of the row
-        return grid[row][column+1].getType() == CellType.control
-                || grid[row][column+1].getType() == CellType.unreachable
-                || (grid[row][column+1].getType() == CellType.constant && isEndOfRow(grid,row,column+1));
+    public boolean isEndOfRow(int position) {
+        return endOfRow[position];
     }
 
     /**
      * checks if the current position is located at the end of a vertical subsection
-     * @param grid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
+     * @param position current position
      * @return boolean
      */
-    public boolean isEndOfColumn(Cell[][]grid, int row, int column) {
-        if (row == rows-1)
-            return true;
-        return grid[row+1][column].getType() == CellType.control
-                || grid[row+1][column].getType() == CellType.unreachable
-                || (grid[row+1][column].getType() == CellType.constant && isEndOfColumn(grid,row+1,column));
+    public boolean isEndOfColumn(int position) {
+        return endOfColumn[position];
     }
 
-   
     /**
-     * Iterates from the control cell from context to the end of the subsection
+     * Iterates from the start to the end of a subsection
      * @param grid grid being tested
-     * @param row starting point (starting row)
+     * @param run subsection
      * @return returns the sum of all iterated positions
      */
-    public int getHorizontalSum(Cell[][]grid, int row) {
+    public int getSum(CompactGrid grid, int run) {
         int sum = 0;
-
-        for (int i = horizontalControlColumn + 1; i < columns; i++) {
-            Cell c = grid[row][i];
-            if (c.getType() == CellType.control || c.getType() == CellType.unreachable)
-                break;
-            else if (c.getType() == CellType.constant)
-                sum += ((ConstantCell)c).getValue();
-            else if (c.getType() == CellType.input)
-                sum += ((InputCell)c).getValue();
-        }
-
+        for (int i = runStart[run], n = 0; n < runLength[run]; i += runStep[run], n++)
+            sum += grid.getValue(i);
         return sum;
     }
 
     /**
-     * updates the location of the closest horizontal control cell
-     * check if the sum of the subsection at (row,column) matches the desired horizontal sum
+     * check if the sum of the horizontal subsection at the current position matches the desired horizontal sum
      * @param grid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
+     * @param position current position
      * @return boolean
      */
-    public boolean horizontalSumMatches(Cell[][] grid, int row, int column) {
-        this.grid = grid;
-        ControlCell control = updateClosestControlHorizontal(row, column);
-        if (control == null)
-            return true;
-        return (control.getHorizontal() == getHorizontalSum(grid,row));
+    public boolean horizontalSumMatches(CompactGrid grid, int position) {
+        int run = horizontalRun[position];
+        return run == -1 || runSum[run] == getSum(grid, run);
     }
 
     /**
-     * Extracts the sum of the subsection related to the closest vertical control cell
+     * check if the sum of the vertical subsection at the current position matches the desired vertical sum
      * @param grid grid being tested
-     * @param column starting point (starting column)
-     * @return returns the sum of all iterated positions
+     * @param position current position
+     * @return boolean
      */
-    public int getVerticalSum(Cell[][]grid, int column) {
-        int sum = 0;
+    public boolean verticalSumMatches(CompactGrid grid, int position) {
+        int run = verticalRun[position];
+        return run == -1 || runSum[run] == getSum(grid, run);
+    }
 
-        for (int i = verticalControlRow+1; i < rows; i++) {
-            Cell c = grid[i][column];
-            if (c.getType() == CellType.control || c.getType() == CellType.unreachable)
-                break;
-            else if (c.getType() == CellType.constant)
-                sum += ((ConstantCell)c).getValue();
-            else if (c.getType() == CellType.input)
-                sum += ((InputCell)c).getValue();
-        }
+    /**
+     * Retrieves the digits that can be placed at the current position according to its horizontal subsection
+     * @param grid grid being tested
+     * @param position current position
+     * @return mask of the digits allowed by the horizontal clue and the values already placed in the subsection
+     */
+    public int horizontalCandidates(CompactGrid grid, int position) {
+        if (horizontalRun[position] == -1)
+            return CombinationTable.fullMask;
+        return runCandidates(grid, horizontalRun[position], position);
+    }
 
-        return sum;
+    /**
+     * Retrieves the digits that can be placed at the current position according to its vertical subsection
+     * @param grid grid being tested
+     * @param position current position
+     * @return mask of the digits allowed by the vertical clue and the values already placed in the subsection
+     */
+    public int verticalCandidates(CompactGrid grid, int position) {
+        if (verticalRun[position] == -1)
+            return CombinationTable.fullMask;
+        return runCandidates(grid, verticalRun[position], position);
     }
 
     /**
-     * updates the location of the closest vertical control cell
-     * check if the sum of the subsection at (row,column) matches the desired vertical sum
+     * Collects the values placed in a subsection (except the current position) and looks up the digits completing them
      * @param grid grid being tested
-     * @param row vertical coordinate
-     * @param column horizontal coordinate
-     * @return boolean
+     * @param run subsection
+     * @param position current position
+     * @return mask of the digits allowed at the current position
+     */
+    private int runCandidates(CompactGrid grid, int run, int position) {
+        int used = 0;
+        for (int i = runStart[run], n = 0; n < runLength[run]; i += runStep[run], n++) {
+            int val = grid.getValue(i);
+            if (i == position || val == 0)
+                continue;
+            int mask = CombinationTable.digitMask(val);
+            //a value used twice can't lead to any valid combination
+            if ((used & mask) != 0)
+                return 0;
+            used |= mask;
+        }
+        return CombinationTable.getCandidates(runSum[run], runLength[run], used);
+    }
+
+    /**
+     * Retrieves the digits that can be placed at the current position according to both of its subsections
+     * @param grid grid being tested
+     * @param position current position
+     * @return mask of the digits allowed both horizontally and vertically
      */
-    public boolean verticalSumMatches(Cell[][] grid, int row, int column) {
-        this.grid = grid;
-        ControlCell control = updateClosestControlVertical(row, column);
-        if (control == null)
-            return true;
-        return (control.getVertical() == getVerticalSum(grid,column));
+    public int getCandidates(CompactGrid grid, int position) {
+        int candidates = horizontalCandidates(grid, position);
+        if (candidates == 0)
+            return 0;
+        return candidates & verticalCandidates(grid, position);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getComponent(int position) {
+        return component[position];
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public int getRunCount() {
+        return runSum.length;
+    }
+
+    public int getHorizontalRun(int position) {
+        return horizontalRun[position];
+    }
+
+    public int getVerticalRun(int position) {
+        return verticalRun[position];
+    }
+
+    public int getRunSum(int run) {
+        return runSum[run];
+    }
+
+    public int getRunLength(int run) {
+        return runLength[run];
+    }
+
+    public int getRunStart(int run) {
+        return runStart[run];
     }
 
-    //double setter for the dimensions of the grid
-    public void updateDimensions(int rows, int columns) {
-        this.rows = rows;
-        this.columns = columns;
+    public int getRunStep(int run) {
+        return runStep[run];
     }
 }
@@ -0,0 +1,8 @@
+package algorithm;
+
+/**
+ * Level of a grid, given by the hardest technique needed to solve it
+ */
+public enum Difficulty {
+    easy,medium,hard,expert,extreme
+}
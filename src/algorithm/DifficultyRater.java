@@ -0,0 +1,102 @@
+package algorithm;
+
+/**
+ * Rates the difficulty of a grid by solving it the way a player would
+ * Techniques are tried from the easiest to the hardest on the candidates of every cell : as soon as one of them
+ * removes candidates somewhere, its uses are counted and the rater goes back to the easiest one, so a harder technique
+ * is only counted when none of the easier ones can make any progress. When all of them stall, a digit leading to an
+ * immediate contradiction is removed (trial), and if none does the grid is finished by the search of the propagation
+ * solver, whose depth and number of guesses are recorded
+ * An instance keeps its own working memory : it can be reused for any number of grids sharing its run index,
+ * but only by one thread at a time
+ */
+public class DifficultyRater {
+    private final ConstraintsChecker index;
+    private final int size;
+
+    //candidates of every position (a single bit once the value is known)
+    private final int[] domain;
+    private final CandidateNarrowing narrowing;
+
+    //used to finish the grid by guessing
+    private final PropagationSolver solver;
+
+    public DifficultyRater(ConstraintsChecker index) {
+        this.index = index;
+        size = index.getSize();
+        domain = new int[size];
+        solver = new PropagationSolver(index, BranchingStrategy.mostConstrained);
+        narrowing = new CandidateNarrowing(index, domain, solver);
+    }
+
+    /**
+     * Solves a grid with the techniques and counts how often each of them was needed
+     * input cells already holding a value are kept as they are
+     * @param grid grid to rate (left unchanged)
+     * @return rating of the grid
+     */
+    public DifficultyRating rate(CompactGrid grid) {
+        long[] uses = new long[Technique.values().length];
+        for (int i = 0; i < size; i++) {
+            byte kind = grid.getKind(i);
+            if (kind == CompactGrid.input || kind == CompactGrid.constant) {
+                int val = grid.getValue(i);
+                domain[i] = val == 0 ? CombinationTable.fullMask : CombinationTable.digitMask(val);
+            } else {
+                domain[i] = 0;
+            }
+        }
+
+        while (true) {
+            boolean progress = false;
+            for (Technique technique : CandidateNarrowing.runTechniques) {
+                int narrowed = 0;
+                for (int run = 0; run < index.getRunCount(); run++) {
+                    int result = narrowing.narrow(run, technique);
+                    if (result == -1)
+                        return new DifficultyRating(uses, 0, false);
+                    narrowed += result;
+                }
+                if (narrowed > 0) {
+                    uses[technique.ordinal()] += narrowed;
+                    progress = true;
+                    break;
+                }
+            }
+            if (progress)
+                continue;
+
+            int trial = narrowing.trial();
+            if (trial == -1)
+                return new DifficultyRating(uses, 0, false);
+            if (trial == 0)
+                break;
+            uses[Technique.trial.ordinal()]++;
+        }
+        return finish(uses);
+    }
+
+    /**
+     * Finishes the grid with the search of the propagation solver when the techniques can't go any further
+     * @param uses number of uses of every technique so far
+     * @return rating of the grid
+     */
+    private DifficultyRating finish(long[] uses) {
+        boolean open = false;
+        for (int i = 0; i < size && !open; i++)
+            open = Integer.bitCount(domain[i]) > 1;
+        if (!open)
+            return new DifficultyRating(uses, 0, true);
+
+        SolverStatistics statistics = new SolverStatistics();
+        solver.restore(domain);
+        solver.setDepth(0);
+        solver.setStatistics(statistics);
+        boolean solved = true;
+        for (int component = 0; component < index.getComponentCount() && solved; component++)
+            solved = solver.search(component);
+        solver.setStatistics(null);
+        uses[Technique.search.ordinal()] = statistics.getNodes();
+        return new DifficultyRating(uses, statistics.getMaxDepth(), solved);
+    }
+}
@@ -0,0 +1,78 @@
+package algorithm;
+
+/**
+ * Difficulty of a grid : number of times every technique was used to solve it and depth of the search if guessing
+ * was needed
+ * The score adds the weight of every use of a technique, the level is the one of the hardest technique used
+ */
+public class DifficultyRating {
+    private final long[] uses;
+    private final int searchDepth;
+    private final boolean solved;
+
+    /**
+     * @param uses number of uses of every technique, indexed by ordinal
+     * @param searchDepth maximum number of nested guesses (0 if the grid was solved without guessing)
+     * @param solved false if the grid turned out to have no solution
+     */
+    DifficultyRating(long[] uses, int searchDepth, boolean solved) {
+        this.uses = uses.clone();
+        this.searchDepth = searchDepth;
+        this.solved = solved;
+    }
+
+    public long getUses(Technique technique) {
+        return uses[technique.ordinal()];
+    }
+
+    public int getSearchDepth() {
+        return searchDepth;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * @return hardest technique used (null if the grid was already filled)
+     */
+    public Technique getHardest() {
+        Technique hardest = null;
+        for (Technique technique : Technique.values()) {
+            if (uses[technique.ordinal()] > 0)
+                hardest = technique;
+        }
+        return hardest;
+    }
+
+    /**
+     * @return level of the hardest technique used (easy if no technique was needed)
+     */
+    public Difficulty getDifficulty() {
+        Technique hardest = getHardest();
+        return hardest == null ? Difficulty.easy : hardest.getDifficulty();
+    }
+
+    /**
+     * @return sum of the weights of every use of a technique
+     */
+    public long getScore() {
+        long score = 0;
+        for (Technique technique : Technique.values())
+            score += technique.getWeight() * uses[technique.ordinal()];
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(solved ? getDifficulty().toString() : "unsolvable").append(" score=").append(getScore());
+        for (Technique technique : Technique.values()) {
+            if (uses[technique.ordinal()] > 0)
+                builder.append(' ').append(technique).append('=').append(uses[technique.ordinal()]);
+        }
+        if (searchDepth > 0)
+            builder.append(" depth=").append(searchDepth);
+        return builder.toString();
+    }
+}
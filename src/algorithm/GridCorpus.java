@@ -0,0 +1,163 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.InvalidGridFileException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only access to a binary corpus of grids, written by GridCorpusWriter
+ * The file is mapped in memory : reading grid n only decodes its own record, found through the offset index,
+ * without parsing any text nor reading the other grids
+ * Layout (big-endian) :
+ * header : magic, version, number of grids, offset of the index
+ * records : rows and columns on 2 bytes each, then one byte per cell (kind in the 2 high bits, value of input and
+ * constant cells in the 6 low bits), control cells being followed by their vertical and horizontal clues (0 if none)
+ * index : offset of every record followed by the end of the last record
+ * The mapping is never modified, so an instance can be shared by several threads
+ */
+public class GridCorpus implements Closeable {
+    //first bytes of a corpus file
+    static final int magic = 0x4B4B4347;
+    static final int version = 1;
+    static final int headerSize = 16;
+
+    //kinds stored in the high bits of a cell byte
+    static final int unreachableTag = 0x00;
+    static final int inputTag = 0x40;
+    static final int constantTag = 0x80;
+    static final int controlTag = 0xC0;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexOffset;
+
+    /**
+     * Maps a corpus file and checks its header
+     * @param path corpus file
+     * @throws IOException if the file can't be read or isn't a corpus
+     */
+    public GridCorpus(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < headerSize || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("not a grid corpus: " + path);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != magic || buffer.getInt(4) != version)
+                throw new IOException("not a grid corpus: " + path);
+            count = buffer.getInt(8);
+            indexOffset = buffer.getInt(12);
+            if (count < 0 || indexOffset < headerSize || (long) indexOffset + 4L * (count + 1) > buffer.capacity())
+                throw new IOException("corrupted grid corpus: " + path);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of grids of the corpus
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param n index of a grid
+     * @return vertical dimension of the grid
+     */
+    public int getRows(int n) {
+        return buffer.getShort(recordStart(n)) & 0xFFFF;
+    }
+
+    /**
+     * @param n index of a grid
+     * @return horizontal dimension of the grid
+     */
+    public int getColumns(int n) {
+        return buffer.getShort(recordStart(n) + 2) & 0xFFFF;
+    }
+
+    private int recordStart(int n) {
+        if (n < 0 || n >= count)
+            throw new IndexOutOfBoundsException("grid " + n + " of " + count);
+        return buffer.getInt(indexOffset + 4 * n);
+    }
+
+    /**
+     * Decodes a grid
+     * @param n index of the grid (between 0 and size() - 1)
+     * @return cell grid
+     * @throws InvalidGridFileException if the record is corrupted
+     */
+    public Cell[][] getGrid(int n) throws InvalidGridFileException {
+        int position = recordStart(n), end = buffer.getInt(indexOffset + 4 * (n + 1));
+        if (position < headerSize || end > indexOffset)
+            throw new InvalidGridFileException();
+        return decode(buffer, position, end);
+    }
+
+    /**
+     * Decodes a record written by GridCorpusWriter.encode
+     * @param buffer bytes holding the record (read with absolute gets, its position is left unchanged)
+     * @param position first byte of the record
+     * @param end end of the record
+     * @return cell grid
+     * @throws InvalidGridFileException if the record is corrupted
+     */
+    static Cell[][] decode(ByteBuffer buffer, int position, int end) throws InvalidGridFileException {
+        if (end - position < 4)
+            throw new InvalidGridFileException();
+        int rows = buffer.getShort(position) & 0xFFFF, columns = buffer.getShort(position + 2) & 0xFFFF;
+        position += 4;
+        //every cell takes at least one byte, checked before allocating anything
+        if ((long) rows * columns > end - position)
+            throw new InvalidGridFileException();
+
+        Cell[][] grid = new Cell[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (position >= end)
+                    throw new InvalidGridFileException();
+                int cell = buffer.get(position++) & 0xFF, value = cell & 0x3F;
+                switch (cell & 0xC0) {
+                    case unreachableTag:
+                        grid[i][j] = new UnreachableCell(i, j);
+                        break;
+                    case inputTag:
+                        grid[i][j] = new InputCell(i, j, value);
+                        break;
+                    case constantTag:
+                        grid[i][j] = new ConstantCell(i, j, value);
+                        break;
+                    default:
+                        if (position + 2 > end)
+                            throw new InvalidGridFileException();
+                        int vertical = buffer.get(position++) & 0xFF, horizontal = buffer.get(position++) & 0xFF;
+                        grid[i][j] = new ControlCell(i, j, vertical == 0 ? null : vertical,
+                                horizontal == 0 ? null : horizontal);
+                }
+            }
+        }
+        if (position != end)
+            throw new InvalidGridFileException();
+        return grid;
+    }
+
+    /**
+     * Closes the file, the mapping itself is released once the instance is garbage collected
+     * @throws IOException if error while closing
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,163 @@
+package algorithm;
+
+import algorithm.cells.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a binary corpus of grids, read by GridCorpus
+ * Records are streamed into a temporary file as grids are added, only their offsets are kept in memory. Closing the
+ * writer appends the offset index, fills in the header and replaces the corpus file at once
+ * An instance is used by one thread at a time
+ */
+public class GridCorpusWriter implements Closeable {
+    private final File file, temporary;
+    private final DataOutputStream out;
+    //offset of every record written so far
+    private int[] offsets = new int[1024];
+    private int count = 0;
+    //offset of the next record
+    private long position = GridCorpus.headerSize;
+    private boolean closed = false;
+
+    /**
+     * @param file corpus file, created or replaced once the writer is closed
+     * @throws IOException if the temporary file can't be created
+     */
+    public GridCorpusWriter(File file) throws IOException {
+        this.file = file;
+        temporary = new File(file.getPath() + ".tmp");
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        //the header is filled in by close
+        out.write(new byte[GridCorpus.headerSize]);
+    }
+
+    /**
+     * Appends a grid to the corpus
+     * @param grid cell grid
+     * @param rows vertical dimension
+     * @param columns horizontal dimension
+     * @throws IOException if error while writing or if the corpus doesn't fit in a mapping anymore
+     * @throws IllegalArgumentException if a cell is missing or if the dimensions, a value or a clue can't be stored
+     */
+    public void add(Cell[][] grid, int rows, int columns) throws IOException {
+        //the record is checked before writing anything, so that a wrong grid doesn't corrupt the corpus
+        ByteArrayOutputStream record = encode(grid, rows, columns);
+        if (position + record.size() + 4L * (count + 2) > Integer.MAX_VALUE)
+            throw new IOException("grid corpus too large");
+        if (count == offsets.length)
+            offsets = Arrays.copyOf(offsets, 2 * count);
+        offsets[count++] = (int) position;
+        record.writeTo(out);
+        position += record.size();
+    }
+
+    /**
+     * Encodes a grid as a record of the corpus (also used by the snapshots of MoveJournal)
+     * @param grid cell grid
+     * @param rows vertical dimension
+     * @param columns horizontal dimension
+     * @return record of the grid, decoded by GridCorpus.decode
+     * @throws IllegalArgumentException if a cell is missing or if the dimensions, a value or a clue can't be stored
+     */
+    static ByteArrayOutputStream encode(Cell[][] grid, int rows, int columns) {
+        if (rows > 0xFFFF || columns > 0xFFFF)
+            throw new IllegalArgumentException("grid too large: " + rows + "x" + columns);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(4 + rows * columns);
+        record.write(rows >>> 8);
+        record.write(rows);
+        record.write(columns >>> 8);
+        record.write(columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (grid[i][j] == null)
+                    throw new IllegalArgumentException("missing cell: " + i + " " + j);
+                switch (grid[i][j].getType()) {
+                    case unreachable:
+                        record.write(GridCorpus.unreachableTag);
+                        break;
+                    case input:
+                        record.write(GridCorpus.inputTag | digit(((InputCell) grid[i][j]).getValue()));
+                        break;
+                    case constant:
+                        record.write(GridCorpus.constantTag | digit(((ConstantCell) grid[i][j]).getValue()));
+                        break;
+                    case control:
+                        record.write(GridCorpus.controlTag);
+                        record.write(clue(((ControlCell) grid[i][j]).getVertical()));
+                        record.write(clue(((ControlCell) grid[i][j]).getHorizontal()));
+                        break;
+                }
+            }
+        }
+        return record;
+    }
+
+    private static int digit(int value) {
+        if (value < 0 || value > CombinationTable.maxLength)
+            throw new IllegalArgumentException("invalid value: " + value);
+        return value;
+    }
+
+    private static int clue(Integer clue) {
+        if (clue == null)
+            return 0;
+        if (clue < 0 || clue > 0xFF)
+            throw new IllegalArgumentException("invalid clue: " + clue);
+        return clue;
+    }
+
+    /**
+     * Gives up writing the corpus : the temporary file is deleted and the corpus file is left as it was
+     */
+    public void discard() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            //the file is deleted anyway
+        }
+        temporary.delete();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the index and the header, syncs the new corpus, then replaces the corpus file by it
+     * @throws IOException if error while writing
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            for (int n = 0; n < count; n++)
+                out.writeInt(offsets[n]);
+            out.writeInt((int) position);
+        } finally {
+            out.close();
+        }
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(GridCorpus.headerSize);
+            header.putInt(GridCorpus.magic).putInt(GridCorpus.version).putInt(count).putInt((int) position);
+            header.flip();
+            channel.write(header, 0);
+            //the records, the index and the header have to reach the disk before the move, or a crash right after
+            //it could leave a corpus file with missing data in place of the previous one
+            channel.force(true);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,152 @@
+package algorithm;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Canonical hash of the structure of a grid (cells, clues and constants, not the values of input cells)
+ * The structure is reduced to the smallest rectangle containing every input and constant cell, where each of these
+ * cells is described by its kind, its value if it is a constant and the clues of its runs. Among the 8 rotations and
+ * mirror images of that rectangle (transposing it turns horizontal runs into vertical ones), the smallest description
+ * is hashed, so grids that are mirror images or transposes of each other share the same fingerprint. Solutions are
+ * exchanged as the digits of the input cells in the order of that canonical description
+ */
+public class GridFingerprint {
+    private final String key;
+
+    //positions of the input cells of the grid in canonical order
+    private final int[] inputs;
+
+    /**
+     * @param grid grid to describe (the values of its input cells are ignored)
+     */
+    public GridFingerprint(CompactGrid grid) {
+        int columns = grid.getColumns();
+        int top = grid.getRows(), bottom = -1, left = columns, right = -1;
+        for (int i = 0; i < grid.getSize(); i++) {
+            if (!isFillable(grid, i))
+                continue;
+            top = Math.min(top, i / columns);
+            bottom = Math.max(bottom, i / columns);
+            left = Math.min(left, i % columns);
+            right = Math.max(right, i % columns);
+        }
+        int height = bottom - top + 1, width = right - left + 1;
+        if (bottom == -1)
+            height = width = 0;
+
+        int[] best = null, bestInputs = null;
+        //transform : bit 0 mirrors the rows, bit 1 mirrors the columns, bit 2 transposes
+        for (int transform = 0; transform < 8; transform++) {
+            boolean transposed = (transform & 4) != 0;
+            int newHeight = transposed ? width : height, newWidth = transposed ? height : width;
+            int[] description = new int[2 + 4 * height * width];
+            int[] order = new int[height * width];
+            int length = 0, count = 0;
+            description[length++] = newHeight;
+            description[length++] = newWidth;
+            for (int i = 0; i < newHeight; i++) {
+                for (int j = 0; j < newWidth; j++) {
+                    int row = transposed ? j : i, column = transposed ? i : j;
+                    if ((transform & 1) != 0)
+                        row = height - 1 - row;
+                    if ((transform & 2) != 0)
+                        column = width - 1 - column;
+                    int position = grid.position(top + row, left + column);
+                    if (!isFillable(grid, position)) {
+                        description[length++] = 0;
+                        continue;
+                    }
+                    int across = clue(grid, grid.getHorizontalRun(position));
+                    int down = clue(grid, grid.getVerticalRun(position));
+                    boolean isConstant = grid.getKind(position) == CompactGrid.constant;
+                    description[length++] = isConstant ? 2 : 1;
+                    description[length++] = isConstant ? grid.getValue(position) : 0;
+                    description[length++] = transposed ? down : across;
+                    description[length++] = transposed ? across : down;
+                    if (!isConstant)
+                        order[count++] = position;
+                }
+            }
+            if (best == null || compare(description, length, best) < 0) {
+                best = Arrays.copyOf(description, length);
+                bestInputs = Arrays.copyOf(order, count);
+            }
+        }
+        key = hash(best);
+        inputs = bestInputs;
+    }
+
+    private static boolean isFillable(CompactGrid grid, int position) {
+        byte kind = grid.getKind(position);
+        return kind == CompactGrid.input || kind == CompactGrid.constant;
+    }
+
+    /**
+     * @param run subsection (-1 if none)
+     * @return clue of the run, -1 if there is no run
+     */
+    private static int clue(CompactGrid grid, int run) {
+        return run == -1 ? -1 : grid.getRunSum(run);
+    }
+
+    /**
+     * Lexicographic comparison of a description with the best one found so far
+     */
+    private static int compare(int[] description, int length, int[] best) {
+        for (int n = 0; n < Math.min(length, best.length); n++) {
+            if (description[n] != best[n])
+                return Integer.compare(description[n], best[n]);
+        }
+        return Integer.compare(length, best.length);
+    }
+
+    private static String hash(int[] description) {
+        ByteBuffer bytes = ByteBuffer.allocate(4 * description.length);
+        for (int value : description)
+            bytes.putInt(value);
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes.array()))
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return hexadecimal hash of the canonical description
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param solution solved grid with the same structure
+     * @return digits of its input cells in canonical order
+     */
+    public byte[] extract(CompactGrid solution) {
+        byte[] digits = new byte[inputs.length];
+        for (int n = 0; n < inputs.length; n++)
+            digits[n] = (byte) solution.getValue(inputs[n]);
+        return digits;
+    }
+
+    /**
+     * Fills the input cells of a grid with digits extracted from a grid having the same fingerprint
+     * @param digits digits in canonical order
+     * @param grid grid to fill
+     * @return false if the digits don't match the number of input cells
+     */
+    public boolean apply(byte[] digits, CompactGrid grid) {
+        if (digits.length != inputs.length)
+            return false;
+        for (int n = 0; n < inputs.length; n++)
+            grid.setValue(inputs[n], digits[n]);
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package algorithm;
+
+/**
+ * Next step suggested to the player : either the value a cell must hold and the deduction leading to it, or a cell
+ * holding a wrong value
+ */
+public class Hint {
+    private final int row, column, value;
+    //technique of the deduction (null when the hint points out a mistake)
+    private final Technique technique;
+    private final String explanation;
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @param value value the cell must hold (0 for a mistake : the cell has to be emptied)
+     * @param technique technique of the deduction (null for a mistake)
+     * @param explanation reason of the hint, written for the player
+     */
+    Hint(int row, int column, int value, Technique technique, String explanation) {
+        this.row = row;
+        this.column = column;
+        this.value = value;
+        this.technique = technique;
+        this.explanation = explanation;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return value the cell must hold (0 if the hint is a mistake)
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return technique of the deduction (null if the hint is a mistake)
+     */
+    public Technique getTechnique() {
+        return technique;
+    }
+
+    /**
+     * @return true if the hint points out a cell holding a wrong value
+     */
+    public boolean isMistake() {
+        return technique == null;
+    }
+
+    public String getExplanation() {
+        return explanation;
+    }
+
+    @Override
+    public String toString() {
+        return explanation;
+    }
+}
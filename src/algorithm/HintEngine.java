@@ -0,0 +1,299 @@
+package algorithm;
+
+/**
+ * Finds the next step of a player through ordered propagation rules, without solving the grid
+ * A run breaking the rules (repeated digit, sum over the clue...) is pointed out first. The clues are then propagated
+ * and the values of the player placed one by one on top of them : a value ruled out or leading to a contradiction is
+ * a mistake. Otherwise the techniques of the difficulty rater are applied from the easiest to the hardest on the
+ * candidates left by the values already placed, and the first empty cell left with a single candidate is the hint,
+ * explained by the technique and the run that removed its last other candidate
+ * Only when the techniques stall does the owner have to give a solution to reveal, the only case needing a search
+ * An instance keeps its own working memory : it can be reused for any number of grids sharing its run index,
+ * but only by one thread at a time
+ */
+public class HintEngine {
+    private final ConstraintsChecker index;
+    private final int size, columns;
+
+    //candidates of every position (a single bit once the value is known)
+    private final int[] domain;
+    private final CandidateNarrowing narrowing;
+    //propagates the clues and the values of the player, and tests digits for the trial technique
+    private final PropagationSolver solver;
+    //true if the last call to getHint ended without any deduction, reveal being needed
+    private boolean stalled = false;
+
+    public HintEngine(ConstraintsChecker index) {
+        this.index = index;
+        size = index.getSize();
+        columns = index.getColumns();
+        domain = new int[size];
+        solver = new PropagationSolver(index, BranchingStrategy.mostConstrained);
+        narrowing = new CandidateNarrowing(index, domain, solver);
+    }
+
+    /**
+     * Finds the next step from the values placed by the player, through propagation only
+     * @param grid current grid of the player (left unchanged)
+     * @return next value to place or wrong value to remove (null if the grid is filled without mistakes, if the clues
+     * contradict each other or if no technique makes progress, isStalled telling the last case apart)
+     */
+    public Hint getHint(CompactGrid grid) {
+        stalled = false;
+        Hint conflict = findConflict(grid);
+        if (conflict != null)
+            return conflict;
+        if (!solver.initialize(new CompactGrid(grid, false)))
+            return null;
+        //deductions made from a wrong value would lead the player further away from the solution
+        Hint mistake = findMistake(grid);
+        if (mistake != null)
+            return mistake;
+
+        boolean open = false;
+        for (int i = 0; i < size; i++) {
+            byte kind = grid.getKind(i);
+            if (kind == CompactGrid.input || kind == CompactGrid.constant) {
+                int val = grid.getValue(i);
+                domain[i] = val == 0 ? CombinationTable.fullMask : CombinationTable.digitMask(val);
+                open |= val == 0;
+            } else {
+                domain[i] = 0;
+            }
+        }
+        if (!open)
+            return null;
+
+        while (true) {
+            boolean progress = false;
+            for (Technique technique : CandidateNarrowing.runTechniques) {
+                for (int run = 0; run < index.getRunCount(); run++) {
+                    int result = narrowing.narrow(run, technique);
+                    //the values lead nowhere, but propagation alone can't tell which one is wrong
+                    if (result == -1) {
+                        stalled = true;
+                        return null;
+                    }
+                    if (result == 0)
+                        continue;
+                    progress = true;
+                    //only the cells of the run may have changed
+                    int length = index.getRunLength(run);
+                    for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+                        if (isDeduced(grid, i))
+                            return explain(grid, i, run, technique);
+                    }
+                }
+                if (progress)
+                    break;
+            }
+            if (progress)
+                continue;
+
+            int trial = narrowing.trial();
+            if (trial == 0)
+                break;
+            if (trial == -1) {
+                stalled = true;
+                return null;
+            }
+            for (int i = 0; i < size; i++) {
+                if (isDeduced(grid, i))
+                    return new Hint(i / columns, i % columns, getDigit(domain[i]), Technique.trial,
+                            describeCell(i) + " must be " + getDigit(domain[i])
+                                    + ": any other digit leads to a contradiction");
+            }
+        }
+        stalled = true;
+        return null;
+    }
+
+    /**
+     * @return true if the last call to getHint found neither a deduction nor a mistake while cells are still open,
+     * the next step then has to be revealed from a solution
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * @return true if the position is an empty input cell of the grid left with a single candidate
+     */
+    private boolean isDeduced(CompactGrid grid, int position) {
+        int d = domain[position];
+        return grid.getKind(position) == CompactGrid.input && grid.getValue(position) == 0
+                && d != 0 && (d & (d - 1)) == 0;
+    }
+
+    /**
+     * Writes the reason of a deduction
+     * @param grid current grid of the player
+     * @param position deduced cell
+     * @param run run whose narrowing left a single candidate
+     * @param technique technique applied to the run
+     * @return hint placing the digit
+     */
+    private Hint explain(CompactGrid grid, int position, int run, Technique technique) {
+        int digit = getDigit(domain[position]);
+        String reason;
+        switch (technique) {
+            case uniqueCombination:
+                int combination = narrowing.getAllowed();
+                reason = "the " + describeRun(run) + " can only be made of " + describeDigits(combination);
+                if (Integer.bitCount(combination) > 1)
+                    reason += ", and its other digits are ruled out in this cell";
+                break;
+            case intersection:
+                reason = "it is the only candidate of this cell found in a combination of the " + describeRun(run)
+                        + " (" + describeDigits(narrowing.getAllowed()) + ")";
+                break;
+            case sumRemainder:
+                int placed = 0, empty = 0, length = index.getRunLength(run);
+                for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+                    if (grid.getValue(i) == 0)
+                        empty++;
+                    else
+                        placed += grid.getValue(i);
+                }
+                if (empty == 1)
+                    reason = "it is the last empty cell of the " + describeRun(run) + " (" + index.getRunSum(run)
+                            + " - " + placed + " = " + digit + ")";
+                else
+                    reason = "what is left of the clue of the " + describeRun(run) + " can only be made of "
+                            + describeDigits(narrowing.getAllowed());
+                break;
+            case hiddenSingle:
+                reason = "every combination of the " + describeRun(run) + " needs a " + digit
+                        + " and no other cell of the run can hold it";
+                break;
+            default:
+                reason = "the other cells of the " + describeRun(run)
+                        + " already take up the other digits of its combinations";
+        }
+        return new Hint(position / columns, position % columns, digit, technique,
+                describeCell(position) + " must be " + digit + ": " + reason);
+    }
+
+    /**
+     * Looks for a run breaking the rules of the game
+     * @param grid current grid of the player
+     * @return hint pointing out a value of the run (null if every run follows the rules)
+     */
+    private Hint findConflict(CompactGrid grid) {
+        //position + 1 of every value met in the run (0 if none)
+        int[] seen = new int[CombinationTable.maxLength + 1];
+        for (int run = 0; run < index.getRunCount(); run++) {
+            int length = index.getRunLength(run), sum = 0, filled = 0, last = -1;
+            for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+                int val = grid.getValue(i);
+                if (val == 0)
+                    continue;
+                //the value of the player is blamed rather than a constant
+                if (seen[val] != 0) {
+                    int wrong = grid.getKind(i) == CompactGrid.input ? i : seen[val] - 1;
+                    if (grid.getKind(wrong) == CompactGrid.input)
+                        return mistake(wrong, "the " + describeRun(run) + " already holds a " + val);
+                }
+                seen[val] = i + 1;
+                sum += val;
+                filled++;
+                if (grid.getKind(i) == CompactGrid.input)
+                    last = i;
+            }
+            for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++)
+                seen[grid.getValue(i)] = 0;
+            if (last == -1)
+                continue;
+            if (sum > index.getRunSum(run))
+                return mistake(last, "the digits of the " + describeRun(run) + " already add up to " + sum);
+            if (filled == length && sum != index.getRunSum(run))
+                return mistake(last, "the digits of the " + describeRun(run) + " add up to " + sum);
+        }
+        return null;
+    }
+
+    /**
+     * Places the values of the player one by one in reading order on top of the propagated clues
+     * @param grid current grid of the player
+     * @return hint pointing out the first value ruled out by the clues and the values before it, or leading to a
+     * contradiction once propagated (null if every value could be placed)
+     */
+    private Hint findMistake(CompactGrid grid) {
+        boolean placed = false;
+        for (int i = 0; i < size; i++) {
+            int val = grid.getValue(i);
+            if (grid.getKind(i) != CompactGrid.input || val == 0)
+                continue;
+            String reason = placed ? "the clues and the values placed before it" : "the clues";
+            int candidates = solver.getDomain(i);
+            if ((candidates & CombinationTable.digitMask(val)) == 0)
+                return mistake(i, reason + " only leave " + describeDigits(candidates) + " for this cell");
+            if (!solver.tryDigit(i, CombinationTable.digitMask(val)))
+                return mistake(i, "a " + val + " here contradicts " + reason);
+            placed = true;
+        }
+        return null;
+    }
+
+    /**
+     * Gives the next step from a solution once the techniques stalled (getHint returned null and isStalled is true)
+     * a value of the player differing from the solution is pointed out first, otherwise the empty cell having the
+     * fewest candidates is revealed
+     * @param grid current grid of the player, the same as in the last call to getHint
+     * @param solution solution of the clues
+     * @return hint (null if no cell is left empty)
+     */
+    public Hint reveal(CompactGrid grid, CompactGrid solution) {
+        int best = -1;
+        for (int i = 0; i < size; i++) {
+            if (grid.getKind(i) != CompactGrid.input)
+                continue;
+            int val = grid.getValue(i);
+            if (val != 0 && val != solution.getValue(i))
+                return mistake(i, "a " + val + " here doesn't match the solution of the grid");
+            if (val == 0 && (best == -1 || Integer.bitCount(domain[i]) < Integer.bitCount(domain[best])))
+                best = i;
+        }
+        if (best == -1)
+            return null;
+        int digit = solution.getValue(best);
+        return new Hint(best / columns, best % columns, digit, Technique.search, describeCell(best) + " is "
+                + digit + ": no deduction is left without guessing, this is its value in the solution");
+    }
+
+    private Hint mistake(int position, String reason) {
+        return new Hint(position / columns, position % columns, 0, null,
+                describeCell(position) + " is wrong: " + reason);
+    }
+
+    private static int getDigit(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * @return position of a cell as written for the player, rows and columns starting at 1
+     */
+    private String describeCell(int position) {
+        return "Cell (" + (position / columns + 1) + ", " + (position % columns + 1) + ")";
+    }
+
+    private String describeRun(int run) {
+        return (index.getRunStep(run) == 1 ? "horizontal" : "vertical") + " run of " + index.getRunLength(run)
+                + " cells summing to " + index.getRunSum(run);
+    }
+
+    /**
+     * @return digits of a mask, e.g. {8, 9}
+     */
+    private static String describeDigits(int mask) {
+        StringBuilder digits = new StringBuilder("{");
+        for (int d = 1; d <= CombinationTable.maxLength; d++) {
+            if ((mask & CombinationTable.digitMask(d)) == 0)
+                continue;
+            if (digits.length() > 1)
+                digits.append(", ");
+            digits.append(d);
+        }
+        return digits.append('}').toString();
+    }
+}
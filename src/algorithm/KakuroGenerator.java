@@ -0,0 +1,308 @@
+package algorithm;
+
+import algorithm.cells.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of new grids having a single solution
+ * An attempt draws the white cells at random (the first row and column stay black, runs are 2 to 9 cells long), fills
+ * them with digits that aren't repeated in their runs and derives the clues from these digits. As long as constraint
+ * propagation alone can't solve the grid, the digits of a run going through an undecided cell are drawn again, and
+ * the change is kept if it doesn't leave more undecided cells. A grid solved by propagation alone has a single
+ * solution, which is checked again by counting its solutions before returning it. If the grid is still ambiguous
+ * after a given number of changes, undecided cells can be turned into constant cells holding their digit
+ * An instance can be used by several threads at a time, as long as each of them has its own Random
+ */
+public class KakuroGenerator {
+    public static final double defaultDensity = 0.7;
+    //number of changes tried for every white cell before giving up
+    private static final int stepsPerCell = 30;
+    //number of times the white cells are drawn again if they don't form any run
+    private static final int layoutAttempts = 100;
+
+    private final int rows, columns;
+    private final double density;
+    private final int maxConstants;
+
+    /**
+     * @param rows vertical dimension
+     * @param columns horizontal dimension
+     * @param density probability of a cell being white before the runs are fixed (between 0 and 1)
+     * @param maxConstants maximum number of constant cells added to make the solution unique (0 for none)
+     */
+    public KakuroGenerator(int rows, int columns, double density, int maxConstants) {
+        if (rows < 3 || columns < 3 || density <= 0 || density > 1 || maxConstants < 0)
+            throw new IllegalArgumentException();
+        this.rows = rows;
+        this.columns = columns;
+        this.density = density;
+        this.maxConstants = maxConstants;
+    }
+
+    /**
+     * Makes one attempt at generating a grid
+     * @param random source of randomness of the attempt
+     * @return a grid with empty input cells and a single solution, null if the attempt failed
+     */
+    public Cell[][] generate(Random random) {
+        Attempt attempt = new Attempt(random);
+        return attempt.run();
+    }
+
+    /**
+     * Working memory of a single attempt
+     */
+    private class Attempt {
+        private final Random random;
+        private final boolean[][] white = new boolean[rows][columns];
+        private final boolean[][] constant = new boolean[rows][columns];
+        private final int[][] values = new int[rows][columns];
+        //white cells in row-major order
+        private final List<int[]> cells = new ArrayList<>();
+
+        Attempt(Random random) {
+            this.random = random;
+        }
+
+        Cell[][] run() {
+            if (!drawLayout() || !fill(0))
+                return null;
+
+            //hill climbing on the number of cells left undecided by propagation
+            List<int[]> undecided = undecidedCells();
+            for (int step = 0; step < stepsPerCell * cells.size() && !undecided.isEmpty(); step++) {
+                int[] cell = undecided.get(random.nextInt(undecided.size()));
+                int[][] previous = copyValues();
+                if (!redraw(cell[0], cell[1], random.nextBoolean()))
+                    continue;
+                List<int[]> next = undecidedCells();
+                if (next.size() <= undecided.size())
+                    undecided = next;
+                else
+                    restoreValues(previous);
+            }
+
+            //the remaining undecided cells are given, one at a time
+            for (int given = 0; given < maxConstants && !undecided.isEmpty(); given++) {
+                int[] cell = undecided.get(random.nextInt(undecided.size()));
+                constant[cell[0]][cell[1]] = true;
+                undecided = undecidedCells();
+            }
+            if (!undecided.isEmpty())
+                return null;
+
+            Cell[][] grid = toCells();
+            CompactGrid compact = new CompactGrid(grid, rows, columns);
+            if (new PropagationSolver(new ConstraintsChecker(compact)).countSolutions(compact, 2) != 1)
+                return null;
+            return grid;
+        }
+
+        /**
+         * Draws the white cells, removing the ones whose runs are too short or too long
+         * @return false if no layout with white cells was found
+         */
+        private boolean drawLayout() {
+            for (int attempt = 0; attempt < layoutAttempts; attempt++) {
+                for (int i = 1; i < rows; i++) {
+                    for (int j = 1; j < columns; j++)
+                        white[i][j] = random.nextDouble() < density;
+                }
+                boolean changed = true;
+                while (changed) {
+                    changed = false;
+                    for (int i = 1; i < rows; i++) {
+                        for (int j = 1; j < columns; j++) {
+                            if (!white[i][j])
+                                continue;
+                            int horizontal = runLength(i, j, 0, 1), vertical = runLength(i, j, 1, 0);
+                            if (horizontal < 2 || vertical < 2 || horizontal > CombinationTable.maxLength
+                                    || vertical > CombinationTable.maxLength) {
+                                white[i][j] = false;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+                cells.clear();
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < columns; j++) {
+                        if (white[i][j])
+                            cells.add(new int[]{i, j});
+                    }
+                }
+                if (!cells.isEmpty())
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return length of the run going through (i, j) in the direction (di, dj)
+         */
+        private int runLength(int i, int j, int di, int dj) {
+            while (i - di >= 0 && j - dj >= 0 && white[i - di][j - dj]) {
+                i -= di;
+                j -= dj;
+            }
+            int length = 0;
+            for (; i < rows && j < columns && white[i][j]; i += di, j += dj)
+                length++;
+            return length;
+        }
+
+        /**
+         * Fills the white cells with digits that aren't repeated in their runs, in a random order
+         * @param k index of the cell to fill
+         * @return true if the cells have been filled
+         */
+        private boolean fill(int k) {
+            if (k == cells.size())
+                return true;
+            int i = cells.get(k)[0], j = cells.get(k)[1];
+            for (int digit : shuffledDigits()) {
+                if (isUsed(i, j, digit))
+                    continue;
+                values[i][j] = digit;
+                if (fill(k + 1))
+                    return true;
+            }
+            values[i][j] = 0;
+            return false;
+        }
+
+        /**
+         * Draws again the digits of one of the runs of a cell, keeping the other digits
+         * @param row vertical position of the cell
+         * @param column horizontal position of the cell
+         * @param horizontal true to draw its horizontal run, false for its vertical run
+         * @return false if the run couldn't be filled again (the digits are left unchanged)
+         */
+        private boolean redraw(int row, int column, boolean horizontal) {
+            int di = horizontal ? 0 : 1, dj = horizontal ? 1 : 0;
+            int i = row, j = column;
+            while (white[i - di][j - dj]) {
+                i -= di;
+                j -= dj;
+            }
+            List<int[]> run = new ArrayList<>();
+            for (; i < rows && j < columns && white[i][j]; i += di, j += dj) {
+                if (!constant[i][j])
+                    run.add(new int[]{i, j, values[i][j]});
+            }
+            for (int[] cell : run)
+                values[cell[0]][cell[1]] = 0;
+            if (fillRun(run, 0))
+                return true;
+            for (int[] cell : run)
+                values[cell[0]][cell[1]] = cell[2];
+            return false;
+        }
+
+        private boolean fillRun(List<int[]> run, int k) {
+            if (k == run.size())
+                return true;
+            int i = run.get(k)[0], j = run.get(k)[1];
+            for (int digit : shuffledDigits()) {
+                if (isUsed(i, j, digit))
+                    continue;
+                values[i][j] = digit;
+                if (fillRun(run, k + 1))
+                    return true;
+            }
+            values[i][j] = 0;
+            return false;
+        }
+
+        private List<Integer> shuffledDigits() {
+            List<Integer> digits = new ArrayList<>();
+            for (int digit = 1; digit <= CombinationTable.maxLength; digit++)
+                digits.add(digit);
+            Collections.shuffle(digits, random);
+            return digits;
+        }
+
+        /**
+         * @return true if the digit is already placed in one of the runs of (i, j)
+         */
+        private boolean isUsed(int i, int j, int digit) {
+            for (int x = j - 1; white[i][x]; x--) {
+                if (values[i][x] == digit)
+                    return true;
+            }
+            for (int x = j + 1; x < columns && white[i][x]; x++) {
+                if (values[i][x] == digit)
+                    return true;
+            }
+            for (int x = i - 1; white[x][j]; x--) {
+                if (values[x][j] == digit)
+                    return true;
+            }
+            for (int x = i + 1; x < rows && white[x][j]; x++) {
+                if (values[x][j] == digit)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Propagates the clues derived from the current digits
+         * @return input cells propagation can't decide
+         */
+        private List<int[]> undecidedCells() {
+            CompactGrid grid = new CompactGrid(toCells(), rows, columns);
+            PropagationSolver solver = new PropagationSolver(new ConstraintsChecker(grid));
+            List<int[]> undecided = new ArrayList<>();
+            //the digits always form a solution, so propagation never fails
+            solver.initialize(grid);
+            for (int[] cell : cells) {
+                int domain = solver.getDomain(grid.position(cell[0], cell[1]));
+                if (Integer.bitCount(domain) > 1)
+                    undecided.add(cell);
+            }
+            return undecided;
+        }
+
+        private int[][] copyValues() {
+            int[][] copy = new int[rows][];
+            for (int i = 0; i < rows; i++)
+                copy[i] = values[i].clone();
+            return copy;
+        }
+
+        private void restoreValues(int[][] copy) {
+            for (int i = 0; i < rows; i++)
+                System.arraycopy(copy[i], 0, values[i], 0, columns);
+        }
+
+        /**
+         * @return grid with the clues of the current digits, empty input cells and the constant cells
+         */
+        private Cell[][] toCells() {
+            Cell[][] grid = new Cell[rows][columns];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    if (white[i][j]) {
+                        grid[i][j] = constant[i][j] ? new ConstantCell(i, j, values[i][j]) : new InputCell(i, j);
+                        continue;
+                    }
+                    int horizontal = 0, vertical = 0;
+                    for (int x = j + 1; x < columns && white[i][x]; x++)
+                        horizontal += values[i][x];
+                    for (int x = i + 1; x < rows && white[x][j]; x++)
+                        vertical += values[x][j];
+                    if (horizontal == 0 && vertical == 0)
+                        grid[i][j] = new UnreachableCell(i, j);
+                    else
+                        grid[i][j] = new ControlCell(i, j, vertical == 0 ? null : vertical,
+                                horizontal == 0 ? null : horizontal);
+                }
+            }
+            return grid;
+        }
+    }
+}
@@ -4,11 +4,16 @@ import algorithm.cells.*;
 import algorithm.exceptions.InvalidGridFileException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Random;
 
 public class KakuroLoader {
     private static final String saveFileName = "assets/grids/savedKakuro.kakuro";
     private static final String defaultGridFile = "assets/grids/defaultKakuro.kakuro";
+    private static final String journalFile = "assets/grids/session.journal";
 
     /**
      * paths to the different folders which contain the extractable grids
@@ -19,8 +24,13 @@ public class KakuroLoader {
             "assets/grids/5x5"
     };
 
+    //a binary corpus next to a folder (e.g. assets/grids/3x3.corpus) replaces the .kakuro files of the folder
+    private static final String corpusExtension = ".corpus";
+
+    //shared by every thread loading grids : the dimensions of a grid are only read from the grid returned
     private static KakuroLoader loader = null;
-    private int rows, columns;
+    //corpus of every folder, mapped the first time a grid of its dimensions is asked for
+    private final GridCorpus[] corpora = new GridCorpus[paths.length];
 
     private KakuroLoader() {}
 
@@ -28,6 +38,10 @@ public class KakuroLoader {
         return defaultGridFile;
     }
 
+    public static String getJournalFile() {
+        return journalFile;
+    }
+
     public static KakuroLoader openLoader() {
         if (loader == null)
             loader = new KakuroLoader();
@@ -36,13 +50,33 @@ public class KakuroLoader {
 
     /**
      * takes the grid passed as parameter and saves it as a file using our custom kakuro file format
+     * the grid is written to a temporary file first, so that a crash while saving leaves the previous save intact
      * @param grid grid to save
      * @param rows horizontal dimension
      * @param columns vertical dimension
      * @throws IOException if error while writing on save file
      */
     public void saveFile(Cell[][] grid, int rows, int columns) throws IOException {
-        FileWriter saveFile = new FileWriter(saveFileName);
+        File temporary = new File(saveFileName + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            Writer saveFile = new BufferedWriter(new OutputStreamWriter(out));
+            writeGrid(grid, rows, columns, saveFile);
+            saveFile.flush();
+            out.getFD().sync();
+        }
+        Files.move(temporary.toPath(), Paths.get(saveFileName), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * writes the grid passed as parameter using our custom kakuro file format
+     * @param grid grid to write
+     * @param rows horizontal dimension
+     * @param columns vertical dimension
+     * @param saveFile destination (left open)
+     * @throws IOException if error while writing
+     */
+    public static void writeGrid(Cell[][] grid, int rows, int columns, Writer saveFile) throws IOException {
         saveFile.write("KAKURO\n");
         saveFile.write(rows+" "+columns+"\n");
 
@@ -74,15 +108,6 @@ public class KakuroLoader {
             }
             saveFile.write("\n");
         }
-        saveFile.close();
-    }
-
-    public int getRows() {
-        return rows;
-    }
-
-    public int getColumns() {
-        return columns;
     }
 
     public Cell[][] loadSavedGrid() throws Exception {
@@ -95,6 +120,7 @@ public class KakuroLoader {
 
     /**
      * given a dimension (e.g. if dimensions = 3, then we're talking about 3x3)
+     * the grid is picked from the binary corpus of the dimensions if there is one, without reading the other grids
      * @param dimensions dimensions of the grid to load
      * @return a Cell matrix by reading a random kakuro file in our custom kakuro file format of the specified dimensions
      * @throws Exception if error while loading grid
@@ -112,6 +138,11 @@ public class KakuroLoader {
             throw new InvalidGridFileException();
         selectedFolder = paths[dimensions - 3];
 
+        GridCorpus corpus = openCorpus(dimensions - 3);
+        if (corpus != null && corpus.size() > 0) {
+            return corpus.getGrid(gen.nextInt(corpus.size()));
+        }
+
         folder = new File(selectedFolder);
         files = folder.list();
 
@@ -128,6 +159,23 @@ public class KakuroLoader {
         return grid;
     }
 
+    /**
+     * @param folder index of a folder in paths
+     * @return corpus replacing the files of the folder, null if there is none or if it can't be read
+     */
+    private synchronized GridCorpus openCorpus(int folder) {
+        File file = new File(paths[folder] + corpusExtension);
+        if (corpora[folder] == null && file.isFile()) {
+            try {
+                corpora[folder] = new GridCorpus(file);
+            } catch (IOException e) {
+                //the files of the folder are used instead
+                return null;
+            }
+        }
+        return corpora[folder];
+    }
+
     /**
      * given a path (name) returns the associated grid within the file if it respects our custom kakuro file format
      * @param name path of file
@@ -136,88 +184,10 @@ public class KakuroLoader {
      * @throws InvalidGridFileException if invalid kakuro format
      */
     public Cell[][] loadGrid(String name) throws IOException, InvalidGridFileException {
-        Cell[][] grid;
-        BufferedReader br = new BufferedReader(new FileReader(name));
-
-        String line;
-        //check if header equals KAKURO
-        line = br.readLine();
-        if (line == null || "KAKURO".compareTo(line) != 0)
-            throw new IOException();
-        //check if header contains dimensions
-        line = br.readLine();
-        if (line == null)
-            throw new IOException();
-        //split to get the values
-        String[] values = line.split("\\s+");
-        //there are only 2 dimensions
-        if (values.length != 2)
-            throw new IOException();
-        int rows, columns;
-        try {
-            rows = Integer.parseInt(values[0]);
-            columns = Integer.parseInt(values[1]);
-        } catch (NumberFormatException e) {
-            throw new InvalidGridFileException();
-        }
-        this.rows = rows;
-        this.columns = columns;
-
-        //create respective grid
-        grid = new Cell[rows][columns];
-
-        //iterate through the lines
-        for (int i = 0; i < rows; i++) {
-            line = br.readLine();
-            values = line.split("\\s+");
-            int value;
-            Integer vertical, horizontal;
-            for (int j = 0, currentColumn = 0; j < values.length; j++, currentColumn++) {
-                if (currentColumn >= columns)
-                    throw new InvalidGridFileException();
-                switch (values[j].charAt(0)) {
-                    case 'u':
-                        grid[i][currentColumn] = new UnreachableCell(i,currentColumn);
-                        break;
-                    case 'k':
-                        try {
-                            value = Integer.parseInt(values[j+1]);
-                            grid[i][currentColumn] = new ConstantCell(i,currentColumn,value);
-                            j++;
-                        } catch (Exception e) {
-                            throw new InvalidGridFileException();
-                        }
-                        break;
-                    case 'c':
-                        try {
-                            vertical = Integer.parseInt(values[j+1]);
-                            horizontal = Integer.parseInt(values[j+2]);
-
-                            vertical = vertical == 0 ? null : vertical;
-                            horizontal = horizontal == 0 ? null : horizontal;
-
-                            grid[i][currentColumn] = new ControlCell(i,currentColumn,vertical,horizontal);
-                            j += 2;
-                        } catch (Exception e) {
-                            throw new InvalidGridFileException();
-                        }
-                        break;
-                    case 'i':
-                        try {
-                            value = Integer.parseInt(values[j+1]);
-                            grid[i][currentColumn] = new InputCell(i,currentColumn,value);
-                            j++;
-                        } catch (Exception e) {
-                            throw new InvalidGridFileException();
-                        }
-                        break;
-                    default:
-                        throw new InvalidGridFileException();
-                }
-            }
-        }
-
-        br.close();
-        return grid;
+        //a grid file is small enough to be read at once, without the block buffer of a channel
+        KakuroParser parser = new KakuroParser(ByteBuffer.wrap(Files.readAllBytes(Paths.get(name))));
+        if (!parser.next())
+            throw new InvalidGridFileException(parser.getLine(), 1, "expected KAKURO header");
+        return parser.toCells();
     }
 }
@@ -0,0 +1,347 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.InvalidGridFileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Streaming parser of our custom kakuro file format, reading bytes straight from a channel or a buffer
+ * Any number of grids can follow each other : every call to next reads the following grid into arrays kept by the
+ * parser (kind, value and clues of every position), which are only reallocated when a grid is larger than all the
+ * previous ones. Tokens are decoded byte by byte without creating any object, the Cell model or a CompactGrid are
+ * only built when asked for
+ * Errors give the line and the column where the file stops following the format. Lines before a header are skipped,
+ * so after an invalid grid the next call goes on with the following grid
+ * An instance is used by one thread at a time
+ */
+public class KakuroParser implements Closeable {
+    //larger dimensions are rejected before anything is allocated
+    public static final int maxDimension = 1000;
+    private static final int bufferSize = 1 << 16;
+    private static final byte[] header = {'K', 'A', 'K', 'U', 'R', 'O'};
+
+    //source of the bytes (null when parsing a buffer)
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    //position of the last byte read, starting at line 1 (column 0 : nothing read yet on the line)
+    private int line = 1, column = 0;
+    //position of the token being read, used in errors
+    private int tokenLine, tokenColumn;
+    //number of headers found
+    private int count = 0;
+
+    //last grid read
+    private int rows, columns;
+    private byte[] kinds = new byte[0], values = new byte[0];
+    private int[] verticalClue = new int[0], horizontalClue = new int[0];
+
+    /**
+     * @param channel source of the grids, read in blocks as the parsing goes on (closed by close)
+     */
+    public KakuroParser(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+    }
+
+    /**
+     * @param buffer grids to parse, from its position to its limit (e.g. a mapped file)
+     */
+    public KakuroParser(ByteBuffer buffer) {
+        channel = null;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads the next grid
+     * @return false if there are no grids left
+     * @throws IOException if error while reading the channel
+     * @throws InvalidGridFileException if the grid doesn't follow the format
+     */
+    public boolean next() throws IOException, InvalidGridFileException {
+        if (!skipToHeader())
+            return false;
+        count++;
+
+        int newRows = readNumber("number of rows", 1, maxDimension);
+        int newColumns = readNumber("number of columns", 1, maxDimension);
+        endOfLine(-1);
+        rows = newRows;
+        columns = newColumns;
+        int size = rows * columns;
+        if (kinds.length < size) {
+            kinds = new byte[size];
+            values = new byte[size];
+            verticalClue = new int[size];
+            horizontalClue = new int[size];
+        } else {
+            Arrays.fill(values, 0, size, (byte) 0);
+            Arrays.fill(verticalClue, 0, size, 0);
+            Arrays.fill(horizontalClue, 0, size, 0);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int position = i * columns + j;
+                skipSpaces();
+                startToken();
+                //a grid cut short by the header of the next one : the header is left for the next call
+                if (column == 0 && peek() == header[0])
+                    throw error("expected row " + (i + 1) + " of " + rows);
+                int type = read();
+                if (type == -1 || type == '\n')
+                    throw error("expected " + columns + " cells in row " + (i + 1) + ", found " + j);
+                if (!isSeparator(peek()))
+                    throw error("unknown cell type");
+                switch (type) {
+                    case 'u':
+                        kinds[position] = CompactGrid.unreachable;
+                        break;
+                    case 'i':
+                        kinds[position] = CompactGrid.input;
+                        values[position] = (byte) readNumber("value", 0, CombinationTable.maxLength);
+                        break;
+                    case 'k':
+                        kinds[position] = CompactGrid.constant;
+                        values[position] = (byte) readNumber("value", 1, CombinationTable.maxLength);
+                        break;
+                    case 'c':
+                        kinds[position] = CompactGrid.control;
+                        verticalClue[position] = readNumber("vertical clue", 0, CombinationTable.maxSum);
+                        horizontalClue[position] = readNumber("horizontal clue", 0, CombinationTable.maxSum);
+                        break;
+                    default:
+                        throw error("unknown cell type");
+                }
+            }
+            endOfLine(i);
+        }
+        return true;
+    }
+
+    /**
+     * Skips the lines that aren't a header, starting with the rest of the current line
+     * @return false if the end of the input was reached first
+     */
+    private boolean skipToHeader() throws IOException {
+        while (true) {
+            if (column != 0)
+                skipLine();
+            if (peek() == -1)
+                return false;
+            if (matchHeader())
+                return true;
+            //nothing was read from a line that doesn't start like a header
+            if (column == 0)
+                skipLine();
+        }
+    }
+
+    /**
+     * Reads a header line (trailing spaces are allowed)
+     * @return true if the line was a header, the next line is then the one of the dimensions
+     */
+    private boolean matchHeader() throws IOException {
+        for (byte b : header) {
+            if (peek() != b)
+                return false;
+            read();
+        }
+        skipSpaces();
+        int c = peek();
+        if (c != '\n' && c != -1)
+            return false;
+        read();
+        return true;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != -1);
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns
+     */
+    private void skipSpaces() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r') {
+            read();
+            c = peek();
+        }
+    }
+
+    private static boolean isSeparator(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == -1;
+    }
+
+    /**
+     * Checks that nothing else than spaces is left on the current line and moves to the next one
+     * the error is only written when thrown, the end of every row being checked
+     * @param row row just read (-1 for the line of the dimensions)
+     */
+    private void endOfLine(int row) throws IOException, InvalidGridFileException {
+        skipSpaces();
+        startToken();
+        int c = peek();
+        if (c != '\n' && c != -1)
+            throw error(row == -1 ? "expected end of line after the dimensions"
+                    : "expected end of row " + (row + 1) + " after " + columns + " cells");
+        read();
+    }
+
+    /**
+     * Reads a number on the current line
+     * @param name description of the number, used in errors
+     * @param min smallest value allowed
+     * @param max largest value allowed
+     * @return value of the number
+     */
+    private int readNumber(String name, int min, int max) throws IOException, InvalidGridFileException {
+        skipSpaces();
+        startToken();
+        int c = peek();
+        if (c < '0' || c > '9')
+            throw error("expected " + name);
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            //digits past the maximum are still read, only to report the whole number
+            if (value <= max)
+                value = value * 10 + (c - '0');
+            read();
+            c = peek();
+        }
+        if (!isSeparator(c))
+            throw error("invalid " + name);
+        if (value < min || value > max)
+            throw error(name + " out of range (" + min + " to " + max + ")");
+        return (int) value;
+    }
+
+    private void startToken() {
+        tokenLine = line;
+        tokenColumn = column + 1;
+    }
+
+    private InvalidGridFileException error(String message) {
+        return new InvalidGridFileException(tokenLine, tokenColumn, message);
+    }
+
+    /**
+     * @return next byte without consuming it (-1 at the end of the input)
+     */
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill())
+            return -1;
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * @return next byte (-1 at the end of the input)
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c == -1)
+            return -1;
+        buffer.position(buffer.position() + 1);
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+        return c;
+    }
+
+    /**
+     * Reads the next block of the channel
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (channel == null)
+            return false;
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * @return number of grids found so far, including the last one even if it was invalid
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return line being read, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Builds the Cell model of the last grid read
+     * @return cell grid
+     */
+    public Cell[][] toCells() {
+        Cell[][] grid = new Cell[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int position = i * columns + j;
+                switch (kinds[position]) {
+                    case CompactGrid.unreachable:
+                        grid[i][j] = new UnreachableCell(i, j);
+                        break;
+                    case CompactGrid.control:
+                        grid[i][j] = new ControlCell(i, j,
+                                verticalClue[position] == 0 ? null : verticalClue[position],
+                                horizontalClue[position] == 0 ? null : horizontalClue[position]);
+                        break;
+                    case CompactGrid.input:
+                        grid[i][j] = new InputCell(i, j, values[position]);
+                        break;
+                    case CompactGrid.constant:
+                        grid[i][j] = new ConstantCell(i, j, values[position]);
+                        break;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Builds the compact representation of the last grid read, without going through the Cell model
+     * @return compact grid (its arrays are copies, the parser can go on reading)
+     */
+    public CompactGrid toCompactGrid() {
+        int size = rows * columns;
+        return new CompactGrid(rows, columns, Arrays.copyOf(kinds, size), Arrays.copyOf(values, size),
+                Arrays.copyOf(verticalClue, size), Arrays.copyOf(horizontalClue, size));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null)
+            channel.close();
+    }
+}
@@ -2,23 +2,53 @@ package algorithm;
 
 import algorithm.cells.*;
 import algorithm.exceptions.NoSolutionException;
-import controller.CellType;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class KakuroSolver {
     //dimensions
     private int rows,columns;
     private Cell[][] grid;
     private Cell[][] solution;
+    //array based copies of grid and solution on which the algorithms run
+    private CompactGrid compactGrid;
+    private CompactGrid compactSolution;
     private ConstraintsChecker constraints;
+    //state of the runs of compactGrid, updated after every move
+    private final MoveValidator validator = new MoveValidator();
+    //candidates of the empty cells of compactGrid, updated by the validator after every move
+    private final CandidateStore candidates = new CandidateStore();
     private boolean solutionReady = false;
+    //algorithm used to compute the solution
+    private SolverEngine engine = SolverEngine.propagation;
+    //order in which cells and digits are guessed
+    private BranchingStrategy branching = BranchingStrategy.rowMajor;
+    //metrics of the last solve (null if they aren't collected) and number of nested guesses of the backtracking
+    private boolean statisticsEnabled = false;
+    private SolverStatistics statistics = null;
+    private int depth;
+    //solutions of the grids already solved, shared by the grids having the same structure (null to disable)
+    private SolutionCache solutionCache = new SolutionCache(SolutionCache.defaultCapacity);
+    //failed states of the backtracking, allocated on first use (memory 0 to disable it)
+    private long transpositionMemory = TranspositionTable.defaultMemory;
+    private TranspositionTable transpositions = null;
+    //nodes visited by the backtracking, to weigh the failures stored in the table
+    private long searchNodes;
+    //failures found faster than this number of nodes aren't worth a slot of the table
+    private static final int minStoredWork = 4;
+    //when set to true by another thread, solving and counting give up as soon as possible
+    private AtomicBoolean cancelled = null;
+    //hint engine of the current grid, created on first use
+    private HintEngine hints = null;
 
     
     /**
      * Generates default grid as seen in the pdf
      */
     public KakuroSolver() {
+        validator.addMoveListener(candidates);
         setDefault();
-        constraints = new ConstraintsChecker(grid,rows,columns);
     }
 
     /**
@@ -54,72 +84,270 @@ public class KakuroSolver {
         grid[4][2] = new InputCell(4,2);
         grid[4][3] = new InputCell(4,3);
 
+        updateGrid(grid, rows, columns);
     }
 
     /**
-     * from the current position returns the reference to the next Input Cell going from left to right and up to down
+     * from the current position returns the position of the next empty Input Cell going from left to right and up to down
      * @param grid current grid
-     * @param row current vertical coordinate
-     * @param column current horizontal coordinate
-     * @return reference to the next Input Cell going from left to right and up to down
-     */
-    private InputCell getNextFreeCell(Cell[][]grid, int row, int column) {
-        //first check line
-        for (int i = column; i < columns; i++) {
-            if (grid[row][i].getType() == CellType.input)
-                return (InputCell) grid[row][i];
+     * @param position current position
+     * @return position of the next Input Cell going from left to right and up to down (-1 if there aren't any)
+     */
+    private int getNextFreeCell(CompactGrid grid, int position) {
+        for (int i = position; i < grid.getSize(); i++) {
+            if (grid.getKind(i) == CompactGrid.input && grid.getValue(i) == 0)
+                return i;
         }
-        //then check the rest of the lower end of the grid
-        for (int i = row+1; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (grid[i][j].getType() == CellType.input)
-                    return (InputCell) grid[i][j];
+        return -1;
+    }
+
+    /**
+     * Looks for the empty Input Cell with the fewest candidates
+     * ties are broken by the number of empty cells of its runs, as guessing it constrains more of the grid
+     * the search stays within the component of the first empty cell until it is filled
+     * @param grid current grid
+     * @param state sums and used digits of every run of grid
+     * @return position of the most constrained empty cell (-1 if there aren't any)
+     */
+    private int getMostConstrainedCell(CompactGrid grid, RunState state) {
+        int first = getNextFreeCell(grid, 0);
+        if (first == -1)
+            return -1;
+        int component = constraints.getComponent(first);
+        int best = -1, bestCount = 10, bestDegree = -1;
+        for (int i = first; i < grid.getSize(); i++) {
+            if (grid.getKind(i) != CompactGrid.input || grid.getValue(i) != 0 || constraints.getComponent(i) != component)
+                continue;
+            int count = Integer.bitCount(state.getCandidates(i));
+            //a dead end is returned right away
+            if (count == 0)
+                return i;
+            if (count > bestCount)
+                continue;
+            int degree = 0;
+            int run = constraints.getHorizontalRun(i);
+            if (run != -1)
+                degree += constraints.getRunLength(run) - state.getFilled(run);
+            run = constraints.getVerticalRun(i);
+            if (run != -1)
+                degree += constraints.getRunLength(run) - state.getFilled(run);
+            if (count < bestCount || degree > bestDegree) {
+                best = i;
+                bestCount = count;
+                bestDegree = degree;
             }
         }
-        return null;
+        return best;
+    }
+
+    /**
+     * Counts, for every digit, the combinations of the runs of a position that contain it
+     * @param state sums and used digits of every run
+     * @param position current position
+     * @return packed counts (see CombinationTable.getFrequencies)
+     */
+    private long getFrequencies(RunState state, int position) {
+        long frequencies = 0;
+        int run = constraints.getHorizontalRun(position);
+        if (run != -1)
+            frequencies += CombinationTable.getFrequencies(constraints.getRunSum(run),
+                    constraints.getRunLength(run), state.getUsed(run));
+        run = constraints.getVerticalRun(position);
+        if (run != -1)
+            frequencies += CombinationTable.getFrequencies(constraints.getRunSum(run),
+                    constraints.getRunLength(run), state.getUsed(run));
+        return frequencies;
     }
 
     /**
      * Backtracking algorithm for kakuro solving
      * @param grid current grid distribution
-     * @param row current row
-     * @param column current column
-     * @return true the solution has been found and saved into this.solution / false if there is no solution
+     * @param state sums and used digits of every run of grid
+     * @param position current position
+     * @return true the solution has been found and saved into grid / false if there is no solution
      */
-    public boolean solve(Cell[][] grid, int row, int column) {
-        InputCell currentInput = getNextFreeCell(grid,row,column);
+    public boolean solve(CompactGrid grid, RunState state, int position) {
+        long frequencies = 0;
+        if (branching == BranchingStrategy.mostConstrained) {
+            position = getMostConstrainedCell(grid, state);
+            if (position != -1)
+                frequencies = getFrequencies(state, position);
+        } else {
+            position = getNextFreeCell(grid, position);
+        }
         //if there aren't any input cells left then the grid is solved
-        if (currentInput == null)
+        if (position == -1)
             return true;
+        if (cancelled != null && cancelled.get())
+            return false;
+        //the same digits were already placed in a different order, or leave the open runs in the same state
+        if (transpositions != null && transpositions.isFailed(state.getHash())) {
+            if (statistics != null)
+                statistics.transpositionHit();
+            return false;
+        }
+        long firstNode = searchNodes++;
 
-        //update values for current row/column
-        row = currentInput.getRow();
-        column = currentInput.getColumn();
-
-        for (int num = 1; num < 10; num++) {
+        //only the digits that can still complete both subsections are tried
+        //(no repetitions, and the last cell of a subsection always matches the expected sum)
+        //without frequencies, candidates are tried in increasing order
+        int candidates = state.getCandidates(position);
+        if (statistics != null)
+            countPrunes(state, position, candidates);
+        depth++;
+        while (candidates != 0) {
+            int num = CombinationTable.mostFrequent(frequencies, candidates);
+            candidates &= ~CombinationTable.digitMask(num);
+            if (statistics != null)
+                statistics.node(depth);
             //try number
-            ((InputCell) grid[row][column]).setValue(num);
-            // Check if the value isn't repeated and if the sum doesn't surpass the max value according to control cells
-            if (constraints.isValid(grid, row, column)) {
-                //if we're at a column's/row's end then check if the sum matches the expected value
-                if (constraints.isEndOfRow(grid,row,column) && !constraints.horizontalSumMatches(grid,row,column)) {
-                    currentInput.setValue(0);
-                    continue;
-                }
-                if (constraints.isEndOfColumn(grid,row,column) && !constraints.verticalSumMatches(grid,row,column)) {
-                    currentInput.setValue(0);
-                    continue;
-                }
-                //all good -> try next position
-                if (solve(grid, row, column + 1))
-                    return true;
+            grid.setValue(position, num);
+            state.place(position, num);
+            //all good -> try next position
+            if (solve(grid, state, position + 1)) {
+                depth--;
+                return true;
             }
-            //value reset if guess was wrong
-            currentInput.setValue(0);
+            state.remove(position, num);
+            if (statistics != null)
+                statistics.backtrack();
         }
+        depth--;
+        //value reset if every guess was wrong
+        grid.setValue(position, 0);
+        if (transpositions != null && searchNodes - firstNode >= minStoredWork)
+            transpositions.storeFailure(state.getHash(), searchNodes - firstNode);
         return false;
     }
 
+    /**
+     * Records why the digits missing from the candidates of a position aren't tried
+     * @param state sums and used digits of every run
+     * @param position current position
+     * @param candidates digits that will be tried
+     */
+    private void countPrunes(RunState state, int position, int candidates) {
+        int duplicates = 0, overflows = 0;
+        int[] runs = {constraints.getHorizontalRun(position), constraints.getVerticalRun(position)};
+        for (int run : runs) {
+            if (run == -1)
+                continue;
+            duplicates |= state.getUsed(run);
+            //digits greater than what is left of the clue
+            int left = Math.max(constraints.getRunSum(run) - state.getSum(run), 0);
+            overflows |= CombinationTable.fullMask & ~((1 << Math.min(left, 9)) - 1);
+        }
+        for (int digits = CombinationTable.fullMask & ~candidates; digits != 0; digits &= digits - 1) {
+            int digit = digits & -digits;
+            if ((duplicates & digit) != 0)
+                statistics.prune(PruneReason.duplicate);
+            else if ((overflows & digit) != 0)
+                statistics.prune(PruneReason.sumOverflow);
+            else
+                statistics.prune(PruneReason.endOfRunMismatch);
+        }
+    }
+
+    public SolverEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Selects the algorithm used by getSolution, the solution already computed is discarded
+     * @param engine plain backtracking, constraint propagation or its parallel version
+     */
+    public void setEngine(SolverEngine engine) {
+        this.engine = engine;
+        solutionReady = false;
+    }
+
+    /**
+     * Starts or stops collecting metrics during the next solves (nodes, backtracks, prunes, timing...)
+     * @param enabled true to collect them
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        statisticsEnabled = enabled;
+    }
+
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    /**
+     * @return metrics of the last solve or solution count (null if they weren't collected or the solution was cached)
+     */
+    public SolverStatistics getStatistics() {
+        return statistics;
+    }
+
+    public long getTranspositionMemory() {
+        return transpositionMemory;
+    }
+
+    /**
+     * Sets the memory of the table remembering the failed states of the backtracking engine
+     * @param memory maximum number of bytes (0 to disable the table)
+     */
+    public void setTranspositionMemory(long memory) {
+        if (memory != transpositionMemory)
+            transpositions = null;
+        transpositionMemory = memory;
+    }
+
+    public SolutionCache getSolutionCache() {
+        return solutionCache;
+    }
+
+    /**
+     * Replaces the cache of solutions, e.g. to share it between solvers or to back it by a file
+     * @param solutionCache new cache (null to always solve the grids)
+     */
+    public void setSolutionCache(SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    public BranchingStrategy getBranching() {
+        return branching;
+    }
+
+    /**
+     * Selects the order in which cells and digits are guessed by both engines
+     * the solution already computed is discarded
+     * @param branching row major or most constrained cell first
+     */
+    public void setBranching(BranchingStrategy branching) {
+        this.branching = branching;
+        solutionReady = false;
+    }
+
+    /**
+     * @return incremental validation of the moves made on the current grid (kept when a new grid is loaded)
+     */
+    public MoveValidator getValidator() {
+        return validator;
+    }
+
+    public void addMoveListener(MoveListener listener) {
+        validator.addMoveListener(listener);
+    }
+
+    /**
+     * @param listener notified of the cells whose candidates change after a move (kept when a new grid is loaded)
+     */
+    public void addCandidateListener(CandidateListener listener) {
+        candidates.addCandidateListener(listener);
+    }
+
+    /**
+     * @param row vertical position
+     * @param column horizontal position
+     * @return mask of the digits allowed by both runs of an empty input cell (0 if the cell is filled or isn't an
+     * input cell)
+     */
+    public int getCandidates(int row, int column) {
+        return candidates.getCandidates(compactGrid.position(row, column));
+    }
+
     public Cell[][] getGrid() {
         return grid;
     }
@@ -144,76 +372,226 @@ public class KakuroSolver {
      * @return a boolean that check if the number given is misplaced or not
      */
     public boolean checkMisplacement(int row, int column) {
-        return !(constraints.horizontalOK(grid,row,column) && constraints.verticalOK(grid,row,column));
+        return !validator.isConsistent(compactGrid.position(row, column));
     }
 
     /**
-     * Copies the current grid as a prototype (without taking into consideration the values of input cells)
-     * @return returns a copy of the prototype of this.grid, setting all input values to 0
+     * Updates the value of an input cell in both the cell grid and its compact representation
+     * values of this.grid have to be modified through this method for the solver to take them into account
+     * @param row vertical position
+     * @param column horizontal position
+     * @param value new value (0 to empty the cell)
      */
-    private Cell[][] copyGridStructure() {
-        Cell[][] copy = new Cell[rows][columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                switch(grid[i][j].getType()) {
-                    case unreachable:
-                        copy[i][j] = new UnreachableCell(i,j);
-                        break;
-                    case control:
-                        Integer vertical = ((ControlCell)grid[i][j]).getVertical();
-                        Integer horizontal = ((ControlCell)grid[i][j]).getHorizontal();
-                        copy[i][j] = new ControlCell(i,j,vertical,horizontal);
-                        break;
-                    case input:
-                        copy[i][j] = new InputCell(i,j);
-                        break;
-                    case constant:
-                        copy[i][j] = new ConstantCell(i,j,((ConstantCell)grid[i][j]).getValue());
-                        break;
-                }
-            }
-        }
-        return copy;
+    public void setValue(int row, int column, int value) {
+        ((InputCell)grid[row][column]).setValue(value);
+        validator.setValue(row, column, value);
     }
 
     /**
      * Retrieves the solution of the current grid
      * @return solution to the current grid
      * @throws NoSolutionException if there is no solution
+     * @throws CancellationException if the solve was cancelled before the end
      */
     public Cell[][] getSolution() throws NoSolutionException {
         //to speed things up, it is only calculated once
         if (!solutionReady) {
-            solution = copyGridStructure();
+            //copy of the grid's prototype (without taking into consideration the values of input cells)
+            compactSolution = new CompactGrid(compactGrid, false);
+
+            //a grid with the same structure may have been solved already
+            GridFingerprint fingerprint = solutionCache == null ? null : new GridFingerprint(compactSolution);
+            if (fingerprint != null && loadCachedSolution(fingerprint)) {
+                statistics = null;
+                solution = compactSolution.toCells();
+                solutionReady = true;
+                return solution;
+            }
 
-            constraints.updateDimensions(rows, columns);
-            if (!solve(solution, 0, 0)) {
+            startStatistics();
+            boolean solved;
+            if (engine == SolverEngine.propagation) {
+                PropagationSolver solver = new PropagationSolver(constraints, branching);
+                solver.setStatistics(statistics);
+                solver.setCancellation(cancelled);
+                solved = solver.solve(compactSolution);
+            } else if (engine == SolverEngine.parallel) {
+                ParallelSolver solver = new ParallelSolver(constraints, branching);
+                solver.setStatistics(statistics);
+                solver.setCancellation(cancelled);
+                solved = solver.solve(compactSolution);
+            } else {
+                depth = 0;
+                prepareTranspositions();
+                solved = solve(compactSolution, new RunState(constraints, compactSolution, transpositions != null), 0);
+            }
+            if (statistics != null)
+                statistics.stop();
+            checkCancellation();
+            if (!solved) {
                 throw (new NoSolutionException());
             }
+            if (fingerprint != null)
+                solutionCache.put(fingerprint.getKey(), fingerprint.extract(compactSolution));
+            solution = compactSolution.toCells();
             solutionReady = true;
         }
         return solution;
     }
 
     /**
-     * Checks if current model grid matches solution
-     * @return solved grid
-     * @throws NoSolutionException if the current grid has no solutions
+     * @throws CancellationException if the flag given by setCancellation is set
      */
-    public boolean isSolved() throws NoSolutionException {
-        solution = getSolution();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (grid[i][j].getType() == CellType.input) {
-                    InputCell gridCell = (InputCell)grid[i][j];
-                    InputCell solutionCell = (InputCell)solution[i][j];
-                    //cell value comparison
-                    if (gridCell.getValue() != solutionCell.getValue())
-                        return false;
-                }
-            }
+    private void checkCancellation() {
+        if (cancelled != null && cancelled.get())
+            throw new CancellationException();
+    }
+
+    /**
+     * Lets another thread stop solving or counting, whatever the engine
+     * @param cancelled flag checked at every node of the search (null to never stop)
+     */
+    public void setCancellation(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Copies the current grid and the settings into a new solver, so that another thread can solve the copy while
+     * moves keep changing this grid. The solution cache is shared
+     * @return solver of a copy of the current grid
+     */
+    public KakuroSolver snapshot() {
+        KakuroSolver copy = new KakuroSolver();
+        copy.engine = engine;
+        copy.branching = branching;
+        copy.statisticsEnabled = statisticsEnabled;
+        copy.solutionCache = solutionCache;
+        copy.transpositionMemory = transpositionMemory;
+        copy.rows = rows;
+        copy.columns = columns;
+        //the structure of the grid is immutable, only the values are copied
+        copy.compactGrid = new CompactGrid(compactGrid, true);
+        copy.constraints = constraints;
+        copy.grid = copy.compactGrid.toCells();
+        copy.validator.load(copy.constraints, copy.compactGrid);
+        copy.candidates.load(copy.constraints, copy.compactGrid);
+        //a solution already computed is never modified
+        copy.compactSolution = compactSolution;
+        copy.solution = solution;
+        copy.solutionReady = solutionReady;
+        return copy;
+    }
+
+    /**
+     * Allocates the table of failed states if needed and forgets the failures of the previous grid
+     */
+    private void prepareTranspositions() {
+        if (transpositionMemory == 0)
+            transpositions = null;
+        else if (transpositions == null)
+            transpositions = new TranspositionTable(transpositionMemory);
+        if (transpositions != null)
+            transpositions.newSearch();
+    }
+
+    /**
+     * Fills compactSolution with the cached solution of the current grid, checking it first
+     * @param fingerprint fingerprint of the current grid
+     * @return true if a valid solution was found in the cache
+     */
+    private boolean loadCachedSolution(GridFingerprint fingerprint) {
+        byte[] digits = solutionCache.get(fingerprint.getKey());
+        if (digits == null)
+            return false;
+        if (fingerprint.apply(digits, compactSolution) && SolutionVerifier.isSolution(constraints, compactSolution))
+            return true;
+        //corrupted cache file : the grid is solved again
+        solutionCache.remove(fingerprint.getKey());
+        compactSolution = new CompactGrid(compactGrid, false);
+        return false;
+    }
+
+    /**
+     * Counts the solutions of the current grid (without taking into consideration the values of input cells)
+     * the parallel engine counts in parallel, the other engines use sequential constraint propagation
+     * @param limit maximum number of solutions to look for
+     * @return number of solutions, at most limit (0 : no solution, 1 : unique solution)
+     * @throws CancellationException if the count was cancelled before the end
+     */
+    public long countSolutions(long limit) {
+        CompactGrid prototype = new CompactGrid(compactGrid, false);
+        startStatistics();
+        long count;
+        if (engine == SolverEngine.parallel) {
+            ParallelSolver solver = new ParallelSolver(constraints, branching);
+            solver.setStatistics(statistics);
+            solver.setCancellation(cancelled);
+            count = solver.countSolutions(prototype, limit);
+        } else {
+            PropagationSolver solver = new PropagationSolver(constraints, branching);
+            solver.setStatistics(statistics);
+            solver.setCancellation(cancelled);
+            count = solver.countSolutions(prototype, limit);
         }
-        return true;
+        if (statistics != null)
+            statistics.stop();
+        checkCancellation();
+        return count;
+    }
+
+    /**
+     * Replaces the metrics of the previous solve by new ones if they are collected
+     */
+    private void startStatistics() {
+        statistics = statisticsEnabled ? new SolverStatistics() : null;
+        if (statistics != null)
+            statistics.start();
+    }
+
+    /**
+     * @return true if the current grid has exactly one solution
+     */
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+
+    /**
+     * Rates the difficulty of the current grid (without taking into consideration the values of input cells)
+     * @return techniques needed to solve the grid and their score
+     */
+    public DifficultyRating rate() {
+        return new DifficultyRater(constraints).rate(new CompactGrid(compactGrid, false));
+    }
+
+    /**
+     * Finds the next step of the player from the values of the current grid through propagation, the grid being only
+     * solved (once, or taken from the solution cache) when no deduction is left
+     * @return value to place or wrong value to remove (null if the grid is filled without mistakes or has no solution)
+     * @throws CancellationException if the solve was cancelled before the end
+     */
+    public Hint getHint() {
+        //the engine keeps its working memory from one hint to the next
+        if (hints == null)
+            hints = new HintEngine(constraints);
+        Hint hint = hints.getHint(compactGrid);
+        if (hint != null || !hints.isStalled())
+            return hint;
+        //no deduction is left : the next value comes from the solution of the clues, only computed in this case
+        try {
+            getSolution();
+        } catch (NoSolutionException e) {
+            return null;
+        }
+        return hints.reveal(compactGrid, compactSolution);
+    }
+
+    /**
+     * Checks if current model grid is a valid solution (every run filled with distinct digits matching its clue)
+     * it doesn't need the solver, and accepts any valid solution
+     * @return true if the grid is solved
+     */
+    public boolean isSolved() {
+        return validator.isSolved();
     }
 
     /**
@@ -240,6 +618,10 @@ public class KakuroSolver {
                 }
             }
         }
+        //the structure is unchanged, only the values have to be refreshed
+        compactGrid = new CompactGrid(this.grid, rows, columns);
+        validator.load(constraints, compactGrid);
+        candidates.load(constraints, compactGrid);
     }
 
     /**
@@ -253,7 +635,11 @@ public class KakuroSolver {
         this.rows = rows;
         this.columns = columns;
         solutionReady = false;
-        constraints = new ConstraintsChecker(grid,rows,columns);
+        compactGrid = new CompactGrid(grid, rows, columns);
+        constraints = new ConstraintsChecker(compactGrid);
+        validator.load(constraints, compactGrid);
+        candidates.load(constraints, compactGrid);
+        hints = null;
     }
 
     /**
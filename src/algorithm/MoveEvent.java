@@ -0,0 +1,58 @@
+package algorithm;
+
+/**
+ * Description of a move applied to the live grid and of the state of the grid right after it
+ */
+public class MoveEvent {
+    private final int row, column;
+    private final int previous, value;
+    private final boolean consistent, solved;
+    private final int emptyCells;
+
+    public MoveEvent(int row, int column, int previous, int value, boolean consistent, boolean solved, int emptyCells) {
+        this.row = row;
+        this.column = column;
+        this.previous = previous;
+        this.value = value;
+        this.consistent = consistent;
+        this.solved = solved;
+        this.emptyCells = emptyCells;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return value of the cell before the move (0 if it was empty)
+     */
+    public int getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return value of the cell after the move (0 if it was emptied)
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return true if none of the runs of the cell is violated after the move
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public int getEmptyCells() {
+        return emptyCells;
+    }
+}
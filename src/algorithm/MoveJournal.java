@@ -0,0 +1,626 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.InvalidGridFileException;
+import controller.CellType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the moves made on the live grid of a solver, giving undo, redo and an autosave of the game
+ * Layout (big-endian) : header (magic, version) followed by records, each made of a tag, the length of its payload,
+ * the payload and a CRC32 of all of them
+ * snapshot : the whole grid, encoded like a record of GridCorpus
+ * move, undo, redo : one or more moves of a single action (e.g. a reset of the grid), each made of its row and column
+ * on 2 bytes and its values before and after on 1 byte (an undo goes back from the second value to the first one)
+ * Every journal starts with a snapshot and another one is appended every snapshotInterval records, so a recovery
+ * only decodes the last snapshot and replays the few records after it. A record cut by a crash fails its checksum
+ * and is dropped with everything after it. Once the file grows over maxSize, it is replaced by a single snapshot
+ * Records are built by the thread making the moves and written by a writer thread of the journal, so a move never
+ * waits for the disk. They reach the file right after the move, which is enough to survive a crash of the program,
+ * while forcing them to the disk is batched (every syncInterval records or syncDelay milliseconds after a move)
+ * Actions are kept in memory for undo and redo in constant time. After a recovery, the moves made before the last
+ * snapshot can't be undone anymore
+ * If writing fails, the journal stops recording until the next call to start (see getFailure)
+ */
+public class MoveJournal implements MoveListener, Closeable {
+    //first bytes of a journal file
+    static final int magic = 0x4B4B4D4A;
+    static final int version = 1;
+    private static final int headerSize = 8;
+
+    //record tags
+    private static final byte snapshotTag = 'S', moveTag = 'M', undoTag = 'U', redoTag = 'R';
+    private static final int moveSize = 6;
+    //tag and length before the payload, checksum after it
+    private static final int recordHeader = 5, recordOverhead = 9;
+    //set on a move of the history belonging to the same action as the move before it
+    private static final long linked = 1L << 48;
+
+    static final int snapshotInterval = 256;
+    static final int syncInterval = 32;
+    static final long syncDelay = 1000;
+    static final long maxSize = 1 << 20;
+
+    private final KakuroSolver solver;
+    private final File file;
+    private final CRC32 crc = new CRC32();
+
+    //moves that can be undone (before cursor) or redone (from cursor to historySize), packed by pack
+    private long[] history = new long[256];
+    private int historySize = 0, cursor = 0;
+    //position in the history of the first move of the batch being made (-1 if none)
+    private int batchStart = -1;
+    private boolean recording = false;
+    private int recordsSinceSnapshot = 0;
+    //true while the journal changes the grid itself, the move being already recorded
+    private boolean replaying = false;
+    private MoveEvent replayed;
+
+    //only used by the writer thread
+    private final ScheduledThreadPoolExecutor writer;
+    private FileChannel channel = null;
+    private long size;
+    private int unsynced = 0;
+    private boolean syncScheduled = false;
+    private volatile IOException failure = null;
+
+    /**
+     * Nothing is read or written before start or recover is called
+     * @param solver solver whose live grid is journaled, the journal has to be added to its move listeners
+     * @param file journal file
+     */
+    public MoveJournal(KakuroSolver solver, File file) {
+        this.solver = solver;
+        this.file = file;
+        writer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "move journal");
+                //the journal is closed by its owner, the program doesn't wait for the thread
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        writer.setKeepAliveTime(10 * syncDelay, TimeUnit.MILLISECONDS);
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts a new journal from the current grid of the solver (after a new grid has been loaded or the grid has been
+     * replaced as a whole), the previous journal and the history are forgotten
+     * waits until the new journal is written, which replaces the previous one at once
+     * @throws IOException if error while writing, nothing is recorded then
+     */
+    public synchronized void start() throws IOException {
+        historySize = 0;
+        cursor = 0;
+        batchStart = -1;
+        recordsSinceSnapshot = 0;
+        recording = true;
+        final ByteBuffer snapshot = snapshotRecord();
+        await(writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                failure = null;
+                try {
+                    compact(snapshot);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Restores the grid saved by the journal file into the solver : the last snapshot is decoded, the moves following
+     * it are applied to it and become the history, then the grid is loaded by the solver
+     * @return false if there is no journal file or if it doesn't hold any valid snapshot (nothing is changed then)
+     * @throws IOException if error while reading or reopening the file
+     */
+    public synchronized boolean recover() throws IOException {
+        //the records still waiting are written before the file is read
+        await(writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                closeChannel();
+                return null;
+            }
+        }));
+        recording = false;
+        if (!file.isFile())
+            return false;
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (data.limit() < headerSize || data.getInt(0) != magic || data.getInt(4) != version)
+            return false;
+
+        //only the records before the first damaged one are kept
+        int position = headerSize, end = headerSize, lastSnapshot = -1;
+        while (true) {
+            int next = checkRecord(data, position);
+            if (next == -1)
+                break;
+            if (data.get(position) == snapshotTag)
+                lastSnapshot = position;
+            end = next;
+            position = next;
+        }
+        if (lastSnapshot == -1)
+            return false;
+        int snapshotEnd = lastSnapshot + recordHeader + data.getInt(lastSnapshot + 1);
+        Cell[][] grid;
+        try {
+            grid = GridCorpus.decode(data, lastSnapshot + recordHeader, snapshotEnd);
+        } catch (InvalidGridFileException e) {
+            return false;
+        }
+        if (grid.length == 0 || grid[0].length == 0)
+            return false;
+
+        historySize = 0;
+        cursor = 0;
+        batchStart = -1;
+        int records = 0;
+        position = snapshotEnd + 4;
+        while (position < end) {
+            int length = data.getInt(position + 1);
+            if (!replay(grid, data, position, length))
+                break;
+            records++;
+            position += recordOverhead + length;
+        }
+        solver.updateGrid(grid, grid.length, grid[0].length);
+
+        //the tail that couldn't be replayed is dropped and the next records are appended after the last valid one
+        final long valid = position;
+        await(writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                failure = null;
+                open(valid);
+                return null;
+            }
+        }));
+        recordsSinceSnapshot = records;
+        recording = true;
+        return true;
+    }
+
+    /**
+     * @param data content of the journal file
+     * @param position start of a record
+     * @return end of the record (-1 if it is cut, damaged or if position is the end of the file)
+     */
+    private int checkRecord(ByteBuffer data, int position) {
+        if (data.limit() - position < recordOverhead)
+            return -1;
+        int length = data.getInt(position + 1);
+        if (length < 0 || length > data.limit() - position - recordOverhead)
+            return -1;
+        crc.reset();
+        crc.update(data.array(), position, recordHeader + length);
+        if ((int) crc.getValue() != data.getInt(position + recordHeader + length))
+            return -1;
+        return position + recordOverhead + length;
+    }
+
+    /**
+     * Applies a move, undo or redo record to the grid being recovered and to the history
+     * @param grid grid being recovered
+     * @param data content of the journal file
+     * @param position start of the record
+     * @param length length of its payload
+     * @return false if the record isn't a list of moves matching the grid (nothing is changed then)
+     */
+    private boolean replay(Cell[][] grid, ByteBuffer data, int position, int length) {
+        byte tag = data.get(position);
+        if ((tag != moveTag && tag != undoTag && tag != redoTag) || length == 0 || length % moveSize != 0)
+            return false;
+        int start = position + recordHeader, end = start + length;
+        for (int i = start; i < end; i += moveSize) {
+            long move = readMove(data, i);
+            int row = getRow(move), column = getColumn(move);
+            if (row >= grid.length || column >= grid[0].length || grid[row][column].getType() != CellType.input
+                    || getPrevious(move) > CombinationTable.maxLength
+                    || getValue(move) > CombinationTable.maxLength)
+                return false;
+        }
+        for (int i = start; i < end; i += moveSize) {
+            long move = readMove(data, i);
+            InputCell cell = (InputCell) grid[getRow(move)][getColumn(move)];
+            //the moves of an action after the first one are linked to it
+            long entry = i == start ? move : move | linked;
+            if (tag == moveTag) {
+                cell.setValue(getValue(move));
+                push(entry);
+            } else if (tag == undoTag) {
+                cell.setValue(getPrevious(move));
+                //the move may have been made before the snapshot
+                if (cursor > 0 && (history[cursor - 1] & ~linked) == move)
+                    cursor--;
+            } else {
+                cell.setValue(getValue(move));
+                if (cursor < historySize && (history[cursor] & ~linked) == move)
+                    cursor++;
+                else
+                    push(entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records a move made on the live grid, the moves that could be redone are forgotten
+     * @param event move applied to the live grid
+     */
+    @Override
+    public synchronized void moveApplied(MoveEvent event) {
+        if (replaying) {
+            replayed = event;
+            return;
+        }
+        long move = pack(event.getRow(), event.getColumn(), event.getPrevious(), event.getValue());
+        if (batchStart != -1 && cursor > batchStart)
+            move |= linked;
+        push(move);
+        if (batchStart == -1)
+            record(moveRecord(moveTag, cursor - 1, cursor, false));
+    }
+
+    /**
+     * Groups the next moves into a single action, undone at once and written as a single record, until endBatch
+     */
+    public synchronized void startBatch() {
+        if (batchStart == -1)
+            batchStart = cursor;
+    }
+
+    /**
+     * Ends the action started by startBatch
+     */
+    public synchronized void endBatch() {
+        int start = batchStart;
+        batchStart = -1;
+        if (start != -1 && cursor > start)
+            record(moveRecord(moveTag, start, cursor, false));
+    }
+
+    private void push(long move) {
+        if (cursor == history.length)
+            history = Arrays.copyOf(history, 2 * cursor);
+        history[cursor++] = move;
+        historySize = cursor;
+    }
+
+    /**
+     * Cancels the last action that hasn't been undone yet
+     * @return changes applied to the live grid (empty if there is nothing to undo)
+     */
+    public synchronized List<MoveEvent> undo() {
+        List<MoveEvent> events = new ArrayList<>();
+        if (cursor == 0)
+            return events;
+        int end = cursor;
+        do {
+            long move = history[--cursor];
+            apply(move, getPrevious(move), events);
+        } while (cursor > 0 && (history[cursor] & linked) != 0);
+        record(moveRecord(undoTag, cursor, end, true));
+        return events;
+    }
+
+    /**
+     * Applies again the last action undone
+     * @return changes applied to the live grid (empty if there is nothing to redo)
+     */
+    public synchronized List<MoveEvent> redo() {
+        List<MoveEvent> events = new ArrayList<>();
+        if (cursor == historySize)
+            return events;
+        int start = cursor;
+        do {
+            long move = history[cursor++];
+            apply(move, getValue(move), events);
+        } while (cursor < historySize && (history[cursor] & linked) != 0);
+        record(moveRecord(redoTag, start, cursor, false));
+        return events;
+    }
+
+    public synchronized boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public synchronized boolean canRedo() {
+        return cursor < historySize;
+    }
+
+    /**
+     * Changes a value of the live grid without recording it as a new move
+     * @param events changes applied so far, receiving this one
+     */
+    private void apply(long move, int value, List<MoveEvent> events) {
+        replaying = true;
+        replayed = null;
+        try {
+            solver.setValue(getRow(move), getColumn(move), value);
+        } finally {
+            replaying = false;
+        }
+        if (replayed != null)
+            events.add(replayed);
+    }
+
+    /**
+     * Hands a record to the writer thread, followed by a snapshot every snapshotInterval records
+     */
+    private void record(final ByteBuffer record) {
+        if (!recording)
+            return;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(record, false);
+            }
+        });
+        if (++recordsSinceSnapshot >= snapshotInterval) {
+            recordsSinceSnapshot = 0;
+            //the grid is encoded now, as it will have changed by the time the record is written
+            final ByteBuffer snapshot = snapshotRecord();
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    append(snapshot, true);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param tag move, undo or redo
+     * @param from first move of the history to write
+     * @param to end of the moves to write
+     * @param reversed true to write the moves from the last one (the order of an undo)
+     * @return record holding the moves
+     */
+    private ByteBuffer moveRecord(byte tag, int from, int to, boolean reversed) {
+        int count = to - from;
+        ByteBuffer record = ByteBuffer.allocate(recordOverhead + count * moveSize);
+        record.put(tag).putInt(count * moveSize);
+        for (int n = 0; n < count; n++) {
+            long move = history[reversed ? to - 1 - n : from + n];
+            record.putShort((short) getRow(move)).putShort((short) getColumn(move));
+            record.put((byte) getPrevious(move)).put((byte) getValue(move));
+        }
+        return seal(record);
+    }
+
+    /**
+     * @return record holding the current grid of the solver
+     */
+    private ByteBuffer snapshotRecord() {
+        ByteArrayOutputStream payload = GridCorpusWriter.encode(solver.getGrid(), solver.getRows(),
+                solver.getColumns());
+        ByteBuffer record = ByteBuffer.allocate(recordOverhead + payload.size());
+        record.put(snapshotTag).putInt(payload.size()).put(payload.toByteArray());
+        return seal(record);
+    }
+
+    /**
+     * Adds the checksum after the payload
+     * @param record tag, length and payload, the buffer being positioned after them
+     * @return record ready to be written
+     */
+    private ByteBuffer seal(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Waits until the records of the moves made so far are written and forced to the disk
+     * @throws IOException if error while writing
+     */
+    public synchronized void sync() throws IOException {
+        await(writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                if (channel != null)
+                    force();
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * @return error that stopped the recording (null if none since the last start)
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Forces the last records to the disk and closes the file, the journal can be started again afterwards
+     * @throws IOException if error while writing the last records
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        recording = false;
+        await(writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                if (channel == null)
+                    return null;
+                try {
+                    force();
+                } finally {
+                    closeChannel();
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Waits for a task of the writer thread
+     */
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    //------- WRITER THREAD --------
+
+    /**
+     * Appends a record to the file, forcing it to the disk if it is a snapshot or if too many records are waiting
+     * @param record record to write
+     * @param snapshot true if the record is a snapshot, after which the file may be compacted
+     */
+    private void append(ByteBuffer record, boolean snapshot) {
+        if (channel == null)
+            return;
+        try {
+            size += record.remaining();
+            writeFully(channel, record);
+            if (snapshot && size > maxSize) {
+                record.rewind();
+                compact(record);
+            } else if (snapshot || ++unsynced >= syncInterval) {
+                force();
+            } else if (!syncScheduled) {
+                syncScheduled = true;
+                writer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        syncScheduled = false;
+                        if (channel == null || unsynced == 0)
+                            return;
+                        try {
+                            force();
+                        } catch (IOException e) {
+                            fail(e);
+                        }
+                    }
+                }, syncDelay, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Replaces the journal file at once by a new one holding a single snapshot
+     * @param snapshot snapshot record of the current grid
+     */
+    private void compact(ByteBuffer snapshot) throws IOException {
+        closeChannel();
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(magic).putInt(version);
+            header.flip();
+            writeFully(out, header);
+            writeFully(out, snapshot);
+            out.force(true);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        open(file.length());
+    }
+
+    /**
+     * Opens the journal file for appending
+     * @param end end of the valid records, anything after it is dropped
+     */
+    private void open(long end) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        if (channel.size() > end)
+            channel.truncate(end);
+        channel.position(end);
+        size = end;
+        unsynced = 0;
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //the records already written are kept by the file
+        }
+        channel = null;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    //a move is packed into a long : row, column, previous value and new value
+    private static long pack(int row, int column, int previous, int value) {
+        return ((long) row << 32) | ((long) column << 16) | (previous << 8) | value;
+    }
+
+    private static long readMove(ByteBuffer data, int position) {
+        return pack(data.getShort(position) & 0xFFFF, data.getShort(position + 2) & 0xFFFF,
+                data.get(position + 4) & 0xFF, data.get(position + 5) & 0xFF);
+    }
+
+    private static int getRow(long move) {
+        return (int) (move >>> 32) & 0xFFFF;
+    }
+
+    private static int getColumn(long move) {
+        return (int) (move >>> 16) & 0xFFFF;
+    }
+
+    private static int getPrevious(long move) {
+        return (int) (move >>> 8) & 0xFF;
+    }
+
+    private static int getValue(long move) {
+        return (int) move & 0xFF;
+    }
+}
@@ -0,0 +1,8 @@
+package algorithm;
+
+/**
+ * Notified by the MoveValidator after every change of value of the live grid
+ */
+public interface MoveListener {
+    void moveApplied(MoveEvent event);
+}
@@ -0,0 +1,217 @@
+package algorithm;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Incremental validation of the moves made on the live grid
+ * For every run, the sum, the number of occurrences of every digit and the number of filled cells are updated in
+ * constant time whenever a value changes, so checking a move, counting the violated runs or the empty cells never
+ * depends on the size of the grid
+ * A run is violated if a digit is repeated, if its sum exceeds the clue or if it is filled without matching the clue
+ * Listeners are kept when a new grid is loaded
+ */
+public class MoveValidator {
+    private ConstraintsChecker index;
+    private CompactGrid grid;
+
+    //sum, filled cells and repeated digits of every run
+    private int[] sum, filled, repeated;
+    //occurrences[run * 10 + digit] : number of cells of the run holding the digit
+    private int[] occurrences;
+
+    private boolean[] violated;
+    private int violatedRuns;
+    //runs filled with distinct digits matching their clue
+    private int satisfiedRuns;
+    private int emptyCells;
+
+    private final List<MoveListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts validating the moves of a new grid
+     * @param index run index of the grid
+     * @param grid live grid, its values have to be modified through setValue afterwards
+     */
+    public void load(ConstraintsChecker index, CompactGrid grid) {
+        this.index = index;
+        this.grid = grid;
+        int runs = index.getRunCount();
+        sum = new int[runs];
+        filled = new int[runs];
+        repeated = new int[runs];
+        occurrences = new int[runs * 10];
+        violated = new boolean[runs];
+        violatedRuns = 0;
+        satisfiedRuns = 0;
+        emptyCells = 0;
+
+        for (int i = 0; i < grid.getSize(); i++) {
+            byte kind = grid.getKind(i);
+            if (kind != CompactGrid.input && kind != CompactGrid.constant)
+                continue;
+            int val = grid.getValue(i);
+            if (val == 0)
+                emptyCells++;
+            else {
+                add(index.getHorizontalRun(i), val);
+                add(index.getVerticalRun(i), val);
+            }
+        }
+        for (int run = 0; run < runs; run++) {
+            violated[run] = isViolated(run);
+            if (violated[run])
+                violatedRuns++;
+            if (isSatisfied(run))
+                satisfiedRuns++;
+        }
+    }
+
+    /**
+     * Changes the value of an input cell, updates its runs and notifies the listeners
+     * @param row vertical position
+     * @param column horizontal position
+     * @param value new value (0 to empty the cell)
+     */
+    public void setValue(int row, int column, int value) {
+        int position = grid.position(row, column);
+        int previous = grid.getValue(position);
+        if (previous == value)
+            return;
+        int horizontal = index.getHorizontalRun(position), vertical = index.getVerticalRun(position);
+        forget(horizontal);
+        forget(vertical);
+
+        if (previous == 0)
+            emptyCells--;
+        else {
+            remove(horizontal, previous);
+            remove(vertical, previous);
+        }
+        if (value == 0)
+            emptyCells++;
+        else {
+            add(horizontal, value);
+            add(vertical, value);
+        }
+        grid.setValue(position, value);
+
+        record(horizontal);
+        record(vertical);
+
+        MoveEvent event = new MoveEvent(row, column, previous, value, isConsistent(position), isSolved(), emptyCells);
+        for (MoveListener listener : listeners)
+            listener.moveApplied(event);
+    }
+
+    private void add(int run, int digit) {
+        if (run == -1)
+            return;
+        sum[run] += digit;
+        filled[run]++;
+        if (occurrences[run * 10 + digit]++ > 0)
+            repeated[run]++;
+    }
+
+    private void remove(int run, int digit) {
+        if (run == -1)
+            return;
+        sum[run] -= digit;
+        filled[run]--;
+        if (--occurrences[run * 10 + digit] > 0)
+            repeated[run]--;
+    }
+
+    /**
+     * Removes the contribution of a run to the counters before it changes
+     */
+    private void forget(int run) {
+        if (run == -1)
+            return;
+        if (violated[run])
+            violatedRuns--;
+        if (isSatisfied(run))
+            satisfiedRuns--;
+    }
+
+    /**
+     * Adds the contribution of a run to the counters after it changed
+     */
+    private void record(int run) {
+        if (run == -1)
+            return;
+        violated[run] = isViolated(run);
+        if (violated[run])
+            violatedRuns++;
+        if (isSatisfied(run))
+            satisfiedRuns++;
+    }
+
+    private boolean isViolated(int run) {
+        int clue = index.getRunSum(run);
+        return repeated[run] > 0 || sum[run] > clue || (filled[run] == index.getRunLength(run) && sum[run] != clue);
+    }
+
+    private boolean isSatisfied(int run) {
+        return repeated[run] == 0 && filled[run] == index.getRunLength(run) && sum[run] == index.getRunSum(run);
+    }
+
+    /**
+     * @param position position of an input cell
+     * @return true if none of the runs of the position is violated
+     */
+    public boolean isConsistent(int position) {
+        return !runViolated(index.getHorizontalRun(position)) && !runViolated(index.getVerticalRun(position));
+    }
+
+    /**
+     * @param run run to check (-1 if none)
+     * @return true if the run exists and is violated
+     */
+    private boolean runViolated(int run) {
+        return run != -1 && violated[run];
+    }
+
+    /**
+     * @param position position of an input cell
+     * @return true if the horizontal run of the position is violated
+     */
+    public boolean isHorizontalViolated(int position) {
+        return runViolated(index.getHorizontalRun(position));
+    }
+
+    /**
+     * @param position position of an input cell
+     * @return true if the vertical run of the position is violated
+     */
+    public boolean isVerticalViolated(int position) {
+        return runViolated(index.getVerticalRun(position));
+    }
+
+    public boolean isRunViolated(int run) {
+        return violated[run];
+    }
+
+    public int getViolatedRuns() {
+        return violatedRuns;
+    }
+
+    public int getEmptyCells() {
+        return emptyCells;
+    }
+
+    /**
+     * @return true if every run is filled with distinct digits matching its clue and no input cell is empty
+     */
+    public boolean isSolved() {
+        return emptyCells == 0 && satisfiedRuns == index.getRunCount();
+    }
+
+    public void addMoveListener(MoveListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeMoveListener(MoveListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,280 @@
+package algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel version of the propagation solver
+ * The first levels of the search tree are split into fork/join tasks, each of them working on its own copy of the
+ * domains, and the subtrees below are searched sequentially. As soon as one task finds a solution the others stop.
+ * On grids with several solutions, the solution found isn't necessarily the one found by the sequential engines
+ */
+public class ParallelSolver {
+    //number of levels of the search tree split into tasks by default
+    public static final int defaultSplitDepth = 4;
+
+    private final ConstraintsChecker index;
+    private final BranchingStrategy branching;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    //metrics of the search shared by all the tasks (null when they aren't collected)
+    private SolverStatistics statistics = null;
+    //when set to true by another thread, every task gives up as soon as possible
+    private AtomicBoolean cancelled = null;
+
+    public ParallelSolver(ConstraintsChecker index, BranchingStrategy branching) {
+        this(index, branching, ForkJoinPool.commonPool(), defaultSplitDepth);
+    }
+
+    /**
+     * @param index run index of the grids to solve
+     * @param branching order in which cells and digits are guessed
+     * @param pool pool running the tasks
+     * @param splitDepth number of levels of the search tree split into tasks
+     */
+    public ParallelSolver(ConstraintsChecker index, BranchingStrategy branching, ForkJoinPool pool, int splitDepth) {
+        this.index = index;
+        this.branching = branching;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Starts or stops collecting metrics, every task collects its own and adds them once it is done
+     * @param statistics metrics to update during the search (null to stop collecting them)
+     */
+    public void setStatistics(SolverStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Lets another thread stop the search
+     * a cancelled search returns false as if there were no solution
+     * @param cancelled flag checked by every task at every node (null to never stop)
+     */
+    public void setCancellation(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    private boolean isCancelled() {
+        return cancelled != null && cancelled.get();
+    }
+
+    /**
+     * Solves the grid passed as parameter, input cells already holding a value are kept as they are
+     * @param grid grid to solve, filled with the solution if there is one
+     * @return true if the solution has been found and saved into grid / false if there is no solution
+     */
+    public boolean solve(CompactGrid grid) {
+        PropagationSolver root = new PropagationSolver(index, branching);
+        root.setStatistics(statistics);
+        if (!root.initialize(grid))
+            return false;
+        int[] domains = root.getDomains();
+        //components are independent : they are solved one after the other, each one in parallel
+        for (int component = 0; component < index.getComponentCount(); component++) {
+            domains = pool.invoke(new SearchTask(component, domains, 0, new AtomicBoolean(false)));
+            if (domains == null)
+                return false;
+        }
+        root.restore(domains);
+        root.fill(grid);
+        return true;
+    }
+
+    /**
+     * Counts the solutions of the grid passed as parameter, stopping as soon as the limit is reached
+     * input cells already holding a value are kept as they are
+     * @param grid grid to count the solutions of (left unchanged)
+     * @param limit maximum number of solutions to look for (2 is enough to know whether the solution is unique)
+     * @return number of solutions, at most limit
+     */
+    public long countSolutions(CompactGrid grid, long limit) {
+        PropagationSolver root = new PropagationSolver(index, branching);
+        root.setStatistics(statistics);
+        if (!root.initialize(grid))
+            return 0;
+        int[] domains = root.getDomains();
+        //components are independent : the number of solutions is the product of their numbers of solutions
+        long total = 1;
+        for (int component = 0; component < index.getComponentCount(); component++) {
+            AtomicLong found = new AtomicLong();
+            pool.invoke(new CountTask(component, domains, 0, limit, found, new AtomicBoolean(false)));
+            long count = Math.min(limit, found.get());
+            if (count == 0)
+                return 0;
+            total = Math.min(limit, total * count);
+        }
+        return total;
+    }
+
+    /**
+     * Counting of the solutions of the subtree reached after a sequence of guesses
+     * solutions are added to a counter shared by all the tasks of the component
+     */
+    private class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int component;
+        private final int[] domains;
+        private final int depth;
+        private final long limit;
+        private final AtomicLong found;
+        private final AtomicBoolean limitReached;
+
+        /**
+         * @param component independent part of the grid being counted
+         * @param domains domains after the guesses leading to this subtree and their propagation
+         * @param depth number of guesses leading to this subtree
+         * @param limit maximum number of solutions to look for
+         * @param found number of solutions found so far by the tasks of the component
+         * @param limitReached set once the tasks of the component found enough solutions
+         */
+        CountTask(int component, int[] domains, int depth, long limit, AtomicLong found, AtomicBoolean limitReached) {
+            this.component = component;
+            this.domains = domains;
+            this.depth = depth;
+            this.limit = limit;
+            this.found = found;
+            this.limitReached = limitReached;
+        }
+
+        @Override
+        protected void compute() {
+            if (limitReached.get() || isCancelled())
+                return;
+            SolverStatistics local = statistics == null ? null : new SolverStatistics();
+            explore(local);
+            if (local != null)
+                statistics.add(local);
+        }
+
+        /**
+         * @param local metrics of this task (null if they aren't collected)
+         */
+        private void explore(SolverStatistics local) {
+            PropagationSolver solver = new PropagationSolver(index, branching);
+            solver.restore(domains);
+            solver.setCancellation(cancelled, limitReached);
+            solver.setStatistics(local);
+            solver.setDepth(depth);
+
+            int position = solver.selectPosition(component);
+            //deep enough (or nothing left to guess) : the rest of the subtree is counted sequentially, only looking
+            //for the solutions still missing
+            if (depth >= splitDepth || position == -1) {
+                long remaining = limit - found.get();
+                if (remaining <= 0) {
+                    limitReached.set(true);
+                    return;
+                }
+                long count = solver.count(component, remaining);
+                if (count > 0 && found.addAndGet(count) >= limit)
+                    limitReached.set(true);
+                return;
+            }
+
+            //one subtask per candidate of the position
+            List<CountTask> subtasks = new ArrayList<>();
+            for (int candidates = domains[position]; candidates != 0; candidates &= candidates - 1) {
+                solver.restore(domains);
+                if (local != null)
+                    local.node(depth + 1);
+                if (solver.tryDigit(position, candidates & -candidates))
+                    subtasks.add(new CountTask(component, solver.getDomains(), depth + 1, limit, found, limitReached));
+                else if (local != null)
+                    local.backtrack();
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    /**
+     * Search of the subtree reached after a sequence of guesses
+     * returns the domains of the solution or null if there is none in the subtree
+     */
+    private class SearchTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int component;
+        private final int[] domains;
+        private final int depth;
+        private final AtomicBoolean found;
+
+        /**
+         * @param component independent part of the grid being solved
+         * @param domains domains after the guesses leading to this subtree and their propagation
+         * @param depth number of guesses leading to this subtree
+         * @param found set once a task of the component found a solution
+         */
+        SearchTask(int component, int[] domains, int depth, AtomicBoolean found) {
+            this.component = component;
+            this.domains = domains;
+            this.depth = depth;
+            this.found = found;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (found.get() || isCancelled())
+                return null;
+            SolverStatistics local = statistics == null ? null : new SolverStatistics();
+            int[] solution = explore(local);
+            if (local != null)
+                statistics.add(local);
+            return solution;
+        }
+
+        /**
+         * @param local metrics of this task (null if they aren't collected)
+         * @return domains of the solution or null if there is none in the subtree
+         */
+        private int[] explore(SolverStatistics local) {
+            PropagationSolver solver = new PropagationSolver(index, branching);
+            solver.restore(domains);
+            solver.setCancellation(cancelled, found);
+            solver.setStatistics(local);
+            solver.setDepth(depth);
+
+            //deep enough : the rest of the subtree is searched sequentially
+            if (depth >= splitDepth) {
+                if (solver.search(component) && found.compareAndSet(false, true))
+                    return solver.getDomains();
+                return null;
+            }
+
+            int position = solver.selectPosition(component);
+            if (position == -1) {
+                found.set(true);
+                return domains;
+            }
+
+            //one subtask per candidate of the position
+            List<SearchTask> subtasks = new ArrayList<>();
+            long frequencies = branching == BranchingStrategy.mostConstrained ? solver.getFrequencies(position) : 0;
+            for (int candidates = domains[position]; candidates != 0; ) {
+                int digit = CombinationTable.digitMask(CombinationTable.mostFrequent(frequencies, candidates));
+                candidates &= ~digit;
+                solver.restore(domains);
+                if (local != null)
+                    local.node(depth + 1);
+                if (solver.tryDigit(position, digit))
+                    subtasks.add(new SearchTask(component, solver.getDomains(), depth + 1, found));
+                else if (local != null)
+                    local.backtrack();
+            }
+            for (SearchTask subtask : invokeAll(subtasks)) {
+                int[] solution = subtask.join();
+                if (solution != null)
+                    return solution;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kakuro solver based on constraint propagation
+ * Every position holds a 9-bit domain of candidates, narrowed run by run using the clues, the run lengths and the
+ * fact that digits can't repeat until nothing changes anymore. The search only branches when propagation stalls and
+ * undoes the domain changes of a wrong guess thanks to a trail.
+ * An instance keeps its own working memory : it can be reused for any number of grids sharing its run index,
+ * but only by one thread at a time
+ */
+public class PropagationSolver {
+    private final ConstraintsChecker index;
+    private final BranchingStrategy branching;
+    private final int size;
+
+    //candidates of every position (a single bit once the value is known)
+    private final int[] domain;
+
+    //trail of domain changes : position followed by the domain it had before the change
+    private int[] trail;
+    private int trailSize;
+
+    //runs waiting to be propagated
+    private final int[] queue;
+    private final boolean[] queued;
+    private int queueHead, queueSize;
+
+    //cells of the run being narrowed and matching between them and the digits of a combination
+    private final int[] runCells = new int[CombinationTable.maxLength];
+    private final RunMatching matching;
+
+    //when one of them is set to true by another thread, the search gives up as soon as possible
+    private AtomicBoolean cancelled = null, stopped = null;
+
+    //metrics of the search (null when they aren't collected) and number of nested guesses
+    private SolverStatistics statistics = null;
+    private int depth;
+
+    public PropagationSolver(ConstraintsChecker index) {
+        this(index, BranchingStrategy.rowMajor);
+    }
+
+    public PropagationSolver(ConstraintsChecker index, BranchingStrategy branching) {
+        this.index = index;
+        this.branching = branching;
+        size = index.getSize();
+        domain = new int[size];
+        trail = new int[2 * size * CombinationTable.maxLength + 2];
+        queue = new int[index.getRunCount()];
+        queued = new boolean[index.getRunCount()];
+        matching = new RunMatching(domain);
+    }
+
+    /**
+     * Solves the grid passed as parameter, input cells already holding a value are kept as they are
+     * @param grid grid to solve, filled with the solution if there is one
+     * @return true if the solution has been found and saved into grid / false if there is no solution
+     */
+    public boolean solve(CompactGrid grid) {
+        if (!initialize(grid))
+            return false;
+        //components don't share any run : each of them is solved on its own, without ever coming back to it
+        for (int component = 0; component < index.getComponentCount(); component++) {
+            if (!search(component))
+                return false;
+        }
+        fill(grid);
+        return true;
+    }
+
+    /**
+     * Counts the solutions of the grid passed as parameter, stopping as soon as the limit is reached
+     * input cells already holding a value are kept as they are
+     * @param grid grid to count the solutions of (left unchanged)
+     * @param limit maximum number of solutions to look for (2 is enough to know whether the solution is unique)
+     * @return number of solutions, at most limit
+     */
+    public long countSolutions(CompactGrid grid, long limit) {
+        if (!initialize(grid))
+            return 0;
+        //components are independent : the number of solutions is the product of their numbers of solutions
+        long total = 1;
+        for (int component = 0; component < index.getComponentCount(); component++) {
+            long count = count(component, limit);
+            if (count == 0)
+                return 0;
+            total = Math.min(limit, total * count);
+        }
+        return total;
+    }
+
+    /**
+     * Counts the solutions of a component from the current domains, which are restored afterwards
+     * @param component independent part of the grid being counted
+     * @param limit maximum number of solutions to look for
+     * @return number of solutions found, at most limit
+     */
+    long count(int component, long limit) {
+        if (isCancelled())
+            return 0;
+        int position = selectPosition(component);
+        if (position == -1)
+            return 1;
+
+        long total = 0;
+        depth++;
+        for (int candidates = domain[position]; candidates != 0 && total < limit; candidates &= candidates - 1) {
+            int mark = trailSize;
+            if (statistics != null)
+                statistics.node(depth);
+            if (tryDigit(position, candidates & -candidates))
+                total += count(component, limit - total);
+            undo(mark);
+            if (statistics != null)
+                statistics.backtrack();
+        }
+        depth--;
+        return total;
+    }
+
+    /**
+     * Lets another thread stop the search
+     * a cancelled search returns false as if there were no solution
+     * @param cancelled flag checked at every node of the search (null to never stop)
+     */
+    public void setCancellation(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Lets another thread stop the search for two reasons, e.g. the whole solve being cancelled or another task of the
+     * same solve having found a solution
+     * @param cancelled first flag checked at every node (null if none)
+     * @param stopped second flag checked at every node (null if none)
+     */
+    void setCancellation(AtomicBoolean cancelled, AtomicBoolean stopped) {
+        this.cancelled = cancelled;
+        this.stopped = stopped;
+    }
+
+    private boolean isCancelled() {
+        return (cancelled != null && cancelled.get()) || (stopped != null && stopped.get());
+    }
+
+    /**
+     * Starts or stops collecting metrics
+     * @param statistics metrics to update during the search (null to stop collecting them)
+     */
+    public void setStatistics(SolverStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param depth number of guesses already made before the search starts (when continuing another solver's search)
+     */
+    void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Copies the values of the input cells once every domain has been reduced to a single value
+     * @param grid grid to fill
+     */
+    void fill(CompactGrid grid) {
+        for (int i = 0; i < size; i++) {
+            if (grid.getKind(i) == CompactGrid.input)
+                grid.setValue(i, Integer.numberOfTrailingZeros(domain[i]) + 1);
+        }
+    }
+
+    /**
+     * @return copy of the current domains, to continue the search from this point in another solver
+     */
+    int[] getDomains() {
+        return domain.clone();
+    }
+
+    /**
+     * Replaces the current domains by domains obtained from a solver of the same grid after propagation
+     * @param domains domains to continue from
+     */
+    void restore(int[] domains) {
+        System.arraycopy(domains, 0, domain, 0, size);
+        trailSize = 0;
+        undo(0);
+    }
+
+    int getDomain(int position) {
+        return domain[position];
+    }
+
+    /**
+     * Places a digit and propagates it, the domains are left as they are even if it fails
+     * @param position position to fill
+     * @param digit mask of the digit to place
+     * @return false if the digit leads to a contradiction
+     */
+    boolean tryDigit(int position, int digit) {
+        return assign(position, digit) && propagate();
+    }
+
+    /**
+     * Resets the domains with the values of the grid and propagates them
+     * @param grid grid being solved
+     * @return false if the grid is already inconsistent
+     */
+    boolean initialize(CompactGrid grid) {
+        trailSize = 0;
+        depth = 0;
+        queueHead = 0;
+        queueSize = 0;
+        for (int i = 0; i < size; i++) {
+            byte kind = grid.getKind(i);
+            if (kind == CompactGrid.input || kind == CompactGrid.constant) {
+                int val = grid.getValue(i);
+                domain[i] = val == 0 ? CombinationTable.fullMask : CombinationTable.digitMask(val);
+            } else {
+                domain[i] = 0;
+            }
+        }
+        for (int run = 0; run < index.getRunCount(); run++) {
+            queued[run] = false;
+            enqueue(run);
+        }
+        return propagate();
+    }
+
+    /**
+     * Depth first search, branching on a position of a component that still has several candidates
+     * @param component independent part of the grid being solved
+     * @return true if every domain of the component has been reduced to a single value
+     */
+    boolean search(int component) {
+        if (isCancelled())
+            return false;
+        int position = selectPosition(component);
+        //propagation left a single value everywhere
+        if (position == -1)
+            return true;
+
+        long frequencies = branching == BranchingStrategy.mostConstrained ? getFrequencies(position) : 0;
+        depth++;
+        for (int candidates = domain[position]; candidates != 0; ) {
+            int digit = CombinationTable.digitMask(CombinationTable.mostFrequent(frequencies, candidates));
+            candidates &= ~digit;
+            int mark = trailSize;
+            if (statistics != null)
+                statistics.node(depth);
+            //try number
+            if (assign(position, digit) && propagate() && search(component)) {
+                depth--;
+                return true;
+            }
+            undo(mark);
+            if (statistics != null)
+                statistics.backtrack();
+        }
+        depth--;
+        return false;
+    }
+
+    /**
+     * Picks the position to branch on according to the branching strategy
+     * @param component independent part of the grid being solved
+     * @return position of the component with several candidates left (-1 if there aren't any)
+     */
+    int selectPosition(int component) {
+        int best = -1, bestCount = 10, bestDegree = -1;
+        for (int i = 0; i < size; i++) {
+            int count = Integer.bitCount(domain[i]);
+            if (count < 2 || index.getComponent(i) != component)
+                continue;
+            if (branching == BranchingStrategy.rowMajor)
+                return i;
+            if (count > bestCount)
+                continue;
+            int degree = openCells(index.getHorizontalRun(i)) + openCells(index.getVerticalRun(i));
+            if (count < bestCount || degree > bestDegree) {
+                best = i;
+                bestCount = count;
+                bestDegree = degree;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param run subsection (-1 if none)
+     * @return number of cells of the run that still have several candidates
+     */
+    private int openCells(int run) {
+        if (run == -1)
+            return 0;
+        int open = 0;
+        for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+            if (Integer.bitCount(domain[i]) > 1)
+                open++;
+        }
+        return open;
+    }
+
+    /**
+     * Counts, for every digit, the combinations of the runs of a position that contain the digits known in the run
+     * @param position current position
+     * @return packed counts (see CombinationTable.getFrequencies)
+     */
+    long getFrequencies(int position) {
+        return runFrequencies(index.getHorizontalRun(position)) + runFrequencies(index.getVerticalRun(position));
+    }
+
+    private long runFrequencies(int run) {
+        if (run == -1)
+            return 0;
+        int known = 0;
+        for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+            if (Integer.bitCount(domain[i]) == 1)
+                known |= domain[i];
+        }
+        return CombinationTable.getFrequencies(index.getRunSum(run), index.getRunLength(run), known);
+    }
+
+    /**
+     * Restricts the domain of a position, keeping track of the previous domain
+     * and scheduling the propagation of its runs
+     * @param position position to restrict
+     * @param newDomain new candidates of the position
+     * @return false if no candidates are left
+     */
+    private boolean assign(int position, int newDomain) {
+        if (newDomain == domain[position])
+            return true;
+        if (trailSize + 2 > trail.length)
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        trail[trailSize++] = position;
+        trail[trailSize++] = domain[position];
+        domain[position] = newDomain;
+        if (newDomain == 0)
+            return false;
+        enqueue(index.getHorizontalRun(position));
+        enqueue(index.getVerticalRun(position));
+        return true;
+    }
+
+    /**
+     * Restores every domain changed since the trail had the given size
+     * @param mark size of the trail to go back to
+     */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int previous = trail[--trailSize];
+            domain[trail[--trailSize]] = previous;
+        }
+        //runs left in the queue belong to the abandoned branch
+        while (queueSize > 0) {
+            queued[queue[queueHead]] = false;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+        }
+    }
+
+    private void enqueue(int run) {
+        if (run == -1 || queued[run])
+            return;
+        queued[run] = true;
+        queue[(queueHead + queueSize) % queue.length] = run;
+        queueSize++;
+    }
+
+    /**
+     * Narrows the runs waiting in the queue until none of the domains change anymore
+     * @return false if a contradiction was found
+     */
+    private boolean propagate() {
+        while (queueSize > 0) {
+            int run = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            queued[run] = false;
+            if (statistics != null)
+                statistics.propagationStep();
+            if (!propagateRun(run)) {
+                if (statistics != null)
+                    statistics.prune(failureReason(run));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classifies a contradiction found while narrowing a run, using the values known in the run
+     * @param run subsection that can't be completed anymore
+     * @return duplicate if a value is known twice, sumOverflow if the known values exceed the clue,
+     * endOfRunMismatch otherwise (no combination of digits completes the clue)
+     */
+    private PruneReason failureReason(int run) {
+        int known = 0, sum = 0;
+        for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+            int d = domain[i];
+            if (d == 0 || (d & (d - 1)) != 0)
+                continue;
+            if ((known & d) != 0)
+                return PruneReason.duplicate;
+            known |= d;
+            sum += Integer.numberOfTrailingZeros(d) + 1;
+        }
+        return sum > index.getRunSum(run) ? PruneReason.sumOverflow : PruneReason.endOfRunMismatch;
+    }
+
+    /**
+     * Keeps in every cell of a run only the digits of the combinations that can still be placed in it
+     * removes the digits already known elsewhere in the run
+     * and places a digit required by every combination if only one cell can still hold it
+     * @param run subsection to narrow
+     * @return false if the run can't be completed anymore
+     */
+    private boolean propagateRun(int run) {
+        int length = index.getRunLength(run);
+        //a clue without any cell after it doesn't constrain anything, a run longer than 9 cells can't be filled
+        if (length == 0)
+            return true;
+        if (length > CombinationTable.maxLength)
+            return false;
+        int required = 0, union = 0;
+        for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+            runCells[n] = i;
+            int d = domain[i];
+            union |= d;
+            if ((d & (d - 1)) == 0) {
+                //a value known twice in the same run
+                if ((required & d) != 0)
+                    return false;
+                required |= d;
+            }
+        }
+
+        int allowed = 0, common = CombinationTable.fullMask;
+        for (int combination : CombinationTable.getCombinations(index.getRunSum(run), length)) {
+            if ((combination & required) != required || (combination & ~union) != 0)
+                continue;
+            if (!matching.hasMatching(combination, runCells, length))
+                continue;
+            allowed |= combination;
+            common &= combination;
+        }
+        if (allowed == 0)
+            return false;
+
+        for (int n = 0; n < length; n++) {
+            int d = domain[runCells[n]];
+            int narrowed = d & allowed;
+            //known values can't be used by the other cells of the run
+            if ((d & (d - 1)) != 0)
+                narrowed &= ~required;
+            if (!assign(runCells[n], narrowed))
+                return false;
+        }
+
+        //digits present in every combination must be placed somewhere in the run
+        for (int digits = common & ~required; digits != 0; digits &= digits - 1) {
+            int digit = digits & -digits;
+            int cell = -1, count = 0;
+            for (int n = 0; n < length; n++) {
+                if ((domain[runCells[n]] & digit) != 0) {
+                    cell = runCells[n];
+                    count++;
+                }
+            }
+            if (count == 0)
+                return false;
+            if (count == 1 && !assign(cell, digit))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package algorithm;
+
+/**
+ * Reason why a branch of the search was cut
+ * duplicate : a digit already used in one of the runs
+ * sumOverflow : the digits of a run exceed its clue
+ * endOfRunMismatch : the run can't be completed so that its sum matches the clue
+ */
+public enum PruneReason {
+    duplicate,sumOverflow,endOfRunMismatch
+}
@@ -0,0 +1,62 @@
+package algorithm;
+
+/**
+ * Bipartite matching between the cells of a run and the digits of a combination
+ * A combination can only fill a run if every cell receives a distinct digit of the combination among its candidates
+ * Keeps its own scratch arrays : an instance is used by one thread at a time
+ */
+class RunMatching {
+    //candidates of every position, shared with the owner of the instance
+    private final int[] domain;
+
+    private int[] runCells;
+    private final int[] digitOwner = new int[CombinationTable.maxLength];
+    private int visitedDigits;
+
+    /**
+     * @param domain candidates of every position, read when looking for a matching
+     */
+    RunMatching(int[] domain) {
+        this.domain = domain;
+    }
+
+    /**
+     * Checks if every cell of the run can receive a distinct digit of the combination
+     * @param combination digits to distribute
+     * @param cells positions of the cells of the run
+     * @param length number of cells of the run
+     * @return true if a perfect matching exists
+     */
+    boolean hasMatching(int combination, int[] cells, int length) {
+        runCells = cells;
+        for (int d = 0; d < CombinationTable.maxLength; d++)
+            digitOwner[d] = -1;
+        for (int n = 0; n < length; n++) {
+            visitedDigits = 0;
+            if (!augment(n, combination))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Looks for an augmenting path starting from a cell of the run
+     * @param n index of the cell in runCells
+     * @param combination digits to distribute
+     * @return true if the cell received a digit
+     */
+    private boolean augment(int n, int combination) {
+        int options = domain[runCells[n]] & combination;
+        for (; options != 0; options &= options - 1) {
+            int d = Integer.numberOfTrailingZeros(options);
+            if ((visitedDigits & (1 << d)) != 0)
+                continue;
+            visitedDigits |= 1 << d;
+            if (digitOwner[d] == -1 || augment(digitOwner[d], combination)) {
+                digitOwner[d] = n;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,236 @@
+package algorithm;
+
+/**
+ * Running sum, used-digit mask and number of filled cells of every run of a grid during the search
+ * Placing or removing a digit only updates the two runs of its position, so checks don't need to rescan the runs
+ * Digits placed through this class are assumed to be candidates (never repeated within a run)
+ * The state also keeps a Zobrist-style hash of the partial solution : the used-digit masks of the runs that still
+ * have empty cells (the sums follow from them) and the positions filled since the state was created. Two states with
+ * the same hash lead to the same subproblem, whatever the order in which their digits were placed. The hash is only
+ * maintained if it was asked for when the state was created
+ */
+public class RunState {
+    private final ConstraintsChecker index;
+
+    private final int[] sum, used, filled;
+
+    //runs whose initial values (constants) already repeat a digit or exceed the clue
+    private final boolean[] blocked;
+
+    private final boolean hashing;
+    //random keys of every digit of every run (run * 9 + digit - 1) and of every position
+    private final long[] digitKeys, positionKeys;
+    //xor of the keys of the digits used in every run
+    private final long[] runHash;
+    private long hash;
+
+    /**
+     * Initializes the state of every run with the values currently placed in the grid, without maintaining the hash
+     * @param index run index of the grid
+     * @param grid grid being solved
+     */
+    public RunState(ConstraintsChecker index, CompactGrid grid) {
+        this(index, grid, false);
+    }
+
+    /**
+     * Initializes the state of every run with the values currently placed in the grid
+     * @param index run index of the grid
+     * @param grid grid being solved
+     * @param hashing true to maintain the hash of the partial solution
+     */
+    public RunState(ConstraintsChecker index, CompactGrid grid, boolean hashing) {
+        this.index = index;
+        this.hashing = hashing;
+        int runs = index.getRunCount();
+        sum = new int[runs];
+        used = new int[runs];
+        filled = new int[runs];
+        blocked = new boolean[runs];
+        digitKeys = new long[hashing ? runs * CombinationTable.maxLength : 0];
+        for (int n = 0; n < digitKeys.length; n++)
+            digitKeys[n] = mix(n);
+        positionKeys = new long[hashing ? index.getSize() : 0];
+        for (int n = 0; n < positionKeys.length; n++)
+            positionKeys[n] = mix(digitKeys.length + n);
+        runHash = new long[hashing ? runs : 0];
+
+        for (int run = 0; run < runs; run++) {
+            for (int i = index.getRunStart(run), n = 0; n < index.getRunLength(run); i += index.getRunStep(run), n++) {
+                int val = grid.getValue(i);
+                if (val == 0)
+                    continue;
+                int mask = CombinationTable.digitMask(val);
+                if ((used[run] & mask) != 0)
+                    blocked[run] = true;
+                sum[run] += val;
+                used[run] |= mask;
+                filled[run]++;
+                if (hashing)
+                    runHash[run] ^= digitKeys[run * CombinationTable.maxLength + val - 1];
+            }
+            if (sum[run] > index.getRunSum(run))
+                blocked[run] = true;
+            if (hashing && isOpen(run))
+                hash ^= runHash[run];
+        }
+    }
+
+    /**
+     * Copies the state of another search
+     * @param other state to copy
+     */
+    public RunState(RunState other) {
+        index = other.index;
+        sum = other.sum.clone();
+        used = other.used.clone();
+        filled = other.filled.clone();
+        blocked = other.blocked;
+        hashing = other.hashing;
+        digitKeys = other.digitKeys;
+        positionKeys = other.positionKeys;
+        runHash = other.runHash.clone();
+        hash = other.hash;
+    }
+
+    /**
+     * Adds a digit to the runs of a position
+     * @param position position of the digit
+     * @param digit value between 1 and 9
+     */
+    public void place(int position, int digit) {
+        if (hashing) {
+            update(index.getHorizontalRun(position), digit, 1);
+            update(index.getVerticalRun(position), digit, 1);
+            hash ^= positionKeys[position];
+            return;
+        }
+        int mask = CombinationTable.digitMask(digit);
+        int run = index.getHorizontalRun(position);
+        if (run != -1) {
+            sum[run] += digit;
+            used[run] |= mask;
+            filled[run]++;
+        }
+        run = index.getVerticalRun(position);
+        if (run != -1) {
+            sum[run] += digit;
+            used[run] |= mask;
+            filled[run]++;
+        }
+    }
+
+    /**
+     * Removes a digit previously placed from the runs of a position
+     * @param position position of the digit
+     * @param digit value between 1 and 9
+     */
+    public void remove(int position, int digit) {
+        if (hashing) {
+            update(index.getHorizontalRun(position), digit, -1);
+            update(index.getVerticalRun(position), digit, -1);
+            hash ^= positionKeys[position];
+            return;
+        }
+        int mask = CombinationTable.digitMask(digit);
+        int run = index.getHorizontalRun(position);
+        if (run != -1) {
+            sum[run] -= digit;
+            used[run] &= ~mask;
+            filled[run]--;
+        }
+        run = index.getVerticalRun(position);
+        if (run != -1) {
+            sum[run] -= digit;
+            used[run] &= ~mask;
+            filled[run]--;
+        }
+    }
+
+    /**
+     * Adds or removes a digit of a run
+     * the digits of a filled run don't take part in the hash anymore, as it doesn't constrain the rest of the grid
+     * @param run subsection (-1 if none)
+     * @param digit value between 1 and 9
+     * @param direction 1 to add the digit, -1 to remove it
+     */
+    private void update(int run, int digit, int direction) {
+        if (run == -1)
+            return;
+        if (isOpen(run))
+            hash ^= runHash[run];
+        sum[run] += direction * digit;
+        used[run] ^= CombinationTable.digitMask(digit);
+        filled[run] += direction;
+        runHash[run] ^= digitKeys[run * CombinationTable.maxLength + digit - 1];
+        if (isOpen(run))
+            hash ^= runHash[run];
+    }
+
+    private boolean isOpen(int run) {
+        return filled[run] < index.getRunLength(run);
+    }
+
+    /**
+     * Bijective mixing of 64 bits (SplitMix64 finalizer) : close inputs give unrelated outputs
+     * @param x value to mix
+     * @return mixed value
+     */
+    static long mix(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * @return hash of the partial solution (see the description of the class), 0 if it isn't maintained
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Retrieves the digits allowed in a run given the digits already placed in it
+     * @param run subsection (-1 if the position isn't part of any)
+     * @return mask of the digits allowed
+     */
+    public int getRunCandidates(int run) {
+        if (run == -1)
+            return CombinationTable.fullMask;
+        if (blocked[run])
+            return 0;
+        return CombinationTable.getCandidates(index.getRunSum(run), index.getRunLength(run), used[run]);
+    }
+
+    /**
+     * Retrieves the digits that can be placed at an empty position according to both of its runs
+     * @param position current position
+     * @return mask of the digits allowed both horizontally and vertically
+     */
+    public int getCandidates(int position) {
+        return getRunCandidates(index.getHorizontalRun(position)) & getRunCandidates(index.getVerticalRun(position));
+    }
+
+    /**
+     * @param run subsection
+     * @return true if the run doesn't repeat any digit, doesn't exceed its clue and matches it once filled
+     */
+    public boolean isConsistent(int run) {
+        if (blocked[run] || sum[run] > index.getRunSum(run))
+            return false;
+        return filled[run] < index.getRunLength(run) || sum[run] == index.getRunSum(run);
+    }
+
+    public int getSum(int run) {
+        return sum[run];
+    }
+
+    public int getUsed(int run) {
+        return used[run];
+    }
+
+    public int getFilled(int run) {
+        return filled[run];
+    }
+}
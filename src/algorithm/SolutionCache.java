@@ -0,0 +1,142 @@
+package algorithm;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of solutions keyed by grid fingerprints (see GridFingerprint)
+ * Once full, the least recently used solution is dropped. The cache can be backed by a file : it is loaded when the
+ * cache is created and written back by save. A single instance can be shared by several solvers and threads
+ */
+public class SolutionCache {
+    public static final int defaultCapacity = 64;
+    //first bytes of a cache file
+    private static final int magic = 0x4B4B4331;
+    //largest solution accepted when loading a file
+    private static final int maxDigits = 1 << 20;
+
+    private final int capacity;
+    private final File file;
+    private final LinkedHashMap<String, byte[]> entries;
+    //true if entries changed since the file was written
+    private boolean modified = false;
+
+    /**
+     * Creates a cache kept in memory only
+     * @param capacity maximum number of solutions
+     */
+    public SolutionCache(int capacity) {
+        this.capacity = capacity;
+        this.file = null;
+        entries = createEntries();
+    }
+
+    /**
+     * Creates a cache backed by a file, loading the solutions it already contains
+     * @param capacity maximum number of solutions
+     * @param file cache file (created by save if it doesn't exist)
+     * @throws IOException if the file exists but can't be read
+     */
+    public SolutionCache(int capacity, File file) throws IOException {
+        this.capacity = capacity;
+        this.file = file;
+        entries = createEntries();
+        if (file.exists())
+            load();
+    }
+
+    /**
+     * @return map in access order (the first entry is the least recently used one) dropping its first entry when full
+     */
+    private LinkedHashMap<String, byte[]> createEntries() {
+        return new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != magic)
+                throw new IOException("not a solution cache: " + file);
+            int count = in.readInt();
+            //entries are stored from the least to the most recently used
+            for (int n = 0; n < count; n++) {
+                String key = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > maxDigits)
+                    throw new IOException("corrupted solution cache: " + file);
+                byte[] digits = new byte[length];
+                in.readFully(digits);
+                entries.put(key, digits);
+            }
+        }
+    }
+
+    /**
+     * Writes the solutions into the cache file if they changed, the previous file is replaced at once
+     * does nothing for a cache kept in memory only
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !modified)
+            return;
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(magic);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        modified = false;
+    }
+
+    /**
+     * @param key fingerprint of a grid
+     * @return digits of its solution (see GridFingerprint.extract), null if it isn't cached
+     */
+    public synchronized byte[] get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @param key fingerprint of a grid
+     * @param digits digits of its solution, never modified afterwards
+     */
+    public synchronized void put(String key, byte[] digits) {
+        entries.put(key, digits);
+        modified = true;
+    }
+
+    /**
+     * Forgets a solution, e.g. when it turned out to be wrong
+     * @param key fingerprint of a grid
+     */
+    public synchronized void remove(String key) {
+        if (entries.remove(key) != null)
+            modified = true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        modified = true;
+    }
+}
@@ -0,0 +1,48 @@
+package algorithm;
+
+/**
+ * Checks whether a grid is a valid solution without solving it
+ * A run is satisfied when all of its cells are filled, its digits are distinct (the mask of its digits has as many bits
+ * as the run has cells) and their sum matches the clue. The grid is solved when every run is satisfied and no input
+ * cell is empty, so any valid solution is accepted, not only the one found by the solver.
+ * The moves made on the live grid are checked incrementally by MoveValidator instead
+ */
+public class SolutionVerifier {
+    private SolutionVerifier() {}
+
+    /**
+     * @param index run index of the grid
+     * @param grid grid being verified
+     * @param run run to check
+     * @return true if the run is filled with distinct digits matching its clue
+     */
+    public static boolean isSatisfied(ConstraintsChecker index, CompactGrid grid, int run) {
+        int sum = 0, used = 0, length = index.getRunLength(run);
+        for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+            int val = grid.getValue(i);
+            if (val == 0)
+                return false;
+            sum += val;
+            used |= CombinationTable.digitMask(val);
+        }
+        return sum == index.getRunSum(run) && Integer.bitCount(used) == length;
+    }
+
+    /**
+     * Checks a whole grid at once
+     * @param index run index of the grid
+     * @param grid grid to verify
+     * @return true if the grid is a valid solution
+     */
+    public static boolean isSolution(ConstraintsChecker index, CompactGrid grid) {
+        for (int i = 0; i < grid.getSize(); i++) {
+            if (grid.getKind(i) == CompactGrid.input && grid.getValue(i) == 0)
+                return false;
+        }
+        for (int run = 0; run < index.getRunCount(); run++) {
+            if (!isSatisfied(index, grid, run))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,5 @@
+package algorithm;
+
+public enum SolverEngine {
+    backtracking,propagation,parallel
+}
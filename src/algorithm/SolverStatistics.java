@@ -0,0 +1,106 @@
+package algorithm;
+
+/**
+ * Metrics collected during a solve : nodes visited (digits tried), backtracks (digits undone), maximum depth
+ * (number of nested guesses), prunes by reason, propagation steps (runs narrowed), states found in the transposition
+ * table and wall time
+ * The solvers only collect them when they are given an instance, otherwise the cost is a null check per node
+ * An instance is filled by one thread, the parallel engine merges the statistics of its tasks at the end
+ */
+public class SolverStatistics {
+    private long nodes, backtracks, propagationSteps, transpositionHits;
+    private int maxDepth;
+    private final long[] prunes = new long[PruneReason.values().length];
+    private long startTime, wallTime;
+
+    /**
+     * @param depth number of guesses leading to the node, including its own
+     */
+    void node(int depth) {
+        nodes++;
+        if (depth > maxDepth)
+            maxDepth = depth;
+    }
+
+    void backtrack() {
+        backtracks++;
+    }
+
+    void prune(PruneReason reason) {
+        prunes[reason.ordinal()]++;
+    }
+
+    void propagationStep() {
+        propagationSteps++;
+    }
+
+    void transpositionHit() {
+        transpositionHits++;
+    }
+
+    void start() {
+        startTime = System.nanoTime();
+    }
+
+    void stop() {
+        wallTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Adds the metrics of another part of the same solve (except the wall time)
+     * @param other statistics to add
+     */
+    synchronized void add(SolverStatistics other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        propagationSteps += other.propagationSteps;
+        transpositionHits += other.transpositionHits;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        for (int i = 0; i < prunes.length; i++)
+            prunes[i] += other.prunes[i];
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getPrunes(PruneReason reason) {
+        return prunes[reason.ordinal()];
+    }
+
+    public long getPropagationSteps() {
+        return propagationSteps;
+    }
+
+    /**
+     * @return number of states of the backtracking known to fail thanks to the transposition table
+     */
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    /**
+     * @return duration of the solve in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return "nodes=" + nodes + " backtracks=" + backtracks + " maxDepth=" + maxDepth
+                + " duplicate=" + getPrunes(PruneReason.duplicate)
+                + " sumOverflow=" + getPrunes(PruneReason.sumOverflow)
+                + " endOfRunMismatch=" + getPrunes(PruneReason.endOfRunMismatch)
+                + " propagationSteps=" + propagationSteps + " transpositionHits=" + transpositionHits
+                + " wallTime=" + wallTime / 1000 + "us";
+    }
+}
@@ -0,0 +1,39 @@
+package algorithm;
+
+/**
+ * Reasoning techniques used to rate a grid, from the easiest to the hardest
+ * uniqueCombination : a run whose clue can only be made of one set of digits
+ * intersection : a cell keeps the digits allowed by the combinations of both of its runs
+ * sumRemainder : the rest of a clue, once the known digits are removed, must be made of digits the open cells can hold
+ * hiddenSingle : a digit needed by the run can only go in one of its cells
+ * subset : a combination is dropped when its digits can't be distributed over the cells (naked pairs, triples...)
+ * trial : a digit is removed because placing it leads to a contradiction
+ * search : the grid is finished by guessing, one use per digit tried
+ */
+public enum Technique {
+    uniqueCombination(1, Difficulty.easy), intersection(2, Difficulty.easy), sumRemainder(4, Difficulty.medium),
+    hiddenSingle(6, Difficulty.medium), subset(12, Difficulty.hard), trial(30, Difficulty.expert),
+    search(100, Difficulty.extreme);
+
+    private final int weight;
+    private final Difficulty difficulty;
+
+    Technique(int weight, Difficulty difficulty) {
+        this.weight = weight;
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * @return points added to the score of a grid every time the technique is used
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return level of a grid whose hardest technique is this one
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+}
@@ -0,0 +1,130 @@
+package algorithm;
+
+/**
+ * Fixed-size hash table remembering the partial states of the backtracking search that are known to have no solution
+ * A state is identified by a 64-bit Zobrist-style hash (see RunState.getHash), so two states are only told apart with
+ * a very high probability. The table is made of buckets of two slots : when both are taken, the entry whose subtree
+ * was the cheapest to explore is replaced, and entries left by previous searches are always replaced first
+ * The table starts small, so that easy grids don't pay for the allocation of the whole memory, and doubles whenever a
+ * search stored more failures than it has slots, until it reaches the memory it was given
+ * An instance can be reused for any number of searches (newSearch makes the previous entries stale without clearing
+ * the table) but only by one thread at a time
+ */
+public class TranspositionTable {
+    //memory used by default, in bytes
+    public static final long defaultMemory = 1 << 20;
+    //memory of a slot : key and work
+    private static final int slotBytes = 12;
+    //number of slots allocated at first
+    private static final int initialSlots = 1 << 10;
+
+    //number of slots allowed by the memory of the table
+    private final int maxSlots;
+
+    //key of every slot (0 if empty)
+    private long[] keys;
+    //generation of the search in the 8 highest bits, nodes explored to prove the failure in the others
+    private int[] info;
+    private int bucketMask;
+    //failures stored since the start of the search
+    private int stored = 0;
+
+    private int generation = 0;
+    //mixed into the keys so that the entries of previous searches never match
+    private long salt = 0;
+
+    /**
+     * @param memory maximum number of bytes used by the table (at least 2 slots are allocated)
+     */
+    public TranspositionTable(long memory) {
+        //the arrays are indexed with ints
+        long slots = Math.max(2, Math.min(1 << 30, memory / slotBytes));
+        maxSlots = Integer.highestOneBit((int) slots);
+        allocate(Math.min(initialSlots, maxSlots));
+    }
+
+    private void allocate(int slots) {
+        keys = new long[slots];
+        info = new int[slots];
+        bucketMask = slots / 2 - 1;
+    }
+
+    /**
+     * Doubles the number of slots, keeping the entries of the current search
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldInfo = info;
+        allocate(keys.length * 2);
+        for (int n = 0; n < oldKeys.length; n++) {
+            if (oldKeys[n] == 0 || oldInfo[n] >>> 24 != generation)
+                continue;
+            int slot = bucket(oldKeys[n]);
+            if (keys[slot] != 0)
+                slot++;
+            keys[slot] = oldKeys[n];
+            info[slot] = oldInfo[n];
+        }
+    }
+
+    /**
+     * Forgets the failures stored by the previous search
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+        salt = RunState.mix(salt + 1);
+        stored = 0;
+    }
+
+    /**
+     * @param hash hash of a partial state
+     * @return true if the state is known to have no solution
+     */
+    public boolean isFailed(long hash) {
+        long key = toKey(hash);
+        int slot = bucket(key);
+        return keys[slot] == key || keys[slot + 1] == key;
+    }
+
+    /**
+     * Remembers that a partial state has no solution
+     * @param hash hash of the state
+     * @param work number of nodes explored to prove it
+     */
+    public void storeFailure(long hash, long work) {
+        if (++stored > keys.length && keys.length < maxSlots)
+            grow();
+        long key = toKey(hash);
+        int slot = bucket(key);
+        int stamp = generation << 24 | (int) Math.min(work, 0xFFFFFF);
+        if (keys[slot] != key && keys[slot + 1] != key) {
+            //stale entries first, then the one that was the cheapest to explore
+            boolean firstStale = info[slot] >>> 24 != generation, secondStale = info[slot + 1] >>> 24 != generation;
+            if (!firstStale && (secondStale || (info[slot + 1] & 0xFFFFFF) < (info[slot] & 0xFFFFFF)))
+                slot++;
+        } else if (keys[slot] != key) {
+            slot++;
+        }
+        keys[slot] = key;
+        info[slot] = stamp;
+    }
+
+    private long toKey(long hash) {
+        //0 marks the empty slots
+        return (hash ^ salt) | 1;
+    }
+
+    /**
+     * @return first slot of the bucket of a key
+     */
+    private int bucket(long key) {
+        return ((int) (key >>> 32) & bucketMask) * 2;
+    }
+
+    /**
+     * @return memory currently used by the table in bytes
+     */
+    public long getMemory() {
+        return (long) keys.length * slotBytes;
+    }
+}
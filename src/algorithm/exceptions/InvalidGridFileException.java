@@ -1,7 +1,31 @@
 package algorithm.exceptions;
 
 public class InvalidGridFileException extends Exception {
+    //position of the error in the file (0 if unknown)
+    private final int line, column;
+
     public InvalidGridFileException() {
         super("Invalid Grid File");
+        line = 0;
+        column = 0;
+    }
+
+    /**
+     * @param line line of the error, starting at 1
+     * @param column column of the error, starting at 1
+     * @param message what was expected
+     */
+    public InvalidGridFileException(int line, int column, String message) {
+        super("line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
     }
 }
@@ -0,0 +1,227 @@
+package batch;
+
+import algorithm.KakuroGenerator;
+import algorithm.KakuroLoader;
+import algorithm.cells.Cell;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation of many grids having a single solution, written as .kakuro files named like the bundled grids
+ * (gridN_RxC.kakuro, existing files are never overwritten)
+ * Attempts run on a pool of worker threads until enough grids have been generated. Every attempt uses its own seed,
+ * derived from the seed given on the command line, so a grid can be generated again from the same seed
+ * The attempts are limited, as some settings (e.g. a very low density or a single row) never give a grid
+ */
+public class BatchGenerator {
+    //default limit of the attempts for every grid asked for
+    static final int attemptsPerGrid = 1000;
+    private static final String usage = "usage: java -jar kakuro.jar generate [-n count] [-a attempts] [-t threads] "
+            + "[-d density] [-k constants] [-s seed] <rows> <columns> <directory>\n"
+            + "  -n count      number of grids to generate (default: 1)\n"
+            + "  -a attempts   maximum number of attempts before giving up (default: " + attemptsPerGrid
+            + " per grid)\n"
+            + "  -t threads    number of worker threads (default: number of processors)\n"
+            + "  -d density    probability of a cell being white, between 0 and 1 (default: "
+            + KakuroGenerator.defaultDensity + ")\n"
+            + "  -k constants  maximum number of constant cells added to make a solution unique (default: 0)\n"
+            + "  -s seed       seed of the first attempt (default: random)";
+
+    private final KakuroGenerator generator;
+    private final int rows, columns;
+    private final File directory;
+    private final int threads;
+    private final PrintStream out;
+
+    //seed of the next attempt, number of grids generated (some may be dropped once enough were written),
+    //number of grids written and number of attempts made
+    private final AtomicLong nextSeed;
+    private final AtomicInteger generated = new AtomicInteger(), written = new AtomicInteger(),
+            attempts = new AtomicInteger();
+    //index of the last file name used
+    private int fileIndex = 0;
+
+    /**
+     * @param generator generator of the grids
+     * @param rows vertical dimension of the grids
+     * @param columns horizontal dimension of the grids
+     * @param directory destination of the files
+     * @param threads number of worker threads
+     * @param seed seed of the first attempt
+     * @param out destination of the names of the files written
+     */
+    public BatchGenerator(KakuroGenerator generator, int rows, int columns, File directory, int threads, long seed,
+                          PrintStream out) {
+        this.generator = generator;
+        this.rows = rows;
+        this.columns = columns;
+        this.directory = directory;
+        this.threads = threads;
+        this.out = out;
+        nextSeed = new AtomicLong(seed);
+    }
+
+    /**
+     * Generates the grids described on the command line
+     * exits with 0 if every grid was written, 1 if a file couldn't be written or the attempts ran out first and 2 if
+     * the command line is wrong
+     * @param args command line arguments (without "generate")
+     */
+    public static void main(String[] args) {
+        int count = 1, threads = Runtime.getRuntime().availableProcessors(), constants = 0, maxAttempts = 0;
+        double density = KakuroGenerator.defaultDensity;
+        long seed = new Random().nextLong();
+        int rows = 0, columns = 0;
+        File directory = null;
+        KakuroGenerator generator = null;
+        try {
+            int positional = 0;
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-n":
+                        count = Integer.parseInt(args[++i]);
+                        break;
+                    case "-a":
+                        maxAttempts = Integer.parseInt(args[++i]);
+                        if (maxAttempts < 1)
+                            throw new IllegalArgumentException();
+                        break;
+                    case "-t":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-d":
+                        density = Double.parseDouble(args[++i]);
+                        break;
+                    case "-k":
+                        constants = Integer.parseInt(args[++i]);
+                        break;
+                    case "-s":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        if (positional == 0)
+                            rows = Integer.parseInt(args[i]);
+                        else if (positional == 1)
+                            columns = Integer.parseInt(args[i]);
+                        else if (positional == 2)
+                            directory = new File(args[i]);
+                        else
+                            throw new IllegalArgumentException();
+                        positional++;
+                }
+            }
+            if (directory == null || count < 1 || threads < 1)
+                throw new IllegalArgumentException();
+            generator = new KakuroGenerator(rows, columns, density, constants);
+            if (maxAttempts == 0)
+                maxAttempts = (int) Math.min(Integer.MAX_VALUE, (long) attemptsPerGrid * count);
+        } catch (RuntimeException e) {
+            //missing value, wrong number or dimensions/density out of range
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("can't create " + directory);
+            System.exit(1);
+        }
+        BatchGenerator batch = new BatchGenerator(generator, rows, columns, directory, threads, seed, System.out);
+        try {
+            batch.generate(count, maxAttempts);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("error while generating: " + e.getMessage());
+            System.exit(1);
+        }
+        if (batch.getWritten() < count) {
+            System.err.println("only " + batch.getWritten() + " of " + count + " grids generated in "
+                    + batch.getAttempts() + " attempts: these settings rarely or never give a grid with a single "
+                    + "solution (try a higher density, more constants with -k or more attempts with -a)");
+            System.exit(1);
+        }
+        System.err.println(batch.getWritten() + " grids generated in " + batch.getAttempts() + " attempts");
+    }
+
+    /**
+     * Runs attempts until the number of grids asked for have been written or the attempts run out
+     * @param count number of grids to generate
+     * @param maxAttempts number of attempts after which the workers stop, getWritten then tells how many grids were
+     * written
+     * @throws IOException if a file couldn't be written (the other workers stop as well)
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void generate(final int count, final int maxAttempts) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        final IOException[] failure = new IOException[1];
+        for (int t = 0; t < threads; t++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    while (generated.get() < count) {
+                        synchronized (failure) {
+                            if (failure[0] != null)
+                                return;
+                        }
+                        if (attempts.incrementAndGet() > maxAttempts) {
+                            attempts.decrementAndGet();
+                            return;
+                        }
+                        Cell[][] grid = generator.generate(new Random(nextSeed.getAndIncrement()));
+                        //another worker may have reached the count in the meantime
+                        if (grid == null || generated.incrementAndGet() > count)
+                            continue;
+                        try {
+                            out.println(write(grid));
+                            written.incrementAndGet();
+                        } catch (IOException e) {
+                            synchronized (failure) {
+                                failure[0] = e;
+                            }
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (failure[0] != null)
+            throw failure[0];
+    }
+
+    /**
+     * Writes a grid into the first free file name
+     * @param grid grid to write
+     * @return path of the file
+     * @throws IOException if the file couldn't be written
+     */
+    private String write(Cell[][] grid) throws IOException {
+        File file;
+        synchronized (this) {
+            do {
+                fileIndex++;
+                file = new File(directory, "grid" + fileIndex + "_" + rows + "x" + columns + ".kakuro");
+            } while (!file.createNewFile());
+        }
+        try (FileWriter writer = new FileWriter(file)) {
+            KakuroLoader.writeGrid(grid, rows, columns, writer);
+        }
+        return file.getPath();
+    }
+
+    public int getWritten() {
+        return written.get();
+    }
+
+    public int getAttempts() {
+        return attempts.get();
+    }
+}
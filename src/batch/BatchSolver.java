@@ -0,0 +1,292 @@
+package batch;
+
+import algorithm.BranchingStrategy;
+import algorithm.KakuroLoader;
+import algorithm.KakuroParser;
+import algorithm.KakuroSolver;
+import algorithm.SolutionCache;
+import algorithm.SolverEngine;
+import algorithm.cells.Cell;
+import algorithm.exceptions.InvalidGridFileException;
+import algorithm.exceptions.NoSolutionException;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless solving of many grids read from a directory, a file containing concatenated grids or the standard input
+ * Grids are solved by a pool of worker threads and every result is written as soon as it is ready :
+ * a line "name status time" (status being solved, unsolvable or invalid, time in microseconds) followed by the
+ * solution in our custom kakuro file format when there is one, or by the reason why the grid is invalid (with its
+ * line and column when the grid can't be parsed)
+ * At most twice as many grids as there are workers are in memory at a time, whatever the size of the input
+ * Grids having the same structure as a grid already solved (even mirrored or transposed) are solved only once
+ * When asked for, the difficulty of every grid solved is added at the end of its line : level, score, uses of every
+ * technique needed and depth of the search
+ */
+public class BatchSolver {
+    private static final String usage = "usage: java -jar kakuro.jar [-t threads] [-e engine] [-b branching] "
+            + "[-c cache] [-r] <directory | file | ->\n"
+            + "  -t threads    number of worker threads (default: number of processors)\n"
+            + "  -e engine     backtracking, propagation or parallel (default: propagation)\n"
+            + "  -b branching  rowMajor or mostConstrained (default: rowMajor)\n"
+            + "  -c cache      file keeping the solutions from one run to the next\n"
+            + "  -r            rates the difficulty of every grid solved\n"
+            + "  -             reads the grids from the standard input";
+    //number of solutions kept by the cache file
+    private static final int cacheCapacity = 100000;
+
+    private final SolverEngine engine;
+    private final BranchingStrategy branching;
+    private final PrintStream out;
+    //solutions shared by the workers (null if the grids are always solved)
+    private final SolutionCache cache;
+    private boolean rating = false;
+
+    private final ExecutorService workers;
+    //solver of every worker, reused from one grid to the next (building one loads the default grid and its indexes)
+    private final ThreadLocal<KakuroSolver> solvers = new ThreadLocal<KakuroSolver>() {
+        @Override
+        protected KakuroSolver initialValue() {
+            KakuroSolver solver = new KakuroSolver();
+            solver.setEngine(engine);
+            solver.setBranching(branching);
+            solver.setSolutionCache(cache);
+            return solver;
+        }
+    };
+    //grids read but not written yet
+    private final Semaphore slots;
+
+    private final AtomicInteger solved = new AtomicInteger(), unsolvable = new AtomicInteger(),
+            invalid = new AtomicInteger();
+
+    /**
+     * @param threads number of worker threads
+     * @param engine algorithm used to solve the grids
+     * @param branching order in which cells and digits are guessed
+     * @param cache solutions shared by the workers, saved once every grid is solved (null to always solve the grids)
+     * @param out destination of the results
+     */
+    public BatchSolver(int threads, SolverEngine engine, BranchingStrategy branching, SolutionCache cache,
+                       PrintStream out) {
+        this.engine = engine;
+        this.branching = branching;
+        this.cache = cache;
+        this.out = out;
+        workers = Executors.newFixedThreadPool(threads);
+        slots = new Semaphore(2 * threads);
+    }
+
+    /**
+     * Solves the grids of the input given on the command line
+     * exits with 0 if every grid was solved, 1 if some weren't and 2 if the command line is wrong
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        SolverEngine engine = SolverEngine.propagation;
+        BranchingStrategy branching = BranchingStrategy.rowMajor;
+        String input = null, cacheFile = null;
+        boolean rating = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-t":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1)
+                            throw new IllegalArgumentException();
+                        break;
+                    case "-e":
+                        engine = SolverEngine.valueOf(args[++i]);
+                        break;
+                    case "-b":
+                        branching = BranchingStrategy.valueOf(args[++i]);
+                        break;
+                    case "-c":
+                        cacheFile = args[++i];
+                        break;
+                    case "-r":
+                        rating = true;
+                        break;
+                    default:
+                        if (input != null || (args[i].startsWith("-") && !"-".equals(args[i])))
+                            throw new IllegalArgumentException();
+                        input = args[i];
+                }
+            }
+            if (input == null)
+                throw new IllegalArgumentException();
+        } catch (RuntimeException e) {
+            //missing value, wrong number or unknown engine/branching
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        SolutionCache cache = null;
+        try {
+            if (cacheFile != null)
+                cache = new SolutionCache(cacheCapacity, new File(cacheFile));
+        } catch (IOException e) {
+            System.err.println("error while reading " + cacheFile + ": " + e.getMessage());
+            System.exit(2);
+        }
+
+        BatchSolver batch = new BatchSolver(threads, engine, branching, cache, System.out);
+        batch.setRating(rating);
+        try {
+            batch.solveAll(input);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("error while reading " + input + ": " + e.getMessage());
+            System.exit(2);
+        }
+        System.err.println(batch.getSummary());
+        System.exit(batch.getUnsolvable() + batch.getInvalid() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Solves every grid of the input and waits for the last result to be written
+     * @param input directory (every file of the directory is read), file or "-" for the standard input
+     * @throws IOException if error while reading the input
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void solveAll(String input) throws IOException, InterruptedException {
+        try {
+            Path path = Paths.get(input);
+            if ("-".equals(input)) {
+                readStream("stdin", Channels.newChannel(System.in));
+            } else if (Files.isDirectory(path)) {
+                //the directory is listed lazily
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+                    for (Path file : files) {
+                        if (Files.isRegularFile(file))
+                            readStream(file.toString(), FileChannel.open(file));
+                    }
+                }
+            } else {
+                readStream(input, FileChannel.open(path));
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        if (cache != null)
+            cache.save();
+    }
+
+    /**
+     * Parses the grids of a stream and hands them to the workers, waiting for a free slot before reading the next one
+     * grids that can't be parsed are reported right away
+     * @param source name of the stream
+     * @param in stream to read (closed afterwards)
+     */
+    private void readStream(String source, ReadableByteChannel in) throws IOException, InterruptedException {
+        try (KakuroParser parser = new KakuroParser(in)) {
+            while (true) {
+                long start = System.nanoTime();
+                final Cell[][] grid;
+                try {
+                    if (!parser.next())
+                        break;
+                    grid = parser.toCells();
+                } catch (InvalidGridFileException e) {
+                    invalid.incrementAndGet();
+                    print(result(source + "#" + parser.getCount(), "invalid", start) + e.getMessage() + "\n");
+                    continue;
+                }
+                slots.acquire();
+                final String name = source + "#" + parser.getCount();
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            print(solve(name, grid));
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private void print(String result) {
+        synchronized (out) {
+            out.print(result);
+            out.flush();
+        }
+    }
+
+    /**
+     * Solves a grid
+     * @param name name of the grid
+     * @param grid grid read from the input
+     * @return result to write
+     */
+    private String solve(String name, Cell[][] grid) {
+        long start = System.nanoTime();
+        int rows = grid.length, columns = grid[0].length;
+        KakuroSolver solver = solvers.get();
+        try {
+            solver.updateGrid(grid, rows, columns);
+            Cell[][] solution = solver.getSolution();
+            long time = (System.nanoTime() - start) / 1000;
+            //the time of the rating isn't part of the solving time
+            String difficulty = rating ? " " + solver.rate() : "";
+            StringWriter writer = new StringWriter();
+            writer.write(name + " solved " + time + difficulty + "\n");
+            KakuroLoader.writeGrid(solution, rows, columns, writer);
+            solved.incrementAndGet();
+            return writer.toString();
+        } catch (NoSolutionException e) {
+            unsolvable.incrementAndGet();
+            return result(name, "unsolvable", start);
+        } catch (Exception e) {
+            //clues that don't fit the structure of the grid
+            invalid.incrementAndGet();
+            return result(name, "invalid", start) + e + "\n";
+        }
+    }
+
+    private static String result(String name, String status, long start) {
+        return name + " " + status + " " + (System.nanoTime() - start) / 1000 + "\n";
+    }
+
+    /**
+     * @param rating true to add the difficulty of every grid solved to its result
+     */
+    public void setRating(boolean rating) {
+        this.rating = rating;
+    }
+
+    public int getSolved() {
+        return solved.get();
+    }
+
+    public int getUnsolvable() {
+        return unsolvable.get();
+    }
+
+    public int getInvalid() {
+        return invalid.get();
+    }
+
+    /**
+     * @return number of grids of every status
+     */
+    public String getSummary() {
+        return (getSolved() + getUnsolvable() + getInvalid()) + " grids: " + getSolved() + " solved, "
+                + getUnsolvable() + " unsolvable, " + getInvalid() + " invalid";
+    }
+}
@@ -0,0 +1,134 @@
+package batch;
+
+import algorithm.GridCorpusWriter;
+import algorithm.KakuroParser;
+import algorithm.exceptions.InvalidGridFileException;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Conversion of .kakuro files into a single binary corpus (see GridCorpus)
+ * Inputs are directories (every file below them, in alphabetical order), files containing any number of grids one
+ * after the other or the standard input. Invalid grids are reported and left out of the corpus
+ */
+public class CorpusConverter {
+    private static final String usage = "usage: java -jar kakuro.jar convert <corpus> <directory | file | ->...\n"
+            + "  corpus  binary file receiving the grids (replaced if it exists)\n"
+            + "  -       reads the grids from the standard input";
+
+    private final GridCorpusWriter writer;
+    private final PrintStream errors;
+    private int invalid = 0;
+
+    /**
+     * @param writer destination of the grids
+     * @param errors destination of the names of the invalid grids
+     */
+    public CorpusConverter(GridCorpusWriter writer, PrintStream errors) {
+        this.writer = writer;
+        this.errors = errors;
+    }
+
+    /**
+     * Converts the inputs given on the command line
+     * exits with 0 if every grid was converted, 1 if some were invalid and 2 if the command line is wrong
+     * or an input can't be read
+     * @param args command line arguments (without "convert")
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+        CorpusConverter converter = null;
+        GridCorpusWriter writer = null;
+        try {
+            writer = new GridCorpusWriter(new File(args[0]));
+            converter = new CorpusConverter(writer, System.err);
+            for (int i = 1; i < args.length; i++)
+                converter.convert(args[i]);
+            writer.close();
+        } catch (IOException e) {
+            //a corpus already there is left as it was
+            if (writer != null)
+                writer.discard();
+            System.err.println("error while converting: " + e.getMessage());
+            System.exit(2);
+        }
+        System.err.println(converter.getConverted() + " grids written to " + args[0] + ", "
+                + converter.getInvalid() + " invalid");
+        System.exit(converter.getInvalid() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Adds every grid of an input to the corpus
+     * @param input directory, file or "-" for the standard input
+     * @throws IOException if error while reading the input or writing the corpus
+     */
+    public void convert(String input) throws IOException {
+        if ("-".equals(input)) {
+            readStream("stdin", Channels.newChannel(System.in));
+            return;
+        }
+        Path path = Paths.get(input);
+        if (!Files.isDirectory(path)) {
+            readStream(input, FileChannel.open(path));
+            return;
+        }
+        //sorted so that the same directory always gives the same corpus
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> tree = Files.walk(path)) {
+            for (Iterator<Path> i = tree.iterator(); i.hasNext(); ) {
+                Path file = i.next();
+                if (Files.isRegularFile(file))
+                    files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files)
+            readStream(file.toString(), FileChannel.open(file));
+    }
+
+    /**
+     * @param source name of the stream
+     * @param in stream to read (closed afterwards)
+     */
+    private void readStream(String source, ReadableByteChannel in) throws IOException {
+        try (KakuroParser parser = new KakuroParser(in)) {
+            while (true) {
+                try {
+                    if (!parser.next())
+                        break;
+                } catch (InvalidGridFileException e) {
+                    reportInvalid(source + "#" + parser.getCount(), e);
+                    continue;
+                }
+                writer.add(parser.toCells(), parser.getRows(), parser.getColumns());
+            }
+        }
+    }
+
+    private void reportInvalid(String name, Exception e) {
+        invalid++;
+        errors.println(name + " invalid " + (e.getMessage() == null ? e : e.getMessage()));
+    }
+
+    public int getConverted() {
+        return writer.size();
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+}
@@ -6,25 +6,77 @@ import graphic.cells.*;
 import algorithm.cells.*;
 import algorithm.exceptions.*;
 
-
+import javax.swing.*;
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Controller {
     //MODEL
     private final KakuroSolver solver;
     private final KakuroLoader loader;
+    //every move is appended to the journal, for undo, redo and the autosave of the session
+    private final MoveJournal journal;
     //VIEWS
     private final Display game;
     private GraphicInputCell selectedCell;
+    private int selectedRow, selectedColumn;
+    //true if the candidates of the empty cells are shown as pencil marks
+    private boolean candidatesShown = false;
+    //number of moves made so far, a hint found for an older grid is dropped
+    private int moveCount = 0;
     private NumberSelect numberPanel;
     //CONTROLLER
     private static Controller controller = null;
+    //load, solve or hint running in the background (null if none) and the flag that stops its solver
+    private SwingWorker<?, Void> task = null;
+    private AtomicBoolean taskCancelled = null;
 
     private Controller() {
         loader = KakuroLoader.openLoader();
         solver = new KakuroSolver();
         game = new Display();
         game.display();
+        journal = new MoveJournal(solver, new File(KakuroLoader.getJournalFile()));
+        solver.addMoveListener(journal);
+        //the last records are forced to the disk when the game is closed
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    //the records written before are kept
+                }
+            }
+        });
+
+        //the alert message follows the state of the grid after every move
+        solver.addMoveListener(new MoveListener() {
+            @Override
+            public void moveApplied(MoveEvent event) {
+                moveCount++;
+                //Check if person already won or there is a misplacement
+                if (event.isSolved()) {
+                    game.setWinText("You Won!");
+                } else if (!event.isConsistent()) {
+                    game.setErrorText("I don't think that number goes there...");
+                } else {
+                    game.setDefaultText();
+                }
+            }
+        });
+        //after a move, only the cells of its two runs whose candidates changed are painted again
+        solver.addCandidateListener(new CandidateListener() {
+            @Override
+            public void candidatesChanged(int row, int column, int candidates) {
+                if (candidatesShown)
+                    ((GraphicInputCell) game.getGraphicGrid()[row][column]).setCandidates(candidates);
+            }
+        });
     }
 
     public static Controller getController() {
@@ -36,9 +88,13 @@ public class Controller {
     /**
      * action triggered after clicking an input cell
      * opens the number select panel and updates selected cell
+     * @param row row of the cell in the grid
+     * @param column column of the cell in the grid
      */
-    public void setSelectedCell(GraphicInputCell c) {
-        selectedCell = c;
+    public void setSelectedCell(int row, int column) {
+        selectedCell = (GraphicInputCell) game.getGraphicGrid()[row][column];
+        selectedRow = row;
+        selectedColumn = column;
         numberPanel = NumberSelect.openNumberSelect();
         numberPanel.setVisible(true);
     }
@@ -49,31 +105,12 @@ public class Controller {
      * @param n number clicked on the Number Panel
      */
     public void setSelectedNumber(int n) {
-        selectedCell.updateText(String.valueOf(n));
+        selectedCell.setValue(n);
         numberPanel.setVisible(false);
 
         //update value in model
-        int row = selectedCell.getY()/selectedCell.getLength();
-        int column = selectedCell.getX()/selectedCell.getLength();
-        InputCell c = (InputCell)solver.getGrid()[row][column];
-        c.setValue(n);
-
-        //check if it's solved
-        boolean isSolved = false;
-        try {
-            isSolved = solver.isSolved();
-        } catch (NoSolutionException e) {
-            game.setErrorText("This Grid Has No Solutions!");
-        }
-
-        //Check if person already won or there is a misplacement
-        if (isSolved) {
-            game.setWinText("You Won!");
-        } else if (solver.checkMisplacement(row, column)) {
-            game.setErrorText("I don't think that number goes there...");
-        } else {
-            game.setDefaultText();
-        }
+        //the move listener updates the alert message
+        solver.setValue(selectedRow, selectedColumn, n);
 
         selectedCell = null;
     }
@@ -83,14 +120,11 @@ public class Controller {
      * set's the selected cell's value to 0
      */
     public void resetValue() {
-        selectedCell.updateText(" ");
+        selectedCell.setValue(0);
         numberPanel.setVisible(false);
 
         //update value in model
-        int row = selectedCell.getY()/selectedCell.getLength();
-        int column = selectedCell.getX()/selectedCell.getLength();
-        InputCell c = (InputCell)solver.getGrid()[row][column];
-        c.setValue(0);
+        solver.setValue(selectedRow, selectedColumn, 0);
 
         selectedCell = null;
     }
@@ -108,33 +142,102 @@ public class Controller {
      * while constructing the controller set the initial grid to be the default one
      */
     public void setDefaultGraphicGrid() {
-        game.setVisible(false);
         solver.setDefault();
         Cell[][] logicGrid = solver.getDefaultGrid();
         GraphicCell[][] graphicGrid = logicToGraphicGrid(logicGrid,solver.getRows(), solver.getColumns());
         game.updateGrid(graphicGrid,solver.getRows(),solver.getColumns());
+        refreshCandidates();
+        startJournal();
         game.setVisible(true);
     }
 
+    /**
+     * at startup, restores the grid of the previous session from the move journal
+     * falls back to the default grid if there is no journal or if it can't be read
+     */
+    public void restoreSession() {
+        try {
+            if (journal.recover()) {
+                updateGraphics();
+                game.setWinText("Previous Session Restored");
+                game.setVisible(true);
+                return;
+            }
+        } catch (IOException e) {
+            //the default grid is shown instead
+        }
+        setDefaultGraphicGrid();
+    }
+
+    /**
+     * Starts a new move journal after the whole grid has been replaced
+     */
+    private void startJournal() {
+        try {
+            journal.start();
+        } catch (IOException e) {
+            game.setErrorText("Error While Saving Moves");
+        }
+    }
+
+    /**
+     * action triggered by the Undo button on the Options panel
+     * cancels the last move (or the last reset of the grid as a whole), the move listener updates the alert message
+     */
+    public void undo() {
+        if (selectedCell != null)
+            cancelSelection();
+        List<MoveEvent> moves = journal.undo();
+        if (moves.isEmpty())
+            game.setErrorText("Nothing To Undo");
+        else
+            showMoves(moves);
+    }
+
+    /**
+     * action triggered by the Redo button on the Options panel
+     * applies again the last move undone
+     */
+    public void redo() {
+        if (selectedCell != null)
+            cancelSelection();
+        List<MoveEvent> moves = journal.redo();
+        if (moves.isEmpty())
+            game.setErrorText("Nothing To Redo");
+        else
+            showMoves(moves);
+    }
+
+    /**
+     * Writes the values changed by an undo or a redo into the view
+     * @param moves changes applied to the model
+     */
+    private void showMoves(List<MoveEvent> moves) {
+        GraphicCell[][] graphicGrid = game.getGraphicGrid();
+        for (MoveEvent move : moves)
+            ((GraphicInputCell) graphicGrid[move.getRow()][move.getColumn()]).setValue(move.getValue());
+    }
+
     /**
      * action triggered after clicking on the Select Grid label or an element of the JComboBox of the different dimensions
      * thanks to the file loader loads either a random grid of the selected dimensions or the default grid
-     * updates view and model
+     * the file is read in the background, view and model are updated once it is loaded
      * @param dimensions dimensions of the grid to load
      */
-    public void loadRandomGrid(int dimensions) {
-        try {
-            Cell[][] loadedGrid;
-            if (dimensions == 0)
-                loadedGrid = loader.loadGrid(KakuroLoader.getDefaultGridFile());
-            else
-                loadedGrid = loader.loadRandomGrid(dimensions);
-            solver.updateGrid(loadedGrid, loader.getRows(), loader.getColumns());
-            updateGraphics();
-            game.setWinText("Grid Loaded Successfully!");
-        } catch (Exception e) {
-            game.setErrorText("Error While Loading Grid");
-        }
+    public void loadRandomGrid(final int dimensions) {
+        start("Loading Grid...", new SwingWorker<Cell[][], Void>() {
+            @Override
+            protected Cell[][] doInBackground() throws Exception {
+                if (dimensions == 0)
+                    return loader.loadGrid(KakuroLoader.getDefaultGridFile());
+                return loader.loadRandomGrid(dimensions);
+            }
+
+            @Override
+            protected void done() {
+                showLoadedGrid(this);
+            }
+        }, new AtomicBoolean());
     }
 
     /**
@@ -142,41 +245,157 @@ public class Controller {
      * sets all input cells to 0
      */
     public void resetValues() {
-        Cell[][] logicGrid = solver.getGrid();
         GraphicCell[][] graphicGrid = game.getGraphicGrid();
 
+        //a single undo brings every value back
+        journal.startBatch();
+        try {
+            for (int i = 0; i < solver.getRows(); i++) {
+                for (int j = 0; j < solver.getColumns(); j++) {
+                    if (graphicGrid[i][j].getType() == CellType.input) {
+                        ((GraphicInputCell)graphicGrid[i][j]).setValue(0);
+                        solver.setValue(i, j, 0);
+                    }
+                }
+            }
+        } finally {
+            journal.endBatch();
+        }
+        game.setDefaultText();
+    }
+
+    /**
+     * action triggered by the Show Marks button on the Options panel
+     * shows or hides the candidates of every empty cell, which are then kept up to date after every move
+     * @return true if the candidates are now shown
+     */
+    public boolean toggleCandidates() {
+        candidatesShown = !candidatesShown;
+        refreshCandidates();
+        return candidatesShown;
+    }
+
+    /**
+     * Gives every input cell of the view its candidates, or hides them, after the whole grid changed
+     */
+    private void refreshCandidates() {
+        GraphicCell[][] graphicGrid = game.getGraphicGrid();
         for (int i = 0; i < solver.getRows(); i++) {
             for (int j = 0; j < solver.getColumns(); j++) {
                 if (graphicGrid[i][j].getType() == CellType.input) {
-                    ((GraphicInputCell)graphicGrid[i][j]).updateText(" ");
-                    ((InputCell)logicGrid[i][j]).setValue(0);
+                    int candidates = candidatesShown ? solver.getCandidates(i, j) : 0;
+                    ((GraphicInputCell) graphicGrid[i][j]).setCandidates(candidates);
                 }
             }
         }
-        game.setDefaultText();
+    }
+
+    /**
+     * action triggered by the Hint button on the Options panel
+     * explains the next value that can be deduced, or points out a wrong value, without revealing the rest of the grid
+     * the hint is found in the background on a copy of the grid, as revealing a value may need to solve it
+     */
+    public void showHint() {
+        final KakuroSolver copy = solver.snapshot();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        copy.setCancellation(cancelled);
+        final int moves = moveCount;
+        start("Finding Hint...", new SwingWorker<Hint, Void>() {
+            @Override
+            protected Hint doInBackground() throws Exception {
+                return copy.getHint();
+            }
+
+            @Override
+            protected void done() {
+                if (!finish(this))
+                    return;
+                if (moves != moveCount) {
+                    game.setErrorText("The Grid Changed, Ask Again");
+                    return;
+                }
+                try {
+                    Hint hint = get();
+                    if (hint != null)
+                        game.setHintText(hint.getExplanation(), hint.isMistake());
+                    else if (solver.isSolved())
+                        game.setWinText("You Won!");
+                    else
+                        game.setErrorText("This Grid Has No Solutions!");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException)
+                        game.setErrorText("Hint Cancelled");
+                    else
+                        game.setErrorText("Error While Finding Hint");
+                } catch (InterruptedException e) {
+                    game.setErrorText("Hint Cancelled");
+                }
+            }
+        }, cancelled);
     }
 
     /**
      * action triggered by Auto Solve button on Options panel
-     * loads the solution given by the kakuro solver
+     * loads the solution given by the kakuro solver, computed in the background and stopped by the Cancel button
      */
     public void setSolution() {
-        try {
-            Cell[][] solution = solver.getSolution();
-            GraphicCell[][] graphicGrid = game.getGraphicGrid();
+        //the copy is solved in the background while the grid stays playable
+        final KakuroSolver copy = solver.snapshot();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        copy.setCancellation(cancelled);
+        start("Solving...", new SwingWorker<Cell[][], Void>() {
+            @Override
+            protected Cell[][] doInBackground() throws Exception {
+                return copy.getSolution();
+            }
 
-            for (int i = 0; i < solver.getRows(); i++) {
-                for (int j = 0; j < solver.getColumns(); j++) {
-                    if (graphicGrid[i][j].getType() == CellType.input) {
-                        int value = ((InputCell) solution[i][j]).getValue();
-                        ((GraphicInputCell) graphicGrid[i][j]).updateText(String.valueOf(value));
-                    }
+            @Override
+            protected void done() {
+                if (!finish(this))
+                    return;
+                try {
+                    showSolution(get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof NoSolutionException)
+                        game.setErrorText("This Grid Has No Solutions!");
+                    else if (e.getCause() instanceof CancellationException)
+                        game.setErrorText("Solving Cancelled");
+                    else
+                        game.setErrorText("Error While Solving Grid");
+                } catch (InterruptedException e) {
+                    game.setErrorText("Solving Cancelled");
+                }
+            }
+        }, cancelled);
+    }
+
+    /**
+     * Writes the solution of the current grid into the view and the model
+     * @param solution solved grid
+     */
+    private void showSolution(Cell[][] solution) {
+        GraphicCell[][] graphicGrid = game.getGraphicGrid();
+
+        for (int i = 0; i < solver.getRows(); i++) {
+            for (int j = 0; j < solver.getColumns(); j++) {
+                if (graphicGrid[i][j].getType() == CellType.input) {
+                    int value = ((InputCell) solution[i][j]).getValue();
+                    ((GraphicInputCell) graphicGrid[i][j]).setValue(value);
                 }
             }
-            solver.copyGrid(solution);
-        } catch (NoSolutionException e) {
-            game.setErrorText("This Grid Has No Solutions!");
         }
+        solver.copyGrid(solution);
+        refreshCandidates();
+        startJournal();
+    }
+
+    /**
+     * Action triggered by the Zoom In and Zoom Out buttons on the Options panel (ctrl + mouse wheel zooms on the grid
+     * itself)
+     * @param in true to zoom in, false to zoom out
+     */
+    public void zoom(boolean in) {
+        game.zoom(in ? GameGrid.zoomStep : 1 / GameGrid.zoomStep);
     }
 
     /**
@@ -194,13 +413,80 @@ public class Controller {
 
     /**
      * Action triggered by Load Session button on the Options panel
-     * resets the model and view to load the grid saved in the kakuro file savedKakuro.kakuro
+     * resets the model and view to load the grid saved in the kakuro file savedKakuro.kakuro, read in the background
      */
     public void loadSavedGrid() {
+        start("Loading Grid...", new SwingWorker<Cell[][], Void>() {
+            @Override
+            protected Cell[][] doInBackground() throws Exception {
+                return loader.loadSavedGrid();
+            }
+
+            @Override
+            protected void done() {
+                showLoadedGrid(this);
+            }
+        }, new AtomicBoolean());
+    }
+
+    /**
+     * Action triggered by the Cancel button shown while a grid is loaded or solved or while a hint is searched
+     * stops the task, the grid stays as it was
+     */
+    public void cancelTask() {
+        if (task == null)
+            return;
+        taskCancelled.set(true);
+        task.cancel(true);
+        task = null;
+        game.hideProgress();
+        game.setErrorText("Cancelled");
+    }
+
+    /**
+     * Runs a load, a solve or a hint in the background, the task started before it being cancelled as its result would
+     * be replaced anyway
+     * @param message text shown while the task runs
+     * @param worker task, its done method calling finish first
+     * @param cancelled flag stopping the solver of the task
+     */
+    private void start(String message, SwingWorker<?, Void> worker, AtomicBoolean cancelled) {
+        if (task != null) {
+            taskCancelled.set(true);
+            task.cancel(true);
+        }
+        task = worker;
+        taskCancelled = cancelled;
+        game.showProgress(message);
+        worker.execute();
+    }
+
+    /**
+     * Called on the event dispatch thread when a task ends
+     * @param worker task that ended
+     * @return true if its result should be shown, false if it was cancelled or replaced by another task
+     */
+    private boolean finish(SwingWorker<?, Void> worker) {
+        if (worker != task || worker.isCancelled())
+            return false;
+        task = null;
+        game.hideProgress();
+        return true;
+    }
+
+    /**
+     * Replaces the model and the view by the grid read by a load task
+     * @param worker load task that ended
+     */
+    private void showLoadedGrid(SwingWorker<Cell[][], Void> worker) {
+        if (!finish(worker))
+            return;
         try {
-            Cell[][] loadedGrid = loader.loadSavedGrid();
-            solver.updateGrid(loadedGrid,loader.getRows(),loader.getColumns());
+            Cell[][] loadedGrid = worker.get();
+            //the dimensions come from the grid, the loader may already be reading another one
+            solver.updateGrid(loadedGrid, loadedGrid.length, loadedGrid[0].length);
             updateGraphics();
+            startJournal();
             game.setWinText("Grid Loaded Successfully!");
         } catch (Exception e) {
             game.setErrorText("Error While Loading Grid");
@@ -249,10 +535,12 @@ public class Controller {
      * Updates the view with a new grid after loading a new grid
      */
     private void updateGraphics() {
-        game.setVisible(false);
+        //the cell being edited belongs to the previous grid
+        if (selectedCell != null)
+            cancelSelection();
         Cell[][] logicGrid = solver.getGrid();
         GraphicCell[][] graphicGrid = logicToGraphicGrid(logicGrid,solver.getRows(), solver.getColumns());
         game.updateGrid(graphicGrid,solver.getRows(),solver.getColumns());
-        game.setVisible(true);
+        refreshCandidates();
     }
 }
@@ -11,7 +11,8 @@ public class Display extends JFrame {
     private final Options optionsPanel;
     private final GridBagConstraints insertionConstraints;
 
-    private GameGrid gamePanel;
+    private final GameGrid gamePanel;
+    private final JScrollPane scrollPane;
 
     /**
      * Creates the game frame by using the other view classes as objects
@@ -21,10 +22,13 @@ public class Display extends JFrame {
         setLocationRelativeTo(null);
         setTitle("POO2 - Kakuro");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
+        setResizable(true);
 
         optionsPanel = new Options();
         gamePanel = new GameGrid();
+        //only the visible part of the grid is painted
+        scrollPane = new JScrollPane(gamePanel);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
         alertLabel = new JLabel("Try Solving This!");
         alertLabel.setFont(new Font(alertLabel.getName(), Font.BOLD, 20));
 
@@ -48,18 +52,27 @@ public class Display extends JFrame {
     }
 
     /**
-     * Updates the current grid display by removing the grid panel and creating a new one
+     * Updates the current grid display, the grid panel is kept and only paints the visible cells of the new grid
      * @param grid graphic grid to be displayed
      * @param rows vertical dimension
      * @param columns horizontal dimension
      */
     public void updateGrid(GraphicCell[][] grid, int rows, int columns) {
-        remove(gamePanel);
-        gamePanel = new GameGrid(grid,columns,rows);
-
-        resetElements();
+        gamePanel.setGrid(grid,columns,rows);
+        //a new grid is shown whole if it fits at a readable zoom level, otherwise it can be scrolled
+        Dimension area = scrollPane.getViewport().getExtentSize();
+        gamePanel.fit(area.width, area.height);
+        scrollPane.getViewport().setViewPosition(new Point(0, 0));
+        validate();
+    }
 
-        update(getGraphics());
+    /**
+     * Zooms the grid in or out around the center of the visible area
+     * @param factor ratio between the new and the current length of the cells
+     */
+    public void zoom(double factor) {
+        Rectangle visible = gamePanel.getVisibleRect();
+        gamePanel.zoom(factor, new Point(visible.x + visible.width/2, visible.y + visible.height/2));
     }
 
     /**
@@ -70,11 +83,17 @@ public class Display extends JFrame {
         insertionConstraints.gridx = 0;
         insertionConstraints.gridy = 0;
         add(alertLabel,insertionConstraints);
-        insertionConstraints.fill = GridBagConstraints.VERTICAL;
+        //the grid takes all the space left by the label and the options
+        insertionConstraints.fill = GridBagConstraints.BOTH;
+        insertionConstraints.weightx = 1;
+        insertionConstraints.weighty = 1;
         insertionConstraints.gridx = 0;
         insertionConstraints.gridy = 1;
+        insertionConstraints.insets = new Insets(20,10,10,10);
+        add(scrollPane,insertionConstraints);
+        insertionConstraints.weightx = 0;
+        insertionConstraints.weighty = 0;
         insertionConstraints.insets = new Insets(20,0,10,0);
-        add(gamePanel,insertionConstraints);
         insertionConstraints.fill = GridBagConstraints.VERTICAL;
         insertionConstraints.gridx = 0;
         insertionConstraints.gridy = 2;
@@ -90,6 +109,23 @@ public class Display extends JFrame {
         alertLabel.setForeground(new Color(255, 128, 44));
     }
 
+    /**
+     * Shows that a task runs in the background, with a button to cancel it
+     * @param msg text to display
+     */
+    public void showProgress(String msg) {
+        alertLabel.setText(msg);
+        alertLabel.setForeground(new Color(1,1,1));
+        optionsPanel.setBusy(true);
+    }
+
+    /**
+     * Hides the progress bar and the cancel button
+     */
+    public void hideProgress() {
+        optionsPanel.setBusy(false);
+    }
+
     /**
      * Displays default text
      */
@@ -98,6 +134,19 @@ public class Display extends JFrame {
         alertLabel.setForeground(new Color(1,1,1));
     }
 
+    /**
+     * Displays a hint, wrapped over several lines if needed
+     * @param msg text to display
+     * @param mistake true if the hint points out a wrong value (shown as an error)
+     */
+    public void setHintText(String msg, boolean mistake) {
+        if (mistake)
+            setErrorText(msg);
+        else
+            setWinText(msg);
+        alertLabel.setText("<html><div style='text-align:center;width:600px'>" + msg + "</div></html>");
+    }
+
     /**
      * Displays text on green
      * @param msg text to display
@@ -1,15 +1,35 @@
 package graphic;
 
+import controller.CellType;
+import controller.Controller;
 import graphic.cells.*;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 
+/**
+ * Single component painting every cell of the grid, meant to be shown in a scroll pane
+ * cells aren't Swing components : clicks are mapped to a row and a column from their coordinates and only the cells
+ * crossing the area to repaint (at most the visible part of the grid) are painted, so loading, scrolling or
+ * repainting a grid doesn't depend on its size
+ * The length of the cells is the zoom level, changed with ctrl + mouse wheel
+ */
+public class GameGrid extends JPanel implements Scrollable {
+    //bounds of the zoom
+    public static final int minLength = 16;
+    public static final int maxLength = 200;
+    public static final double zoomStep = 1.25;
+    //smallest length chosen by fit, below it the digits are hard to read
+    private static final int minFitLength = 30;
 
-public class GameGrid extends JPanel {
     private int rows,columns;
     private GraphicCell[][] grid;
-    private GridBagConstraints insertionConstraints;
-    private static int activeLength;
+    private int length;
+    //position of the grid in the component, centered when it is smaller than the viewport
+    private int originX = 0, originY = 0;
 
     public GameGrid() {
         this(new GraphicCell[1][1],1,1,GraphicCell.defaultLength);
@@ -29,7 +49,7 @@ public class GameGrid extends JPanel {
      * @param rows
      */
     public GameGrid(int columns, int rows) {
-        this(new GraphicCell[columns][rows],columns,rows,GraphicCell.defaultLength);
+        this(new GraphicCell[rows][columns],columns,rows,GraphicCell.defaultLength);
     }
 
     public GameGrid(GraphicCell[][] grid, int columns, int rows) {
@@ -44,50 +64,186 @@ public class GameGrid extends JPanel {
      * @param length
      */
     public GameGrid(GraphicCell[][] grid, int columns, int rows, int length) {
-        setSize( columns * activeLength + 5, rows * activeLength + 5);
+        this.length = length;
+        setGrid(grid, columns, rows);
 
-        setPreferredSize(new Dimension( columns * activeLength + 5,
-                rows * activeLength + 5));
+        //a single listener for the whole grid
+        MouseAdapter listener = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                int row = getRowAt(e.getY()), column = getColumnAt(e.getX());
+                if (row != -1 && column != -1 && GameGrid.this.grid[row][column].getType() == CellType.input)
+                    Controller.getController().setSelectedCell(row, column);
+            }
 
-        setLayout(new GridBagLayout());
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if ((e.getModifiersEx() & (InputEvent.CTRL_DOWN_MASK | InputEvent.META_DOWN_MASK)) != 0) {
+                    zoom(e.getWheelRotation() < 0 ? zoomStep : 1 / zoomStep, e.getPoint());
+                } else {
+                    //scrolling is left to the scroll pane, which doesn't get the events of a component listening to them
+                    Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, GameGrid.this);
+                    if (scrollPane != null)
+                        scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(GameGrid.this, e, scrollPane));
+                }
+            }
+        };
+        addMouseListener(listener);
+        addMouseWheelListener(listener);
+    }
 
-        activeLength = length;
+    /**
+     * Replaces the displayed grid, the component itself is kept
+     * @param grid graphic grid to be displayed
+     * @param columns horizontal dimension
+     * @param rows vertical dimension
+     */
+    public void setGrid(GraphicCell[][] grid, int columns, int rows) {
         this.rows = rows;
         this.columns = columns;
         this.grid = grid;
+        updateSize();
+    }
 
-        if (isInit())
-            updateDisplay();
+    /**
+     * Changes the zoom level
+     * @param length new length of the cells, kept between minLength and maxLength
+     */
+    public void setLength(int length) {
+        this.length = Math.max(minLength, Math.min(maxLength, length));
+        updateSize();
+    }
+
+    public int getLength() {
+        return length;
     }
 
     /**
-     * Updates the JPanel by resetting the grid if the controller was notified
+     * Zooms in or out, keeping the point under the mouse at the same place of the viewport
+     * @param factor ratio between the new and the current length
+     * @param point point of the component that shouldn't move
      */
-    public void updateDisplay() {
-        removeAll();
-        addCells();
-        repaint();
+    public void zoom(double factor, Point point) {
+        int oldLength = length;
+        int newLength = (int) Math.round(length * factor);
+        //small lengths would never change by rounding
+        if (newLength == length)
+            newLength += factor > 1 ? 1 : -1;
+        setLength(newLength);
+        if (length == oldLength)
+            return;
+
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport == null)
+            return;
+        Point view = viewport.getViewPosition();
+        double ratio = (double) length / oldLength;
+        int x = (int) Math.round((point.x - originX) * ratio) - (point.x - view.x);
+        int y = (int) Math.round((point.y - originY) * ratio) - (point.y - view.y);
+        viewport.validate();
+        Dimension extent = viewport.getExtentSize(), size = getSize();
+        viewport.setViewPosition(new Point(Math.max(0, Math.min(x, size.width - extent.width)),
+                Math.max(0, Math.min(y, size.height - extent.height))));
     }
 
     /**
-     * Adds all cells to the panel while respecting the active length
+     * Picks the largest zoom level showing the whole grid in a given area, without going above the default length
+     * a grid too large to be read that way is shown from its upper left corner and scrolled
+     * @param width width of the area
+     * @param height height of the area
      */
-    public void addCells() {
-        insertionConstraints = new GridBagConstraints();
+    public void fit(int width, int height) {
+        if (width <= 0 || height <= 0)
+            return;
+        int fitLength = Math.min((width - 1) / columns, (height - 1) / rows);
+        setLength(Math.max(minFitLength, Math.min(GraphicCell.defaultLength, fitLength)));
+    }
 
+    private void updateSize() {
+        setPreferredSize(new Dimension(columns * length + 1, rows * length + 1));
+        if (isInit())
+            placeCells();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Gives every cell its position and the component painting it
+     */
+    private void placeCells() {
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                grid[i][j].setX(j*activeLength);
-                grid[i][j].setY(i*activeLength);
-
-                insertionConstraints.fill = GridBagConstraints.VERTICAL;
-                insertionConstraints.gridx = j;
-                insertionConstraints.gridy = i;
-                add(grid[i][j],insertionConstraints);
+                grid[i][j].setX(originX + j*length);
+                grid[i][j].setY(originY + i*length);
+                grid[i][j].setLength(length);
+                grid[i][j].setOwner(this);
             }
         }
     }
 
+    /**
+     * Centers the grid once the component has been given its size
+     */
+    @Override
+    public void doLayout() {
+        int x = Math.max(0, (getWidth() - (columns * length + 1)) / 2);
+        int y = Math.max(0, (getHeight() - (rows * length + 1)) / 2);
+        if (x != originX || y != originY) {
+            originX = x;
+            originY = y;
+            if (isInit())
+                placeCells();
+            repaint();
+        }
+    }
+
+    /**
+     * Paints the cells crossing the area to repaint
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (!isInit())
+            return;
+        g.setColor(Color.black);
+
+        Rectangle area = g.getClipBounds();
+        if (area == null)
+            area = new Rectangle(0, 0, getWidth(), getHeight());
+        //a cell also paints its right and bottom borders, shared with the next cells
+        int firstRow = Math.max(0, Math.floorDiv(area.y - 1 - originY, length));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(area.y + area.height - originY, length));
+        int firstColumn = Math.max(0, Math.floorDiv(area.x - 1 - originX, length));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(area.x + area.width - originX, length));
+        for (int i = firstRow; i <= lastRow; i++) {
+            for (int j = firstColumn; j <= lastColumn; j++)
+                grid[i][j].paint(g);
+        }
+    }
+
+    /**
+     * @param y vertical coordinate in the component
+     * @return row at this coordinate (-1 if outside of the grid)
+     */
+    public int getRowAt(int y) {
+        if (!isInit() || y < originY)
+            return -1;
+        int row = (y - originY) / length;
+        return row < rows ? row : -1;
+    }
+
+    /**
+     * @param x horizontal coordinate in the component
+     * @return column at this coordinate (-1 if outside of the grid)
+     */
+    public int getColumnAt(int x) {
+        if (!isInit() || x < originX)
+            return -1;
+        int column = (x - originX) / length;
+        return column < columns ? column : -1;
+    }
+
     public GraphicCell[][] getGrid() {
         return grid;
     }
@@ -95,4 +251,36 @@ public class GameGrid extends JPanel {
     private boolean isInit() {
         return grid[0][0] != null;
     }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    /**
+     * Arrows of the scroll bars move by a third of a cell
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(1, length / 3);
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+        return Math.max(length, extent - length);
+    }
+
+    /**
+     * The component fills the viewport when the grid is smaller, so that it can be centered
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
 }
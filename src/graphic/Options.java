@@ -13,10 +13,18 @@ import java.awt.event.MouseEvent;
 public class Options extends JPanel {
     private final JButton solveButton;
     private final JButton resetButton;
+    private final JButton hintButton;
+    private final JButton marksButton;
     private final JLabel selectRandomButton;
     private final JButton saveSessionButton;
     private final JButton loadSession;
     private final JComboBox dimensionsList;
+    private final JButton zoomInButton;
+    private final JButton zoomOutButton;
+    private final JButton undoButton;
+    private final JButton redoButton;
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
     private final String[] dimensionStrings = { "Default", "3x3", "4x4", "5x5"};
 
     private GridBagConstraints insertionConstraints;
@@ -75,6 +83,27 @@ public class Options extends JPanel {
         });
         add(resetButton,insertionConstraints);
 
+        //-------HINT BUTTON---------
+        //style
+        hintButton = new JButton("Hint");
+        hintButton.setBackground(Color.gray);
+        hintButton.setOpaque(true);
+        hintButton.setBorderPainted(true);
+        hintButton.setFocusable(false);
+        hintButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 2;
+        insertionConstraints.gridy = 0;
+        //listener
+        hintButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().showHint();
+            }
+        });
+        add(hintButton,insertionConstraints);
+
         //---- DIMENSIONS LIST --------
         //style
         dimensionsList = new JComboBox(dimensionStrings);
@@ -135,6 +164,28 @@ public class Options extends JPanel {
         });
         add(saveSessionButton,insertionConstraints);
 
+        //------- PENCIL MARKS --------
+        //style
+        marksButton = new JButton("Show Marks");
+        marksButton.setBackground(Color.gray);
+        marksButton.setOpaque(true);
+        marksButton.setBorderPainted(true);
+        marksButton.setFocusable(false);
+        marksButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 2;
+        insertionConstraints.gridy = 1;
+        //listener
+        marksButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                boolean shown = Controller.getController().toggleCandidates();
+                marksButton.setText(shown ? "Hide Marks" : "Show Marks");
+            }
+        });
+        add(marksButton,insertionConstraints);
+
         //--------- LOAD SESSION ---------
         //style
         loadSession = new JButton("Load Session");
@@ -155,6 +206,132 @@ public class Options extends JPanel {
             }
         });
         add(loadSession,insertionConstraints);
+
+        //------- ZOOM IN --------
+        //style
+        zoomInButton = new JButton("Zoom In");
+        zoomInButton.setBackground(Color.gray);
+        zoomInButton.setOpaque(true);
+        zoomInButton.setBorderPainted(true);
+        zoomInButton.setFocusable(false);
+        zoomInButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 0;
+        insertionConstraints.gridy = 3;
+        //listener
+        zoomInButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().zoom(true);
+            }
+        });
+        add(zoomInButton,insertionConstraints);
+
+        //------- ZOOM OUT --------
+        //style
+        zoomOutButton = new JButton("Zoom Out");
+        zoomOutButton.setBackground(Color.gray);
+        zoomOutButton.setOpaque(true);
+        zoomOutButton.setBorderPainted(true);
+        zoomOutButton.setFocusable(false);
+        zoomOutButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 1;
+        insertionConstraints.gridy = 3;
+        //listener
+        zoomOutButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().zoom(false);
+            }
+        });
+        add(zoomOutButton,insertionConstraints);
+
+        //------- UNDO --------
+        //style
+        undoButton = new JButton("Undo");
+        undoButton.setBackground(Color.gray);
+        undoButton.setOpaque(true);
+        undoButton.setBorderPainted(true);
+        undoButton.setFocusable(false);
+        undoButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 2;
+        insertionConstraints.gridy = 2;
+        //listener
+        undoButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().undo();
+            }
+        });
+        add(undoButton,insertionConstraints);
+
+        //------- REDO --------
+        //style
+        redoButton = new JButton("Redo");
+        redoButton.setBackground(Color.gray);
+        redoButton.setOpaque(true);
+        redoButton.setBorderPainted(true);
+        redoButton.setFocusable(false);
+        redoButton.setForeground(Color.white);
+        //constraints
+        insertionConstraints.gridx = 2;
+        insertionConstraints.gridy = 3;
+        //listener
+        redoButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().redo();
+            }
+        });
+        add(redoButton,insertionConstraints);
+
+        //------- PROGRESS ----------
+        //style
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        //constraints
+        insertionConstraints.gridx = 0;
+        insertionConstraints.gridy = 4;
+        add(progressBar,insertionConstraints);
+
+        //------- CANCEL BUTTON --------
+        //style
+        cancelButton = new JButton("Cancel");
+        cancelButton.setBackground(Color.gray);
+        cancelButton.setOpaque(true);
+        cancelButton.setBorderPainted(true);
+        cancelButton.setFocusable(false);
+        cancelButton.setForeground(Color.white);
+        cancelButton.setVisible(false);
+        //constraints
+        insertionConstraints.gridx = 1;
+        insertionConstraints.gridy = 4;
+        //listener
+        cancelButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                super.mouseClicked(e);
+                Controller.getController().cancelTask();
+            }
+        });
+        add(cancelButton,insertionConstraints);
+    }
+
+    /**
+     * Shows or hides the progress bar and the cancel button of a background task
+     * @param busy true while a grid is loaded or solved
+     */
+    public void setBusy(boolean busy) {
+        progressBar.setVisible(busy);
+        cancelButton.setVisible(busy);
+        revalidate();
     }
 
     private int getDimensions() {
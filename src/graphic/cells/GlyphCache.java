@@ -0,0 +1,80 @@
+package graphic.cells;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Images of the numbers drawn in the cells, rendered once for the current cell length
+ * painting a cell only copies images instead of laying out text, the images are rendered again when the zoom changes
+ * Numbers are drawn on a third of the cell, pencil marks on a fifth
+ * Used by the event dispatch thread only
+ */
+final class GlyphCache {
+    //numbers up to the largest clue of a run of 9 cells are kept
+    private static final int maxCached = 45;
+    private static final BufferedImage[] glyphs = new BufferedImage[maxCached + 1];
+    private static final BufferedImage[] marks = new BufferedImage[10];
+    //cell length of the cached images
+    private static int length = -1;
+    private static Font font, markFont;
+
+    private GlyphCache() {}
+
+    /**
+     * @param number value, digit or clue
+     * @param length length of the cell
+     * @return image of the number, its text being as high as a third of the cell
+     */
+    static BufferedImage getGlyph(int number, int length) {
+        setLength(length);
+        if (number < 0 || number > maxCached)
+            return render(String.valueOf(number), font);
+        if (glyphs[number] == null)
+            glyphs[number] = render(String.valueOf(number), font);
+        return glyphs[number];
+    }
+
+    /**
+     * @param digit candidate, between 1 and 9
+     * @param length length of the cell
+     * @return small image of the digit
+     */
+    static BufferedImage getMark(int digit, int length) {
+        setLength(length);
+        if (marks[digit] == null)
+            marks[digit] = render(String.valueOf(digit), markFont);
+        return marks[digit];
+    }
+
+    /**
+     * Forgets the images rendered for another zoom level
+     */
+    private static void setLength(int length) {
+        if (length == GlyphCache.length)
+            return;
+        GlyphCache.length = length;
+        font = new Font(Font.DIALOG, Font.BOLD, Math.max(length/3, 1));
+        markFont = new Font(Font.DIALOG, Font.PLAIN, Math.max(length/5, 1));
+        for (int i = 0; i <= maxCached; i++)
+            glyphs[i] = null;
+        for (int i = 0; i < marks.length; i++)
+            marks[i] = null;
+    }
+
+    private static BufferedImage render(String text, Font font) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scratch.createGraphics();
+        FontMetrics metrics = g.getFontMetrics(font);
+        g.dispose();
+
+        BufferedImage glyph = new BufferedImage(Math.max(metrics.stringWidth(text), 1),
+                metrics.getAscent() + metrics.getDescent(), BufferedImage.TYPE_INT_ARGB);
+        g = glyph.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(Color.black);
+        g.drawString(text, 0, metrics.getAscent());
+        g.dispose();
+        return glyph;
+    }
+}
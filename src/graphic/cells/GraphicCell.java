@@ -1,14 +1,17 @@
 package graphic.cells;
 import controller.CellType;
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
 
-public abstract class GraphicCell extends JPanel {
+/**
+ * Cell painted by the grid component holding it (see GameGrid), cells aren't Swing components themselves
+ * x and y are the position of the upper left corner of the cell inside that component
+ */
+public abstract class GraphicCell {
     protected int x, y;
     protected int length;
     public static final int defaultLength = 100;
+    //component painting the cell (null until the cell is added to a grid)
+    private Component owner = null;
 
     public GraphicCell() {
         this(0,0);
@@ -22,18 +25,47 @@ public abstract class GraphicCell extends JPanel {
         this.x = x;
         this.y = y;
         this.length = length;
-        setPreferredSize(new Dimension(length+1,length+1));
-        setSize(new Dimension(length+1,length+1));
+    }
+
+    /**
+     * Paints the cell at its position, with the current color of g as foreground
+     * @param g graphics of the grid component
+     */
+    public abstract void paint(Graphics g);
 
+    public abstract CellType getType();
 
+    /**
+     * Asks the grid component to paint the area of this cell again, the rest of the grid is left as it is
+     */
+    public void repaint() {
+        if (owner != null)
+            owner.repaint(x, y, length + 1, length + 1);
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    /**
+     * Draws a number centered on a point
+     * @param g graphics of the grid component
+     * @param number digit or clue
+     * @param centerX horizontal coordinate of the center
+     * @param centerY vertical coordinate of the center
+     */
+    protected void drawNumber(Graphics g, int number, int centerX, int centerY) {
+        Image glyph = GlyphCache.getGlyph(number, length);
+        g.drawImage(glyph, centerX - glyph.getWidth(null)/2, centerY - glyph.getHeight(null)/2, null);
     }
 
-    public abstract CellType getType();
+    /**
+     * Draws a pencil mark centered on a point
+     * @param g graphics of the grid component
+     * @param digit candidate
+     * @param centerX horizontal coordinate of the center
+     * @param centerY vertical coordinate of the center
+     */
+    protected void drawMark(Graphics g, int digit, int centerX, int centerY) {
+        Image mark = GlyphCache.getMark(digit, length);
+        g.drawImage(mark, centerX - mark.getWidth(null)/2, centerY - mark.getHeight(null)/2, null);
+    }
 
     public int getX() {
         return x;
@@ -58,4 +90,8 @@ public abstract class GraphicCell extends JPanel {
     public void setLength(int length) {
         this.length = length;
     }
+
+    public void setOwner(Component owner) {
+        this.owner = owner;
+    }
 }
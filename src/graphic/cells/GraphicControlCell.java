@@ -1,15 +1,10 @@
 package graphic.cells;
 
 import controller.CellType;
-import graphic.cells.GraphicCell;
-
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseEvent;
 
 public class GraphicControlCell extends GraphicCell {
     private Integer vertical,horizontal;
-    private JLabel verticalLabel, horizontalLabel, filler1, filler2;
 
     public GraphicControlCell() {
         this(0,0);
@@ -27,21 +22,6 @@ public class GraphicControlCell extends GraphicCell {
         super(x,y,length);
         this.vertical = vertical;
         this.horizontal = horizontal;
-
-        verticalLabel = new JLabel(getString(vertical));
-        verticalLabel.setFont(new Font(verticalLabel.getName(), Font.BOLD, length/3));
-
-        horizontalLabel = new JLabel(getString(horizontal));
-        horizontalLabel.setFont(new Font(horizontalLabel.getName(), Font.BOLD, length/3));
-
-        filler1 = new JLabel("");
-        filler2 = new JLabel("");
-
-        setLayout(new GridLayout(2,2));
-        add(filler1);
-        add(horizontalLabel);
-        add(verticalLabel);
-        add(filler2);
     }
 
     @Override
@@ -50,28 +30,20 @@ public class GraphicControlCell extends GraphicCell {
     }
 
     @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    public void paint(Graphics g) {
         //Square
-        g.drawRect (0, 0, length, length);
+        g.drawRect (x, y, length, length);
         //Diagonal
-        g.drawLine(0,0,length,length);
-        //Lower triangle
+        g.drawLine(x,y,x+length,y+length);
+        //Lower triangle, holding the vertical clue
         if (vertical == null)
-            g.fillPolygon(new int[] {0,0,length}, new int[] {0,length,length}, 3);
-        //Upper triangle
+            g.fillPolygon(new int[] {x,x,x+length}, new int[] {y,y+length,y+length}, 3);
+        else
+            drawNumber(g, vertical, x + length/4, y + 3*length/4);
+        //Upper triangle, holding the horizontal clue
         if (horizontal == null)
-            g.fillPolygon(new int[] {0,length,length}, new int[] {0,0,length}, 3);
-    }
-
-    private String getString(Integer n) {
-        if (n == null)
-            return "";
-        if (n/10 == 0) {
-            return " "+n;
-        } else {
-            return String.valueOf(n);
-        }
-
+            g.fillPolygon(new int[] {x,x+length,x+length}, new int[] {y,y,y+length}, 3);
+        else
+            drawNumber(g, horizontal, x + 3*length/4, y + length/4);
     }
 }
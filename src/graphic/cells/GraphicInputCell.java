@@ -1,16 +1,16 @@
 package graphic.cells;
 
 import controller.CellType;
-import controller.Controller;
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
 
 
 public class GraphicInputCell extends GraphicCell {
-    private final JLabel valueLabel;
-    private Integer value;
+    //0 if the cell is empty
+    private int value;
+    //pencil marks shown while the cell is empty (0 for none)
+    private int candidates = 0;
+    //below this length the pencil marks can't be read and aren't drawn
+    private static final int minMarksLength = 30;
 
     public GraphicInputCell() {
         this(0,0);
@@ -22,26 +22,7 @@ public class GraphicInputCell extends GraphicCell {
 
     public GraphicInputCell(int x, int y, Integer value) {
         super(x,y);
-        this.value = value;
-
-        if (value == null || value == 0)
-            valueLabel = new JLabel("");
-        else
-            valueLabel = new JLabel(String.valueOf(value));
-
-        valueLabel.setFont(new Font(valueLabel.getName(), Font.BOLD, length/3));
-
-        setLayout(new GridBagLayout());
-        add(valueLabel);
-
-        GraphicInputCell thisInput = this;
-        addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                super.mouseClicked(e);
-                Controller.getController().setSelectedCell(thisInput);
-            }
-        });
+        this.value = value == null ? 0 : value;
     }
 
     @Override
@@ -50,12 +31,39 @@ public class GraphicInputCell extends GraphicCell {
     }
 
     @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        g.drawRect (0, 0, length, length);
+    public void paint(Graphics g) {
+        g.drawRect (x, y, length, length);
+        if (value != 0) {
+            drawNumber(g, value, x + length/2, y + length/2);
+        } else if (candidates != 0 && length >= minMarksLength) {
+            //digit d in row (d-1)/3 and column (d-1)%3 of a 3x3 layout, like a phone keypad
+            for (int d = 1; d <= 9; d++) {
+                if ((candidates & (1 << (d - 1))) != 0)
+                    drawMark(g, d, x + (2*((d-1)%3) + 1)*length/6, y + (2*((d-1)/3) + 1)*length/6);
+            }
+        }
     }
 
-    public void updateText(String txt) {
-        valueLabel.setText(txt);
+    /**
+     * Changes the pencil marks, only this cell is painted again if they are visible
+     * @param candidates mask of the digits to show (0 to hide them)
+     */
+    public void setCandidates(int candidates) {
+        if (candidates == this.candidates)
+            return;
+        this.candidates = candidates;
+        if (value == 0)
+            repaint();
+    }
+
+    /**
+     * Changes the displayed value, only this cell is painted again
+     * @param value new value of the cell (0 to empty it)
+     */
+    public void setValue(int value) {
+        if (value == this.value)
+            return;
+        this.value = value;
+        repaint();
     }
 }
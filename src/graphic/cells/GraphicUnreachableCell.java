@@ -17,9 +17,8 @@ public class GraphicUnreachableCell extends GraphicCell {
     }
 
     @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        g.drawRect (0, 0, length, length);
-        g.fillRect(0, 0, length, length);
+    public void paint(Graphics g) {
+        g.drawRect (x, y, length, length);
+        g.fillRect(x, y, length, length);
     }
 }
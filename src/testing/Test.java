@@ -1,10 +1,28 @@
 package testing;
 
+import batch.BatchGenerator;
+import batch.BatchSolver;
+import batch.CorpusConverter;
 import controller.Controller;
 
+import java.util.Arrays;
+
 public class Test {
     public static void main(String[] args) {
+        //with arguments, grids are generated, converted or solved without any graphic interface
+        if (args.length > 0 && "generate".equals(args[0])) {
+            BatchGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "convert".equals(args[0])) {
+            CorpusConverter.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0) {
+            BatchSolver.main(args);
+            return;
+        }
         Controller kakuro = Controller.getController();
-        kakuro.setDefaultGraphicGrid();
+        kakuro.restoreSession();
     }
 }
@@ -0,0 +1,122 @@
+package algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateStoreTest {
+    /**
+     * Applies random moves to the grid and compares the candidates kept up to date by the store, and those told to
+     * its listener, with the candidates of a store loaded from scratch after every move
+     * @param grid live grid, left with the last moves applied
+     * @param moves number of moves to apply
+     * @param seed seed of the moves
+     * @param name name of the grid in the failure messages
+     */
+    private static void replay(CompactGrid grid, int moves, long seed, String name) {
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        MoveValidator validator = new MoveValidator();
+        validator.load(index, grid);
+        CandidateStore store = new CandidateStore();
+        store.load(index, grid);
+        validator.addMoveListener(store);
+
+        final int[] notified = new int[grid.getSize()];
+        for (int i = 0; i < notified.length; i++)
+            notified[i] = store.getCandidates(i);
+        final int columns = grid.getColumns();
+        store.addCandidateListener(new CandidateListener() {
+            @Override
+            public void candidatesChanged(int row, int column, int candidates) {
+                assertNotEquals(notified[row * columns + column], candidates);
+                notified[row * columns + column] = candidates;
+            }
+        });
+
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < grid.getSize(); i++) {
+            if (grid.getKind(i) == CompactGrid.input)
+                inputs.add(i);
+        }
+        Random random = new Random(seed);
+        CandidateStore fresh = new CandidateStore();
+        for (int move = 0; move < moves; move++) {
+            int position = inputs.get(random.nextInt(inputs.size()));
+            //about one move out of three clears a cell, repeated digits and runs over their clue are kept
+            int value = random.nextInt(3) == 0 ? 0 : random.nextInt(9) + 1;
+            validator.setValue(position / columns, position % columns, value);
+            fresh.load(index, grid);
+            for (int i = 0; i < grid.getSize(); i++) {
+                assertEquals(fresh.getCandidates(i), store.getCandidates(i), name + ", move " + move + ", cell " + i);
+                assertEquals(fresh.getCandidates(i), notified[i], name + ", move " + move + ", cell " + i);
+            }
+        }
+    }
+
+    @Test
+    void loadingComputesTheCandidatesOfTheExample() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        CandidateStore store = new CandidateStore();
+        store.load(new ConstraintsChecker(grid), grid);
+        //2 cells summing to 8 under a column of 4 cells summing to 25 holding an 8
+        assertEquals(mask(1, 2, 3, 5, 6, 7), store.getCandidates(grid.position(1, 2)));
+        //2 cells summing to 3
+        assertEquals(mask(1, 2), store.getCandidates(grid.position(4, 2)));
+        //the constant and the control cells have no candidates
+        assertEquals(0, store.getCandidates(grid.position(2, 2)));
+        assertEquals(0, store.getCandidates(grid.position(0, 0)));
+    }
+
+    @Test
+    void aMoveUpdatesItsRuns() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        MoveValidator validator = new MoveValidator();
+        validator.load(index, grid);
+        CandidateStore store = new CandidateStore();
+        store.load(index, grid);
+        validator.addMoveListener(store);
+
+        validator.setValue(4, 2, 1);
+        assertEquals(0, store.getCandidates(grid.position(4, 2)));
+        assertEquals(mask(2), store.getCandidates(grid.position(4, 3)));
+        validator.setValue(4, 2, 0);
+        assertEquals(mask(1, 2), store.getCandidates(grid.position(4, 3)));
+        //a repeated digit leaves no candidate to the rest of the run
+        validator.setValue(3, 2, 2);
+        assertEquals(0, store.getCandidates(grid.position(3, 3)));
+    }
+
+    @Test
+    void movesMatchALoadFromScratchOnTheExample() throws Exception {
+        replay(TestGrids.parse(TestGrids.example), 500, 1, "example");
+    }
+
+    @Test
+    void movesMatchALoadFromScratchOnTheBundledGrids() throws Exception {
+        int seed = 0;
+        for (File file : TestGrids.bundledGrids())
+            replay(TestGrids.compact(TestGrids.load(file)), 300, seed++, file.getPath());
+    }
+
+    @Test
+    void movesMatchALoadFromScratchOnGeneratedGrids() {
+        for (int size = 8; size <= 12; size += 2)
+            replay(TestGrids.compact(TestGrids.generate(size, size)), 1000, size, size + "x" + size);
+    }
+
+    /**
+     * @return mask of the digits
+     */
+    private static int mask(int... digits) {
+        int mask = 0;
+        for (int digit : digits)
+            mask |= CombinationTable.digitMask(digit);
+        return mask;
+    }
+}
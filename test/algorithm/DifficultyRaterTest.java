@@ -0,0 +1,157 @@
+package algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DifficultyRaterTest {
+    //bundled grid 3x3/grid2 : the 8 of the second row needs the remainder of the first column
+    private static final String medium = "KAKURO\n3 3\nu c 13 0 c 12 0\nc 0 17 i 0 i 0\nc 0 8 i 0 i 0\n";
+    //bundled grid 5x5/grid4 : the easier techniques stall and a digit has to be ruled out by trial
+    static final String expert = "KAKURO\n5 5\n"
+            + "u u c 22 0 c 21 0 u\n"
+            + "u c 4 8 i 0 i 0 c 14 0\n"
+            + "c 0 11 i 0 i 0 i 0 i 0\n"
+            + "c 0 26 i 0 i 0 i 0 i 0\n"
+            + "u c 0 16 i 0 i 0 u\n";
+
+    private static DifficultyRating rate(String text) throws Exception {
+        CompactGrid grid = TestGrids.parse(text);
+        return new DifficultyRater(new ConstraintsChecker(grid)).rate(grid);
+    }
+
+    @Test
+    void ratesAnEasyGrid() throws Exception {
+        DifficultyRating rating = rate(TestGrids.example);
+        assertTrue(rating.isSolved());
+        assertEquals(Technique.intersection, rating.getHardest());
+        assertEquals(Difficulty.easy, rating.getDifficulty());
+        assertEquals(6, rating.getUses(Technique.uniqueCombination));
+        assertEquals(3, rating.getUses(Technique.intersection));
+        assertEquals(12, rating.getScore());
+        assertEquals(0, rating.getSearchDepth());
+    }
+
+    @Test
+    void ratesAMediumGrid() throws Exception {
+        DifficultyRating rating = rate(medium);
+        assertTrue(rating.isSolved());
+        assertEquals(Technique.sumRemainder, rating.getHardest());
+        assertEquals(Difficulty.medium, rating.getDifficulty());
+        assertEquals(3, rating.getUses(Technique.sumRemainder));
+    }
+
+    @Test
+    void ratesAHardGrid() throws Exception {
+        DifficultyRating rating = rate(expert);
+        assertTrue(rating.isSolved());
+        assertEquals(Technique.trial, rating.getHardest());
+        assertEquals(Difficulty.expert, rating.getDifficulty());
+        assertEquals(2, rating.getUses(Technique.subset));
+        assertEquals(1, rating.getUses(Technique.trial));
+        assertEquals(0, rating.getUses(Technique.search));
+        assertEquals(84, rating.getScore());
+    }
+
+    @Test
+    void ratesAGridNeedingAGuess() throws Exception {
+        DifficultyRating rating = rate(SolutionVerifierTest.square);
+        assertTrue(rating.isSolved());
+        assertEquals(Technique.search, rating.getHardest());
+        assertEquals(Difficulty.extreme, rating.getDifficulty());
+        assertTrue(rating.getSearchDepth() > 0);
+    }
+
+    @Test
+    void reportsAnUnsolvableGrid() throws Exception {
+        assertFalse(rate(PropagationSolverTest.unsolvable).isSolved());
+    }
+
+    @Test
+    void keepsTheValuesOfThePlayer() throws Exception {
+        //with the digits of the first row given, only the rest of the grid is rated
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        DifficultyRater rater = new DifficultyRater(new ConstraintsChecker(grid));
+        long score = rater.rate(grid).getScore();
+        grid.setValue(grid.position(1, 2), 6);
+        grid.setValue(grid.position(1, 3), 2);
+        DifficultyRating rating = rater.rate(grid);
+        assertTrue(rating.isSolved());
+        assertTrue(rating.getScore() < score);
+    }
+
+    /**
+     * @return candidates of every position of a grid, all digits for the empty input cells
+     */
+    private static int[] domains(CompactGrid grid) {
+        int[] domain = new int[grid.getSize()];
+        for (int i = 0; i < grid.getSize(); i++) {
+            if (grid.getKind(i) != CompactGrid.input && grid.getKind(i) != CompactGrid.constant)
+                continue;
+            int val = grid.getValue(i);
+            domain[i] = val == 0 ? CombinationTable.fullMask : CombinationTable.digitMask(val);
+        }
+        return domain;
+    }
+
+    private static int mask(int... digits) {
+        int mask = 0;
+        for (int digit : digits)
+            mask |= CombinationTable.digitMask(digit);
+        return mask;
+    }
+
+    @Test
+    void narrowsARunWithASingleCombination() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int[] domain = domains(grid);
+        CandidateNarrowing narrowing = new CandidateNarrowing(index, domain, new PropagationSolver(index));
+        //3 in two cells is 1 + 2
+        int run = index.getHorizontalRun(grid.position(4, 2));
+        assertEquals(1, narrowing.narrow(run, Technique.uniqueCombination));
+        assertEquals(mask(1, 2), domain[grid.position(4, 2)]);
+        assertEquals(mask(1, 2), domain[grid.position(4, 3)]);
+        assertEquals(0, narrowing.narrow(run, Technique.uniqueCombination));
+    }
+
+    @Test
+    void keepsTheDigitsOfSeveralCombinations() throws Exception {
+        CompactGrid grid = TestGrids.parse(SolutionVerifierTest.square);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int[] domain = domains(grid);
+        CandidateNarrowing narrowing = new CandidateNarrowing(index, domain, new PropagationSolver(index));
+        //10 in two cells has 4 combinations, none of them holds a 5
+        int run = index.getHorizontalRun(grid.position(1, 1));
+        assertEquals(0, narrowing.narrow(run, Technique.uniqueCombination));
+        assertEquals(1, narrowing.narrow(run, Technique.intersection));
+        assertEquals(4, narrowing.getKept());
+        assertEquals(mask(1, 2, 3, 4, 6, 7, 8, 9), domain[grid.position(1, 1)]);
+    }
+
+    @Test
+    void placesADigitWithASinglePlace() {
+        //a run of three cells summing to 6 needs a 3, which only the last cell can hold
+        CompactGrid grid = TestGrids.compact(TestGrids.fromSolution(new int[][]{{0, 0, 0, 0}, {0, 1, 2, 3}}, false));
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int[] domain = domains(grid);
+        domain[grid.position(1, 1)] = mask(1, 2);
+        domain[grid.position(1, 2)] = mask(1, 2);
+        CandidateNarrowing narrowing = new CandidateNarrowing(index, domain, new PropagationSolver(index));
+        int run = index.getHorizontalRun(grid.position(1, 3));
+        assertEquals(1, narrowing.narrow(run, Technique.hiddenSingle));
+        assertEquals(mask(3), domain[grid.position(1, 3)]);
+    }
+
+    @Test
+    void detectsARepeatedValue() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int[] domain = domains(grid);
+        domain[grid.position(4, 2)] = mask(1);
+        domain[grid.position(4, 3)] = mask(1);
+        CandidateNarrowing narrowing = new CandidateNarrowing(index, domain, new PropagationSolver(index));
+        for (Technique technique : CandidateNarrowing.runTechniques)
+            assertEquals(-1, narrowing.narrow(index.getHorizontalRun(grid.position(4, 2)), technique));
+    }
+}
@@ -0,0 +1,130 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.InvalidGridFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridCorpusTest {
+    @TempDir
+    File directory;
+
+    private static String text(Cell[][] grid) throws IOException {
+        StringWriter writer = new StringWriter();
+        KakuroLoader.writeGrid(grid, grid.length, grid[0].length, writer);
+        return writer.toString();
+    }
+
+    @Test
+    void readsBackEveryGrid() throws Exception {
+        Cell[][] example = TestGrids.parse(TestGrids.example).toCells();
+        Cell[][] filled = TestGrids.solveExample(TestGrids.parse(TestGrids.example)).toCells();
+        Cell[][] square = TestGrids.fromSolution(new int[][]{{0, 0, 0}, {0, 1, 9}, {0, 9, 1}}, true);
+        final File file = new File(directory, "grids.corpus");
+        try (GridCorpusWriter writer = new GridCorpusWriter(file)) {
+            writer.add(example, 5, 4);
+            writer.add(filled, 5, 4);
+            writer.add(square, 3, 3);
+            assertEquals(3, writer.size());
+        }
+
+        try (final GridCorpus corpus = new GridCorpus(file)) {
+            assertEquals(3, corpus.size());
+            assertEquals(5, corpus.getRows(0));
+            assertEquals(4, corpus.getColumns(0));
+            assertEquals(3, corpus.getRows(2));
+            assertEquals(text(example), text(corpus.getGrid(0)));
+            assertEquals(text(filled), text(corpus.getGrid(1)));
+            assertEquals(text(square), text(corpus.getGrid(2)));
+            assertThrows(IndexOutOfBoundsException.class, new Executable() {
+                @Override
+                public void execute() throws Throwable {
+                    corpus.getGrid(3);
+                }
+            });
+        }
+    }
+
+    @Test
+    void rejectsAFileThatIsNotACorpus() throws Exception {
+        final File file = new File(directory, "grid.kakuro");
+        Files.write(file.toPath(), TestGrids.example.getBytes());
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                new GridCorpus(file).close();
+            }
+        });
+    }
+
+    @Test
+    void rejectsATruncatedRecord() throws Exception {
+        File file = new File(directory, "grids.corpus");
+        try (GridCorpusWriter writer = new GridCorpusWriter(file)) {
+            writer.add(TestGrids.parse(TestGrids.example).toCells(), 5, 4);
+            writer.add(TestGrids.parse(TestGrids.example).toCells(), 5, 4);
+        }
+        //the index says that the first record ends one byte early, then after its dimensions only
+        try (RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+            data.seek(12);
+            int index = data.readInt();
+            data.seek(index);
+            int start = data.readInt(), end = data.readInt();
+            data.seek(index + 4);
+            data.writeInt(end - 1);
+            assertTruncated(file);
+            data.seek(index + 4);
+            data.writeInt(start + 3);
+        }
+        assertTruncated(file);
+    }
+
+    private static void assertTruncated(File file) throws IOException {
+        try (final GridCorpus corpus = new GridCorpus(file)) {
+            assertThrows(InvalidGridFileException.class, new Executable() {
+                @Override
+                public void execute() throws Throwable {
+                    corpus.getGrid(0);
+                }
+            });
+        }
+    }
+
+    @Test
+    void rejectsAValueThatCantBeStored() {
+        final Cell[][] grid = TestGrids.fromSolution(new int[][]{{0, 0, 0}, {0, 1, 9}, {0, 9, 1}}, true);
+        ((InputCell) grid[1][1]).setValue(12);
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                try (GridCorpusWriter writer = new GridCorpusWriter(new File(directory, "grids.corpus"))) {
+                    writer.add(grid, 3, 3);
+                }
+            }
+        });
+    }
+
+    @Test
+    void leavesTheCorpusUnchangedWhenDiscarded() throws Exception {
+        final File file = new File(directory, "grids.corpus");
+        try (GridCorpusWriter writer = new GridCorpusWriter(file)) {
+            writer.add(TestGrids.parse(TestGrids.example).toCells(), 5, 4);
+        }
+        byte[] before = Files.readAllBytes(file.toPath());
+
+        GridCorpusWriter writer = new GridCorpusWriter(file);
+        writer.add(TestGrids.parse(TestGrids.example).toCells(), 5, 4);
+        writer.discard();
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+}
@@ -0,0 +1,78 @@
+package algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridFingerprintTest {
+    //solution of an irregular grid surrounded by black cells, so that every rotation or mirror image is a grid too
+    private static final int[][] digits = {
+            {0, 0, 0, 0, 0, 0, 0},
+            {0, 1, 2, 0, 1, 3, 0},
+            {0, 3, 1, 0, 2, 1, 0},
+            {0, 0, 4, 5, 6, 0, 0},
+            {0, 2, 3, 0, 5, 4, 0},
+            {0, 1, 5, 0, 3, 2, 0},
+            {0, 0, 0, 0, 0, 0, 0}
+    };
+
+    /**
+     * @param symmetry number between 0 and 7 giving one of the rotations and mirror images
+     * @return digits seen through the symmetry
+     */
+    private static int[][] transform(int[][] digits, int symmetry) {
+        int[][] transformed = digits;
+        if ((symmetry & 1) != 0)
+            transformed = TestGrids.mirror(transformed);
+        if ((symmetry & 2) != 0)
+            transformed = TestGrids.flip(transformed);
+        if ((symmetry & 4) != 0)
+            transformed = TestGrids.transpose(transformed);
+        return transformed;
+    }
+
+    @Test
+    void isTheSameForTheEightSymmetries() {
+        String key = new GridFingerprint(TestGrids.compact(TestGrids.fromSolution(digits, false))).getKey();
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            CompactGrid grid = TestGrids.compact(TestGrids.fromSolution(transform(digits, symmetry), false));
+            assertEquals(key, new GridFingerprint(grid).getKey(), "symmetry " + symmetry);
+        }
+    }
+
+    @Test
+    void ignoresTheValuesOfTheInputCells() {
+        CompactGrid empty = TestGrids.compact(TestGrids.fromSolution(digits, false));
+        CompactGrid filled = TestGrids.compact(TestGrids.fromSolution(digits, true));
+        assertEquals(new GridFingerprint(empty).getKey(), new GridFingerprint(filled).getKey());
+    }
+
+    @Test
+    void changesWithTheClues() {
+        int[][] other = new int[digits.length][];
+        for (int i = 0; i < digits.length; i++)
+            other[i] = digits[i].clone();
+        //swapping two digits of a row changes the clues of their columns
+        other[1][1] = 2;
+        other[1][2] = 1;
+        assertNotEquals(new GridFingerprint(TestGrids.compact(TestGrids.fromSolution(digits, false))).getKey(),
+                new GridFingerprint(TestGrids.compact(TestGrids.fromSolution(other, false))).getKey());
+    }
+
+    @Test
+    void carriesASolutionAcrossSymmetries() {
+        CompactGrid solved = TestGrids.compact(TestGrids.fromSolution(digits, true));
+        byte[] canonical = new GridFingerprint(solved).extract(solved);
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            CompactGrid grid = TestGrids.compact(TestGrids.fromSolution(transform(digits, symmetry), false));
+            assertTrue(new GridFingerprint(grid).apply(canonical, grid));
+            assertTrue(SolutionVerifier.isSolution(new ConstraintsChecker(grid), grid), "symmetry " + symmetry);
+        }
+    }
+
+    @Test
+    void rejectsDigitsOfAnotherGrid() {
+        CompactGrid grid = TestGrids.compact(TestGrids.fromSolution(digits, false));
+        assertFalse(new GridFingerprint(grid).apply(new byte[3], grid));
+    }
+}
@@ -0,0 +1,221 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintEngineTest {
+    /**
+     * @param grid cell grid
+     * @return solver of the grid, computing its own solutions
+     */
+    private static KakuroSolver solver(Cell[][] grid) {
+        KakuroSolver solver = new KakuroSolver();
+        solver.setSolutionCache(null);
+        solver.updateGrid(grid, grid.length, grid[0].length);
+        return solver;
+    }
+
+    /**
+     * @return hint engine of the grid, whose values are placed by the test
+     */
+    private static HintEngine engine(CompactGrid grid) {
+        return new HintEngine(new ConstraintsChecker(grid));
+    }
+
+    /**
+     * @return true if no input cell of the grid holds a value
+     */
+    private static boolean isEmpty(Cell[][] grid) {
+        for (Cell[] row : grid) {
+            for (Cell cell : row) {
+                if (cell instanceof InputCell && ((InputCell) cell).getValue() != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Follows the hints until there are none left, checking every one against the only solution of the grid
+     * @param grid empty cell grid having a single solution
+     * @param name name of the grid in the failure messages
+     */
+    private static void replay(Cell[][] grid, String name) throws Exception {
+        KakuroSolver solver = solver(grid);
+        Cell[][] solution = solver.getSolution();
+        int inputs = 0, steps = 0;
+        for (Cell[] row : grid) {
+            for (Cell cell : row) {
+                if (cell instanceof InputCell)
+                    inputs++;
+            }
+        }
+        Hint hint = solver.getHint();
+        while (hint != null) {
+            assertFalse(hint.isMistake(), name + ": " + hint);
+            assertEquals(((InputCell) solution[hint.getRow()][hint.getColumn()]).getValue(), hint.getValue(),
+                    name + ": " + hint);
+            solver.setValue(hint.getRow(), hint.getColumn(), hint.getValue());
+            //every hint fills one more cell
+            assertTrue(++steps <= inputs, name);
+            hint = solver.getHint();
+        }
+        assertEquals(inputs, steps, name);
+        assertTrue(solver.isSolved(), name);
+    }
+
+    @Test
+    void hintsSolveTheBundledGrids() throws Exception {
+        int replayed = 0;
+        for (File file : TestGrids.bundledGrids()) {
+            Cell[][] grid = TestGrids.load(file);
+            //the saved game already holds values of the player
+            if (!isEmpty(grid) || solver(grid).countSolutions(2) != 1)
+                continue;
+            replay(grid, file.getPath());
+            replayed++;
+        }
+        assertTrue(replayed > 0);
+    }
+
+    @Test
+    void hintsSolveGeneratedGrids() throws Exception {
+        for (int size = 6; size <= 10; size += 2)
+            replay(TestGrids.generate(size, size), size + "x" + size);
+    }
+
+    @Test
+    void deductionsAreExplainedByATechnique() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        Hint hint = engine(grid).getHint(grid);
+        assertNotNull(hint);
+        assertFalse(hint.isMistake());
+        assertNotNull(hint.getTechnique());
+        assertTrue(hint.getExplanation().startsWith("Cell (" + (hint.getRow() + 1) + ", " + (hint.getColumn() + 1)
+                + ") must be " + hint.getValue()), hint.getExplanation());
+    }
+
+    @Test
+    void aFilledGridHasNoHint() throws Exception {
+        CompactGrid grid = TestGrids.solveExample(TestGrids.parse(TestGrids.example));
+        HintEngine engine = engine(grid);
+        assertNull(engine.getHint(grid));
+        assertFalse(engine.isStalled());
+    }
+
+    @Test
+    void aValueRuledOutByTheCluesIsAMistake() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        //propagating the clues of the bottom run of 2 cells summing to 3 leaves a single candidate
+        grid.setValue(grid.position(4, 2), 1);
+        assertMistake(engine(grid).getHint(grid), 4, 2, "the clues only leave {2} for this cell");
+
+        grid.setValue(grid.position(1, 2), 6);
+        assertMistake(engine(grid).getHint(grid), 4, 2,
+                "the clues and the values placed before it only leave {2} for this cell");
+    }
+
+    @Test
+    void aValueLeadingToAContradictionIsAMistake() throws Exception {
+        CompactGrid grid = TestGrids.parse(DifficultyRaterTest.expert);
+        //a 5 is still a candidate once the clues are propagated, only placing it shows that it leads nowhere
+        grid.setValue(grid.position(1, 2), 5);
+        assertMistake(engine(grid).getHint(grid), 1, 2, "a 5 here contradicts the clues");
+    }
+
+    @Test
+    void aRepeatedDigitIsAMistake() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        grid.setValue(grid.position(1, 2), 2);
+        grid.setValue(grid.position(1, 3), 2);
+        //the last value of the run is blamed
+        assertMistake(engine(grid).getHint(grid), 1, 3, "already holds a 2");
+    }
+
+    @Test
+    void aDigitRepeatingAConstantIsBlamedOnThePlayer() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        //the constant 2 starts the run summing to 15
+        grid.setValue(grid.position(3, 3), 2);
+        assertMistake(engine(grid).getHint(grid), 3, 3, "already holds a 2");
+    }
+
+    @Test
+    void aRunOverItsClueIsAMistake() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        grid.setValue(grid.position(1, 2), 5);
+        grid.setValue(grid.position(1, 3), 4);
+        assertMistake(engine(grid).getHint(grid), 1, 3, "already add up to 9");
+    }
+
+    @Test
+    void theRightValuesAreNotMistakes() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        for (int[] cell : TestGrids.exampleSolution) {
+            grid.setValue(grid.position(cell[0], cell[1]), cell[2]);
+            Hint hint = engine(grid).getHint(grid);
+            if (hint != null)
+                assertFalse(hint.isMistake(), hint.toString());
+        }
+    }
+
+    @Test
+    void aStalledGridRevealsAValueOfTheSolution() throws Exception {
+        CompactGrid grid = TestGrids.parse(SolutionVerifierTest.square);
+        HintEngine engine = engine(grid);
+        //the 8 solutions of the square leave every cell with its 8 candidates
+        assertNull(engine.getHint(grid));
+        assertTrue(engine.isStalled());
+
+        CompactGrid solution = new CompactGrid(grid, true);
+        int[][] digits = {{1, 1, 3}, {1, 2, 7}, {2, 1, 7}, {2, 2, 3}};
+        for (int[] cell : digits)
+            solution.setValue(solution.position(cell[0], cell[1]), cell[2]);
+        Hint hint = engine.reveal(grid, solution);
+        assertFalse(hint.isMistake());
+        assertEquals(Technique.search, hint.getTechnique());
+        assertEquals(solution.getValue(solution.position(hint.getRow(), hint.getColumn())), hint.getValue());
+
+        //once revealed, a value differing from the solution is pointed out
+        grid.setValue(grid.position(1, 1), 4);
+        assertMistake(engine.reveal(grid, solution), 1, 1, "a 4 here doesn't match the solution of the grid");
+    }
+
+    @Test
+    void deductionsRestOnValuesPropagationCantRefute() throws Exception {
+        //findMistake only places the values of the player through propagation : a value leaving some solution to
+        //the clues is trusted, and the next deductions are built on it even if it isn't the value of the solution
+        //a search would reveal. The square has 8 solutions, so any digit but 5 is such a value
+        Cell[][] square = TestGrids.fromSolution(new int[][]{{0, 0, 0}, {0, 1, 9}, {0, 9, 1}}, false);
+        KakuroSolver solver = solver(square);
+        int revealed = ((InputCell) solver.getSolution()[1][1]).getValue();
+        int played = revealed == 1 ? 2 : 1;
+        solver.setValue(1, 1, played);
+
+        int deductions = 0;
+        for (Hint hint = solver.getHint(); hint != null; hint = solver.getHint()) {
+            assertFalse(hint.isMistake(), hint.toString());
+            assertNotEquals(Technique.search, hint.getTechnique(), hint.toString());
+            solver.setValue(hint.getRow(), hint.getColumn(), hint.getValue());
+            deductions++;
+        }
+        assertEquals(3, deductions);
+        assertEquals(played, ((InputCell) solver.getGrid()[2][2]).getValue());
+        assertEquals(10 - played, ((InputCell) solver.getGrid()[1][2]).getValue());
+        assertTrue(solver.isSolved());
+    }
+
+    private static void assertMistake(Hint hint, int row, int column, String reason) {
+        assertNotNull(hint);
+        assertTrue(hint.isMistake(), hint.toString());
+        assertNull(hint.getTechnique());
+        assertEquals(0, hint.getValue());
+        assertEquals(row, hint.getRow());
+        assertEquals(column, hint.getColumn());
+        assertTrue(hint.getExplanation().contains(reason), hint.getExplanation());
+    }
+}
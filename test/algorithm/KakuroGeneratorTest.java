@@ -0,0 +1,120 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KakuroGeneratorTest {
+    private static long countSolutions(Cell[][] grid) {
+        KakuroSolver solver = new KakuroSolver();
+        solver.updateGrid(grid, grid.length, grid[0].length);
+        return solver.countSolutions(2);
+    }
+
+    /**
+     * Checks the layout of a generated grid : black first row and column, empty input cells and runs of 2 to 9 cells
+     */
+    private static void assertWellFormed(Cell[][] grid, int rows, int columns) {
+        assertEquals(rows, grid.length);
+        assertEquals(columns, grid[0].length);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                Cell cell = grid[i][j];
+                if (i == 0 || j == 0)
+                    assertFalse(cell instanceof InputCell || cell instanceof ConstantCell);
+                if (cell instanceof InputCell)
+                    assertEquals(0, ((InputCell) cell).getValue());
+            }
+        }
+        ConstraintsChecker index = new ConstraintsChecker(TestGrids.compact(grid));
+        for (int run = 0; run < index.getRunCount(); run++) {
+            assertTrue(index.getRunLength(run) >= 2);
+            assertTrue(index.getRunLength(run) <= CombinationTable.maxLength);
+        }
+    }
+
+    @Test
+    void generatesGridsWithASingleSolution() {
+        Random random = new Random(1);
+        int grids = 0;
+        for (int size = 4; size <= 10; size++) {
+            KakuroGenerator generator = new KakuroGenerator(size, size + 1, KakuroGenerator.defaultDensity, 0);
+            for (int attempt = 0; attempt < 20; attempt++) {
+                Cell[][] grid = generator.generate(random);
+                if (grid == null)
+                    continue;
+                assertWellFormed(grid, size, size + 1);
+                assertEquals(1, countSolutions(grid), size + "x" + (size + 1) + ", attempt " + attempt);
+                grids++;
+            }
+        }
+        assertTrue(grids > 20, grids + " grids generated");
+    }
+
+    @Test
+    void addsConstantsToMakeTheSolutionUnique() {
+        //dense grids are rarely decided by propagation alone
+        Random random = new Random(2);
+        KakuroGenerator generator = new KakuroGenerator(8, 8, 0.9, 8);
+        int grids = 0, constants = 0;
+        for (int attempt = 0; attempt < 20; attempt++) {
+            Cell[][] grid = generator.generate(random);
+            if (grid == null)
+                continue;
+            assertWellFormed(grid, 8, 8);
+            assertEquals(1, countSolutions(grid), "attempt " + attempt);
+            grids++;
+            for (Cell[] row : grid) {
+                for (Cell cell : row) {
+                    if (cell instanceof ConstantCell)
+                        constants++;
+                }
+            }
+        }
+        assertTrue(grids > 0);
+        assertTrue(constants > 0);
+    }
+
+    @Test
+    void givesTheSameGridForTheSameSeed() throws IOException {
+        KakuroGenerator generator = new KakuroGenerator(8, 8, KakuroGenerator.defaultDensity, 8);
+        assertEquals(text(TestGrids.generate(8, 3)), text(TestGrids.generate(8, 3)));
+        Cell[][] grid = generator.generate(new Random(5));
+        assertNotNull(grid);
+        assertEquals(text(grid), text(generator.generate(new Random(5))));
+    }
+
+    private static String text(Cell[][] grid) throws IOException {
+        StringWriter writer = new StringWriter();
+        KakuroLoader.writeGrid(grid, grid.length, grid[0].length, writer);
+        return writer.toString();
+    }
+
+    @Test
+    void failsWithoutAnyWhiteCell() {
+        //a cell is almost never white : the attempts fail instead of returning a grid without runs
+        KakuroGenerator generator = new KakuroGenerator(3, 3, 0.01, 0);
+        Random random = new Random(3);
+        for (int attempt = 0; attempt < 20; attempt++)
+            assertNull(generator.generate(random));
+    }
+
+    @Test
+    void rejectsWrongSettings() {
+        final double[][] settings = {{2, 5, 0.5, 0}, {5, 5, 0, 0}, {5, 5, 1.5, 0}, {5, 5, 0.5, -1}};
+        for (final double[] setting : settings) {
+            assertThrows(IllegalArgumentException.class, new Executable() {
+                @Override
+                public void execute() {
+                    new KakuroGenerator((int) setting[0], (int) setting[1], setting[2], (int) setting[3]);
+                }
+            });
+        }
+    }
+}
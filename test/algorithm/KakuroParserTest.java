@@ -0,0 +1,109 @@
+package algorithm;
+
+import algorithm.exceptions.InvalidGridFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KakuroParserTest {
+    private static KakuroParser parser(String text) {
+        return new KakuroParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Reads the first grid of a text that doesn't follow the format
+     * @return error of the parser
+     */
+    private static InvalidGridFileException error(String text) throws IOException {
+        try {
+            parser(text).next();
+        } catch (InvalidGridFileException e) {
+            return e;
+        }
+        return fail("no error in " + text);
+    }
+
+    private static void assertError(String text, int line, int column, String message) throws IOException {
+        InvalidGridFileException e = error(text);
+        assertEquals(line, e.getLine());
+        assertEquals(column, e.getColumn());
+        assertEquals("line " + line + ", column " + column + ": " + message, e.getMessage());
+    }
+
+    @Test
+    void readsTheExampleGrid() throws Exception {
+        KakuroParser parser = parser(TestGrids.example);
+        assertTrue(parser.next());
+        assertEquals(5, parser.getRows());
+        assertEquals(4, parser.getColumns());
+        CompactGrid grid = parser.toCompactGrid();
+        assertEquals(CompactGrid.control, grid.getKind(grid.position(1, 1)));
+        assertEquals(CompactGrid.input, grid.getKind(grid.position(1, 2)));
+        assertEquals(8, grid.getValue(grid.position(2, 2)));
+        assertEquals(8, grid.getRunSum(grid.getHorizontalRun(grid.position(1, 2))));
+        assertEquals(25, grid.getRunSum(grid.getVerticalRun(grid.position(1, 2))));
+        assertFalse(parser.next());
+    }
+
+    @Test
+    void readsTheSameGridsFromAChannel() throws Exception {
+        String text = "some notes\n" + TestGrids.example + "\n" + TestGrids.example.replace("i 0 k 8", "i 3 k 8");
+        try (KakuroParser parser = new KakuroParser(
+                Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))))) {
+            assertTrue(parser.next());
+            assertEquals(0, parser.toCompactGrid().getValue(parser.toCompactGrid().position(2, 1)));
+            assertTrue(parser.next());
+            assertEquals(3, parser.toCompactGrid().getValue(parser.toCompactGrid().position(2, 1)));
+            assertFalse(parser.next());
+            assertEquals(2, parser.getCount());
+        }
+    }
+
+    @Test
+    void allowsCarriageReturnsAndTrailingSpaces() throws Exception {
+        KakuroParser parser = parser("KAKURO  \r\n1 2\r\nc 0 3 i 0 \r\n");
+        assertTrue(parser.next());
+        assertEquals(2, parser.getColumns());
+    }
+
+    @Test
+    void givesThePositionOfErrors() throws Exception {
+        assertError("KAKURO\n2 x\n", 2, 3, "expected number of columns");
+        assertError("KAKURO\n1 2\nc 0 3 z 1\n", 3, 7, "unknown cell type");
+        assertError("KAKURO\n1 2\nu i 12\n", 3, 5, "value out of range (0 to 9)");
+        assertError("KAKURO\n1 2\nu u u\n", 3, 5, "expected end of row 1 after 2 cells");
+        assertError("KAKURO\n2 1\nu\nu u\n", 4, 3, "expected end of row 2 after 1 cells");
+        assertError("KAKURO\n1 2 3\n", 2, 5, "expected end of line after the dimensions");
+        assertError("KAKURO\n2 2\nu u\n", 4, 1, "expected 2 cells in row 2, found 0");
+        assertError("KAKURO\n1 1\nc 0 46\n", 3, 5, "horizontal clue out of range (0 to 45)");
+        assertError("KAKURO\n1 1001\n", 2, 3, "number of columns out of range (1 to 1000)");
+    }
+
+    @Test
+    void goesOnWithTheNextGridAfterAnError() throws Exception {
+        //the first grid is cut short by the header of the second one
+        final KakuroParser parser = parser("KAKURO\n2 2\nu u\nKAKURO\n1 1\nu\nKAKURO\n1 1\nx\n" + TestGrids.example);
+        Executable next = new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                parser.next();
+            }
+        };
+        InvalidGridFileException e = assertThrows(InvalidGridFileException.class, next);
+        assertEquals(4, e.getLine());
+        assertTrue(parser.next());
+        assertEquals(1, parser.getRows());
+        assertThrows(InvalidGridFileException.class, next);
+        assertTrue(parser.next());
+        assertEquals(5, parser.getRows());
+        assertFalse(parser.next());
+        assertEquals(4, parser.getCount());
+    }
+}
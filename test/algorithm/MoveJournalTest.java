@@ -0,0 +1,237 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+    @TempDir
+    File directory;
+
+    private File file;
+    private KakuroSolver solver;
+    private MoveJournal journal;
+    private final List<MoveJournal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws Exception {
+        file = new File(directory, "session.journal");
+        //the solver starts with the example grid
+        solver = new KakuroSolver();
+        journal = open(solver);
+        journal.start();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        for (MoveJournal opened : journals)
+            opened.close();
+    }
+
+    private MoveJournal open(KakuroSolver owner) {
+        MoveJournal opened = new MoveJournal(owner, file);
+        owner.addMoveListener(opened);
+        journals.add(opened);
+        return opened;
+    }
+
+    /**
+     * Reads the journal file into a new solver, as after a crash of the program
+     * @return solver holding the recovered grid
+     */
+    private KakuroSolver recover() throws IOException {
+        KakuroSolver recovered = new KakuroSolver();
+        assertTrue(open(recovered).recover());
+        return recovered;
+    }
+
+    private static String values(KakuroSolver owner) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < owner.getRows(); i++) {
+            for (int j = 0; j < owner.getColumns(); j++) {
+                Cell cell = owner.getGrid()[i][j];
+                if (cell instanceof InputCell)
+                    values.append(((InputCell) cell).getValue());
+                else if (cell instanceof ConstantCell)
+                    values.append('k').append(((ConstantCell) cell).getValue());
+                else
+                    values.append('.');
+            }
+            values.append('\n');
+        }
+        return values.toString();
+    }
+
+    /**
+     * Makes moves on random input cells of the example grid
+     */
+    private void play(Random random, int moves) {
+        int[][] cells = TestGrids.exampleSolution;
+        for (int move = 0; move < moves; move++) {
+            int[] cell = cells[random.nextInt(cells.length)];
+            solver.setValue(cell[0], cell[1], random.nextInt(10));
+        }
+    }
+
+    /**
+     * Gives another value to a cell of the example grid
+     */
+    private void change(int row, int column) {
+        solver.setValue(row, column, (((InputCell) solver.getGrid()[row][column]).getValue() + 1) % 10);
+    }
+
+    @Test
+    void recoversTheMovesAfterACrash() throws Exception {
+        play(new Random(1), 1000);
+        journal.sync();
+        KakuroSolver recovered = recover();
+        assertEquals(values(solver), values(recovered));
+    }
+
+    @Test
+    void undoesAndRedoesMoves() {
+        String before = values(solver);
+        solver.setValue(1, 2, 6);
+        String after = values(solver);
+        solver.setValue(1, 3, 2);
+
+        List<MoveEvent> undone = journal.undo();
+        assertEquals(1, undone.size());
+        assertEquals(1, undone.get(0).getRow());
+        assertEquals(3, undone.get(0).getColumn());
+        assertEquals(0, undone.get(0).getValue());
+        assertEquals(after, values(solver));
+        journal.undo();
+        assertEquals(before, values(solver));
+        assertTrue(journal.undo().isEmpty());
+
+        journal.redo();
+        assertEquals(after, values(solver));
+        //a new move forgets the moves that could be redone
+        solver.setValue(4, 2, 2);
+        assertFalse(journal.canRedo());
+        assertTrue(journal.redo().isEmpty());
+    }
+
+    @Test
+    void undoesABatchAtOnce() {
+        for (int[] cell : TestGrids.exampleSolution)
+            solver.setValue(cell[0], cell[1], cell[2]);
+        String solved = values(solver);
+        journal.startBatch();
+        for (int[] cell : TestGrids.exampleSolution)
+            solver.setValue(cell[0], cell[1], 0);
+        journal.endBatch();
+
+        assertEquals(TestGrids.exampleSolution.length, journal.undo().size());
+        assertEquals(solved, values(solver));
+        assertEquals(TestGrids.exampleSolution.length, journal.redo().size());
+        journal.undo();
+        assertEquals(solved, values(solver));
+    }
+
+    @Test
+    void replaysUndoAndRedo() throws Exception {
+        Random random = new Random(2);
+        for (int step = 0; step < 2000; step++) {
+            int choice = random.nextInt(10);
+            if (choice < 2)
+                journal.undo();
+            else if (choice < 3)
+                journal.redo();
+            else if (choice < 4) {
+                journal.startBatch();
+                play(random, 3);
+                journal.endBatch();
+            } else
+                play(random, 1);
+        }
+        journal.sync();
+        KakuroSolver recovered = recover();
+        MoveJournal replayed = journals.get(journals.size() - 1);
+        assertEquals(values(solver), values(recovered));
+        //the history after the last snapshot is rebuilt as well
+        for (int n = 0; n < 10 && replayed.canUndo(); n++) {
+            journal.undo();
+            replayed.undo();
+            assertEquals(values(solver), values(recovered));
+        }
+        journal.redo();
+        replayed.redo();
+        assertEquals(values(solver), values(recovered));
+    }
+
+    @Test
+    void dropsATornRecord() throws Exception {
+        play(new Random(3), 100);
+        String before = values(solver);
+        change(1, 2);
+        journal.close();
+        try (RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+            data.setLength(data.length() - 3);
+        }
+        KakuroSolver recovered = recover();
+        assertEquals(before, values(recovered));
+
+        //the next moves are appended after the last valid record
+        recovered.setValue(4, 3, 1);
+        journals.get(journals.size() - 1).sync();
+        assertEquals(values(recovered), values(recover()));
+    }
+
+    @Test
+    void dropsARecordFailingItsChecksum() throws Exception {
+        play(new Random(4), 100);
+        String before = values(solver);
+        change(1, 2);
+        journal.close();
+        byte[] data = Files.readAllBytes(file.toPath());
+        //last byte of the payload of the last move record
+        data[data.length - 5] ^= 1;
+        Files.write(file.toPath(), data);
+        assertEquals(before, values(recover()));
+    }
+
+    @Test
+    void compactsALargeJournal() throws Exception {
+        play(new Random(5), (int) (MoveJournal.maxSize / 12));
+        journal.sync();
+        assertTrue(file.length() < MoveJournal.maxSize, "journal of " + file.length() + " bytes");
+        assertEquals(values(solver), values(recover()));
+        //moves made before the compaction can still be undone in memory
+        assertTrue(journal.canUndo());
+    }
+
+    @Test
+    void startsAgainFromTheCurrentGrid() throws Exception {
+        play(new Random(6), 50);
+        journal.start();
+        assertFalse(journal.canUndo());
+        journal.sync();
+        assertEquals(values(solver), values(recover()));
+    }
+
+    @Test
+    void ignoresAFileThatIsNotAJournal() throws Exception {
+        journal.close();
+        KakuroSolver other = new KakuroSolver();
+        String before = values(other);
+        Files.write(file.toPath(), TestGrids.example.getBytes());
+        assertFalse(open(other).recover());
+        assertTrue(file.delete());
+        assertFalse(open(other).recover());
+        assertEquals(before, values(other));
+    }
+}
@@ -0,0 +1,110 @@
+package algorithm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveValidatorTest {
+    private CompactGrid grid;
+    private ConstraintsChecker index;
+    private MoveValidator validator;
+    private final List<MoveEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void load() throws Exception {
+        grid = TestGrids.parse(TestGrids.example);
+        index = new ConstraintsChecker(grid);
+        validator = new MoveValidator();
+        validator.load(index, grid);
+        validator.addMoveListener(new MoveListener() {
+            @Override
+            public void moveApplied(MoveEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @Test
+    void countsTheEmptyCellsOfANewGrid() {
+        assertEquals(TestGrids.exampleSolution.length, validator.getEmptyCells());
+        assertEquals(0, validator.getViolatedRuns());
+        assertFalse(validator.isSolved());
+    }
+
+    @Test
+    void detectsTheWin() {
+        for (int[] cell : TestGrids.exampleSolution)
+            validator.setValue(cell[0], cell[1], cell[2]);
+        assertTrue(validator.isSolved());
+        assertEquals(0, validator.getEmptyCells());
+        MoveEvent last = events.get(events.size() - 1);
+        assertTrue(last.isSolved());
+        assertTrue(last.isConsistent());
+        assertEquals(TestGrids.exampleSolution.length, events.size());
+    }
+
+    @Test
+    void reportsARepeatedDigitUntilItIsRemoved() {
+        validator.setValue(4, 2, 1);
+        validator.setValue(4, 3, 1);
+        MoveEvent event = events.get(1);
+        assertEquals(4, event.getRow());
+        assertEquals(3, event.getColumn());
+        assertEquals(0, event.getPrevious());
+        assertEquals(1, event.getValue());
+        assertFalse(event.isConsistent());
+        assertTrue(validator.isHorizontalViolated(grid.position(4, 3)));
+        assertFalse(validator.isVerticalViolated(grid.position(4, 3)));
+
+        validator.setValue(4, 3, 0);
+        assertTrue(events.get(2).isConsistent());
+        assertEquals(0, validator.getViolatedRuns());
+    }
+
+    @Test
+    void reportsASumOverTheClue() {
+        //the horizontal run of (1, 2) sums to 8
+        validator.setValue(1, 2, 9);
+        assertFalse(validator.isConsistent(grid.position(1, 2)));
+        assertEquals(1, validator.getViolatedRuns());
+    }
+
+    @Test
+    void reportsAFilledRunMissingItsClue() {
+        validator.setValue(4, 2, 1);
+        assertTrue(validator.isConsistent(grid.position(4, 2)));
+        validator.setValue(4, 3, 3);
+        assertFalse(validator.isConsistent(grid.position(4, 3)));
+    }
+
+    @Test
+    void ignoresAMoveKeepingTheValue() {
+        validator.setValue(1, 2, 6);
+        validator.setValue(1, 2, 6);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void matchesAFullCheckAfterRandomMoves() {
+        Random random = new Random(1);
+        int[][] cells = TestGrids.exampleSolution;
+        for (int move = 0; move < 2000; move++) {
+            int[] cell = cells[random.nextInt(cells.length)];
+            validator.setValue(cell[0], cell[1], random.nextInt(10));
+
+            MoveValidator fresh = new MoveValidator();
+            fresh.load(index, new CompactGrid(grid, true));
+            assertEquals(fresh.getViolatedRuns(), validator.getViolatedRuns());
+            assertEquals(fresh.getEmptyCells(), validator.getEmptyCells());
+            assertEquals(fresh.isSolved(), validator.isSolved());
+            assertEquals(SolutionVerifier.isSolution(index, grid), validator.isSolved());
+            for (int run = 0; run < index.getRunCount(); run++)
+                assertEquals(fresh.isRunViolated(run), validator.isRunViolated(run));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSolverTest {
+    //two separate squares of 4 cells whose runs sum to 10, each having 8 solutions
+    static final int[][] twoSquares = {
+            {0, 0, 0, 0, 0, 0},
+            {0, 1, 9, 0, 0, 0},
+            {0, 9, 1, 0, 0, 0},
+            {0, 0, 0, 0, 0, 0},
+            {0, 0, 0, 0, 3, 7},
+            {0, 0, 0, 0, 7, 3}
+    };
+
+    private static final long[] limits = {1, 2, 5};
+    private static final int[] splitDepths = {0, 1, ParallelSolver.defaultSplitDepth};
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return bundled grids, generated grids, grids with several solutions and a grid without any
+     */
+    private static List<Cell[][]> grids() throws Exception {
+        List<Cell[][]> grids = new ArrayList<>();
+        for (File file : TestGrids.bundledGrids())
+            grids.add(TestGrids.load(file));
+        for (int size = 8; size <= 12; size += 2)
+            grids.add(TestGrids.generate(size, size));
+        grids.add(TestGrids.parse(SolutionVerifierTest.square).toCells());
+        grids.add(TestGrids.fromSolution(twoSquares, false));
+        grids.add(TestGrids.parse(PropagationSolverTest.unsolvable).toCells());
+        return grids;
+    }
+
+    @Test
+    void countsLikeTheSequentialEngine() throws Exception {
+        int n = 0;
+        for (Cell[][] grid : grids()) {
+            CompactGrid prototype = TestGrids.compact(grid);
+            ConstraintsChecker index = new ConstraintsChecker(prototype);
+            for (BranchingStrategy branching : BranchingStrategy.values()) {
+                PropagationSolver sequential = new PropagationSolver(index, branching);
+                for (int splitDepth : splitDepths) {
+                    ParallelSolver parallel = new ParallelSolver(index, branching, pool, splitDepth);
+                    for (long limit : limits) {
+                        assertEquals(sequential.countSolutions(prototype, limit),
+                                parallel.countSolutions(prototype, limit),
+                                "grid " + n + " with " + branching + ", split depth " + splitDepth
+                                        + ", limit " + limit);
+                    }
+                }
+            }
+            n++;
+        }
+    }
+
+    @Test
+    void multipliesTheCountsOfTheComponents() {
+        CompactGrid prototype = TestGrids.compact(TestGrids.fromSolution(twoSquares, false));
+        ConstraintsChecker index = new ConstraintsChecker(prototype);
+        assertEquals(2, index.getComponentCount());
+        assertEquals(64, new PropagationSolver(index).countSolutions(prototype, 100));
+        for (int splitDepth : splitDepths) {
+            ParallelSolver parallel = new ParallelSolver(index, BranchingStrategy.rowMajor, pool, splitDepth);
+            assertEquals(64, parallel.countSolutions(prototype, 100));
+            assertEquals(10, parallel.countSolutions(prototype, 10));
+        }
+    }
+
+    @Test
+    void solvesLikeTheSequentialEngine() throws Exception {
+        for (Cell[][] grid : grids()) {
+            CompactGrid prototype = TestGrids.compact(grid);
+            ConstraintsChecker index = new ConstraintsChecker(prototype);
+            boolean solvable = new PropagationSolver(index).solve(new CompactGrid(prototype, false));
+            for (int splitDepth : splitDepths) {
+                CompactGrid solution = new CompactGrid(prototype, false);
+                ParallelSolver parallel = new ParallelSolver(index, BranchingStrategy.mostConstrained, pool,
+                        splitDepth);
+                assertEquals(solvable, parallel.solve(solution));
+                if (solvable)
+                    assertTrue(SolutionVerifier.isSolution(index, solution));
+            }
+        }
+    }
+}
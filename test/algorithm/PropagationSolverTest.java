@@ -0,0 +1,90 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.NoSolutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropagationSolverTest {
+    //rows of 3 and 4 crossing columns of 3 : the 3 of the second row can't fit in any column
+    static final String unsolvable = "KAKURO\n3 3\nu c 3 0 c 3 0\nc 0 3 i 0 i 0\nc 0 4 i 0 i 0\n";
+
+    /**
+     * @param grid cell grid
+     * @param branching order of the guesses
+     * @return solver of the grid using constraint propagation, without any cached solution
+     */
+    private static KakuroSolver solver(Cell[][] grid, BranchingStrategy branching) {
+        KakuroSolver solver = new KakuroSolver();
+        solver.setEngine(SolverEngine.propagation);
+        solver.setBranching(branching);
+        solver.setSolutionCache(null);
+        solver.updateGrid(grid, grid.length, grid[0].length);
+        return solver;
+    }
+
+    /**
+     * Checks the solution found with every branching strategy against the clues of the grid
+     */
+    private static void assertSolves(Cell[][] grid, String name) throws NoSolutionException {
+        CompactGrid prototype = TestGrids.compact(grid);
+        ConstraintsChecker index = new ConstraintsChecker(prototype);
+        for (BranchingStrategy branching : BranchingStrategy.values()) {
+            CompactGrid solution = TestGrids.compact(solver(grid, branching).getSolution());
+            assertTrue(SolutionVerifier.isSolution(index, solution), name + " with " + branching);
+            for (int i = 0; i < prototype.getSize(); i++) {
+                if (prototype.getKind(i) == CompactGrid.constant)
+                    assertEquals(prototype.getValue(i), solution.getValue(i), name + " with " + branching);
+            }
+        }
+    }
+
+    @Test
+    void solvesTheBundledGrids() throws Exception {
+        List<File> files = TestGrids.bundledGrids();
+        assertFalse(files.isEmpty());
+        for (File file : files)
+            assertSolves(TestGrids.load(file), file.getPath());
+    }
+
+    @Test
+    void solvesGeneratedGrids() throws Exception {
+        for (int size = 6; size <= 14; size += 2) {
+            for (long seed = 0; seed < 3; seed++)
+                assertSolves(TestGrids.generate(size, seed), size + "x" + size + " seed " + seed);
+        }
+    }
+
+    @Test
+    void solvesAGridWithSeveralSolutions() throws Exception {
+        assertSolves(TestGrids.parse(SolutionVerifierTest.square).toCells(), "square");
+    }
+
+    @Test
+    void ignoresTheValuesOfThePlayer() throws Exception {
+        //a wrong value placed by the player doesn't change the solution
+        Cell[][] grid = TestGrids.parse(TestGrids.example).toCells();
+        ((InputCell) grid[1][2]).setValue(7);
+        Cell[][] solution = solver(grid, BranchingStrategy.rowMajor).getSolution();
+        for (int[] cell : TestGrids.exampleSolution)
+            assertEquals(cell[2], ((InputCell) solution[cell[0]][cell[1]]).getValue());
+    }
+
+    @Test
+    void throwsOnAnUnsolvableGrid() throws Exception {
+        final Cell[][] grid = TestGrids.parse(unsolvable).toCells();
+        for (final BranchingStrategy branching : BranchingStrategy.values()) {
+            assertThrows(NoSolutionException.class, new Executable() {
+                @Override
+                public void execute() throws Throwable {
+                    solver(grid, branching).getSolution();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionCountTest {
+    /**
+     * @param grid cell grid
+     * @param engine engine counting the solutions
+     * @return solver of the grid
+     */
+    private static KakuroSolver solver(Cell[][] grid, SolverEngine engine) {
+        KakuroSolver solver = new KakuroSolver();
+        solver.setEngine(engine);
+        solver.updateGrid(grid, grid.length, grid[0].length);
+        return solver;
+    }
+
+    /**
+     * Counts the solutions by trying every digit in every input cell, only checking the runs
+     * @param limit maximum number of solutions to look for
+     * @return number of solutions, at most limit
+     */
+    private static long bruteForce(CompactGrid grid, ConstraintsChecker index, int position, long limit) {
+        while (position < grid.getSize() && grid.getKind(position) != CompactGrid.input)
+            position++;
+        if (position == grid.getSize())
+            return 1;
+        long count = 0;
+        for (int digit = 1; digit <= 9 && count < limit; digit++) {
+            grid.setValue(position, digit);
+            if (isPossible(grid, index, index.getHorizontalRun(position))
+                    && isPossible(grid, index, index.getVerticalRun(position)))
+                count += bruteForce(grid, index, position + 1, limit - count);
+        }
+        grid.setValue(position, 0);
+        return count;
+    }
+
+    /**
+     * @return true if the digits placed in the run are distinct, don't exceed its clue and match it once it is full
+     */
+    private static boolean isPossible(CompactGrid grid, ConstraintsChecker index, int run) {
+        if (run == -1)
+            return true;
+        int sum = 0, used = 0, filled = 0, length = index.getRunLength(run);
+        for (int i = index.getRunStart(run), n = 0; n < length; i += index.getRunStep(run), n++) {
+            int value = grid.getValue(i);
+            if (value == 0)
+                continue;
+            if ((used & CombinationTable.digitMask(value)) != 0)
+                return false;
+            used |= CombinationTable.digitMask(value);
+            sum += value;
+            filled++;
+        }
+        return sum <= index.getRunSum(run) && (filled < length || sum == index.getRunSum(run));
+    }
+
+    private static long bruteForce(Cell[][] grid, long limit) {
+        CompactGrid prototype = new CompactGrid(TestGrids.compact(grid), false);
+        return bruteForce(prototype, new ConstraintsChecker(prototype), 0, limit);
+    }
+
+    @Test
+    void matchesABruteForceCountOnTheBundledGrids() throws Exception {
+        for (File file : TestGrids.bundledGrids()) {
+            Cell[][] grid = TestGrids.load(file);
+            long expected = bruteForce(grid, 10);
+            for (SolverEngine engine : SolverEngine.values())
+                assertEquals(expected, solver(grid, engine).countSolutions(10), file + " with " + engine);
+        }
+    }
+
+    @Test
+    void findsASingleSolution() throws Exception {
+        KakuroSolver solver = solver(TestGrids.parse(TestGrids.example).toCells(), SolverEngine.propagation);
+        assertEquals(1, solver.countSolutions(2));
+        assertEquals(1, solver.countSolutions(100));
+        assertTrue(solver.hasUniqueSolution());
+    }
+
+    @Test
+    void findsSeveralSolutions() throws Exception {
+        Cell[][] grid = TestGrids.parse(SolutionVerifierTest.square).toCells();
+        assertEquals(8, bruteForce(grid, 100));
+        for (SolverEngine engine : SolverEngine.values()) {
+            KakuroSolver solver = solver(grid, engine);
+            assertEquals(8, solver.countSolutions(100), engine.toString());
+            assertFalse(solver.hasUniqueSolution());
+        }
+    }
+
+    @Test
+    void findsNoSolution() throws Exception {
+        for (SolverEngine engine : SolverEngine.values()) {
+            KakuroSolver solver = solver(TestGrids.parse(PropagationSolverTest.unsolvable).toCells(), engine);
+            assertEquals(0, solver.countSolutions(2), engine.toString());
+            assertFalse(solver.hasUniqueSolution());
+        }
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        KakuroSolver solver = solver(TestGrids.fromSolution(ParallelSolverTest.twoSquares, false),
+                SolverEngine.propagation);
+        solver.setStatisticsEnabled(true);
+        for (long limit = 1; limit <= 64; limit++)
+            assertEquals(limit, solver.countSolutions(limit));
+        assertEquals(64, solver.countSolutions(1000));
+
+        //the search ends with the first solutions instead of going through the whole tree
+        long all = solver.getStatistics().getNodes();
+        solver.countSolutions(2);
+        assertTrue(solver.getStatistics().getNodes() < all, solver.getStatistics().getNodes() + " nodes");
+    }
+
+    @Test
+    void ignoresTheValuesOfThePlayer() throws Exception {
+        Cell[][] grid = TestGrids.parse(TestGrids.example).toCells();
+        ((InputCell) grid[1][2]).setValue(9);
+        assertEquals(1, solver(grid, SolverEngine.propagation).countSolutions(2));
+    }
+
+    @Test
+    void keepsTheConstantCells() {
+        //a constant removes the freedom of one square
+        int[][] digits = ParallelSolverTest.twoSquares;
+        Cell[][] grid = TestGrids.fromSolution(digits, false);
+        grid[1][1] = new ConstantCell(1, 1, digits[1][1]);
+        assertEquals(8, solver(grid, SolverEngine.propagation).countSolutions(100));
+        assertEquals(8, bruteForce(grid, 100));
+    }
+}
@@ -0,0 +1,63 @@
+package algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionVerifierTest {
+    //two by two block of cells whose four runs sum to 10 : several solutions
+    static final String square = "KAKURO\n3 3\nu c 10 0 c 10 0\nc 0 10 i 0 i 0\nc 0 10 i 0 i 0\n";
+
+    @Test
+    void acceptsTheSolution() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        assertTrue(SolutionVerifier.isSolution(index, TestGrids.solveExample(grid)));
+    }
+
+    @Test
+    void rejectsAnEmptyOrPartialGrid() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        assertFalse(SolutionVerifier.isSolution(index, grid));
+        CompactGrid solved = TestGrids.solveExample(grid);
+        solved.setValue(solved.position(4, 3), 0);
+        assertFalse(SolutionVerifier.isSolution(index, solved));
+    }
+
+    @Test
+    void rejectsAWrongSum() throws Exception {
+        CompactGrid grid = TestGrids.solveExample(TestGrids.parse(TestGrids.example));
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        grid.setValue(grid.position(1, 2), 7);
+        assertFalse(SolutionVerifier.isSolution(index, grid));
+        assertFalse(SolutionVerifier.isSatisfied(index, grid, index.getHorizontalRun(grid.position(1, 2))));
+    }
+
+    @Test
+    void acceptsAnyValidSolution() throws Exception {
+        CompactGrid grid = TestGrids.parse(square);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int[][] solutions = {{1, 9, 9, 1}, {3, 7, 7, 3}, {6, 4, 4, 6}};
+        for (int[] solution : solutions) {
+            setSquare(grid, solution);
+            assertTrue(SolutionVerifier.isSolution(index, grid));
+        }
+    }
+
+    @Test
+    void rejectsARepeatedDigitMatchingTheClue() throws Exception {
+        CompactGrid grid = TestGrids.parse(square);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        setSquare(grid, new int[]{5, 5, 5, 5});
+        assertFalse(SolutionVerifier.isSolution(index, grid));
+        assertFalse(SolutionVerifier.isSatisfied(index, grid, index.getHorizontalRun(grid.position(1, 1))));
+    }
+
+    private static void setSquare(CompactGrid grid, int[] values) {
+        grid.setValue(grid.position(1, 1), values[0]);
+        grid.setValue(grid.position(1, 2), values[1]);
+        grid.setValue(grid.position(2, 1), values[2]);
+        grid.setValue(grid.position(2, 2), values[3]);
+    }
+}
@@ -0,0 +1,170 @@
+package algorithm;
+
+import algorithm.cells.*;
+import algorithm.exceptions.InvalidGridFileException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Grids shared by the tests
+ */
+class TestGrids {
+    //example grid of the subject (the default grid of the game)
+    static final String example = "KAKURO\n5 4\n"
+            + "u u c 25 0 c 2 0\n"
+            + "u c 5 8 i 0 i 0\n"
+            + "c 0 11 i 0 k 8 c 5 0\n"
+            + "c 0 15 k 2 i 0 i 0\n"
+            + "u c 0 3 i 0 i 0\n";
+
+    //its only solution : row, column and value of every input cell
+    static final int[][] exampleSolution = {{1, 2, 6}, {1, 3, 2}, {2, 1, 3}, {3, 2, 9}, {3, 3, 4}, {4, 2, 2},
+            {4, 3, 1}};
+
+    //grids bundled with the game, the tests being run from the root of the project
+    private static final File bundled = new File("assets/grids");
+
+    private TestGrids() {}
+
+    /**
+     * @return every .kakuro file of the bundled grids, in the order of their paths
+     */
+    static List<File> bundledGrids() {
+        List<File> files = new ArrayList<>();
+        addGrids(bundled, files);
+        return files;
+    }
+
+    private static void addGrids(File directory, List<File> files) {
+        File[] content = directory.listFiles();
+        if (content == null)
+            return;
+        Arrays.sort(content);
+        for (File file : content) {
+            if (file.isDirectory())
+                addGrids(file, files);
+            else if (file.getName().endsWith(".kakuro"))
+                files.add(file);
+        }
+    }
+
+    /**
+     * @param file a file in the kakuro file format
+     * @return cell grid of the file
+     */
+    static Cell[][] load(File file) throws IOException, InvalidGridFileException {
+        return KakuroLoader.openLoader().loadGrid(file.getPath());
+    }
+
+    /**
+     * Generates a grid with a single solution, always the same for a given seed
+     * @param size number of rows and columns
+     * @param seed seed of the attempts
+     * @return cell grid with empty input cells
+     */
+    static Cell[][] generate(int size, long seed) {
+        KakuroGenerator generator = new KakuroGenerator(size, size, KakuroGenerator.defaultDensity, size);
+        Random random = new Random(seed);
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            Cell[][] grid = generator.generate(random);
+            if (grid != null)
+                return grid;
+        }
+        throw new IllegalStateException("no " + size + "x" + size + " grid generated");
+    }
+
+    /**
+     * @param text a grid in the kakuro file format
+     * @return compact grid of the first grid of the text
+     */
+    static CompactGrid parse(String text) throws IOException, InvalidGridFileException {
+        KakuroParser parser = new KakuroParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+        if (!parser.next())
+            throw new InvalidGridFileException();
+        return parser.toCompactGrid();
+    }
+
+    /**
+     * @param grid example grid
+     * @return copy of the grid holding its solution
+     */
+    static CompactGrid solveExample(CompactGrid grid) {
+        CompactGrid solved = new CompactGrid(grid, true);
+        for (int[] cell : exampleSolution)
+            solved.setValue(solved.position(cell[0], cell[1]), cell[2]);
+        return solved;
+    }
+
+    /**
+     * Builds a grid from the digits of its solution, the clue of every run being the sum of its digits
+     * @param digits digit of every white cell, 0 for the black cells (the first row and column have to be black)
+     * @param keepDigits true to keep the digits in the input cells, false to leave them empty
+     * @return cell grid
+     */
+    static Cell[][] fromSolution(int[][] digits, boolean keepDigits) {
+        int rows = digits.length, columns = digits[0].length;
+        Cell[][] grid = new Cell[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (digits[i][j] != 0) {
+                    grid[i][j] = new InputCell(i, j, keepDigits ? digits[i][j] : 0);
+                    continue;
+                }
+                int vertical = 0, horizontal = 0;
+                for (int k = i + 1; k < rows && digits[k][j] != 0; k++)
+                    vertical += digits[k][j];
+                for (int k = j + 1; k < columns && digits[i][k] != 0; k++)
+                    horizontal += digits[i][k];
+                if (vertical == 0 && horizontal == 0)
+                    grid[i][j] = new UnreachableCell(i, j);
+                else
+                    grid[i][j] = new ControlCell(i, j, vertical == 0 ? null : vertical,
+                            horizontal == 0 ? null : horizontal);
+            }
+        }
+        return grid;
+    }
+
+    static CompactGrid compact(Cell[][] grid) {
+        return new CompactGrid(grid, grid.length, grid[0].length);
+    }
+
+    /**
+     * @return digits reversed from left to right
+     */
+    static int[][] mirror(int[][] digits) {
+        int[][] mirrored = new int[digits.length][];
+        for (int i = 0; i < digits.length; i++) {
+            mirrored[i] = new int[digits[i].length];
+            for (int j = 0; j < digits[i].length; j++)
+                mirrored[i][j] = digits[i][digits[i].length - 1 - j];
+        }
+        return mirrored;
+    }
+
+    /**
+     * @return digits reversed from top to bottom
+     */
+    static int[][] flip(int[][] digits) {
+        int[][] flipped = new int[digits.length][];
+        for (int i = 0; i < digits.length; i++)
+            flipped[i] = digits[digits.length - 1 - i].clone();
+        return flipped;
+    }
+
+    static int[][] transpose(int[][] digits) {
+        int[][] transposed = new int[digits[0].length][digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            for (int j = 0; j < digits[i].length; j++)
+                transposed[j][i] = digits[i][j];
+        }
+        return transposed;
+    }
+}
@@ -0,0 +1,176 @@
+package algorithm;
+
+import algorithm.cells.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    //a table of 2 slots has a single bucket : every state collides with every other one
+    private static final long singleBucket = 24;
+
+    //hashes sharing their 32 highest bits, which pick the bucket
+    private static final long first = 0x12345678L << 32 | 0x10, second = 0x12345678L << 32 | 0x20,
+            third = 0x12345678L << 32 | 0x40;
+
+    @Test
+    void forgetsTheFailuresOfThePreviousSearch() {
+        TranspositionTable table = new TranspositionTable(TranspositionTable.defaultMemory);
+        table.newSearch();
+        table.storeFailure(first, 10);
+        assertTrue(table.isFailed(first));
+        assertFalse(table.isFailed(second));
+        table.newSearch();
+        assertFalse(table.isFailed(first));
+    }
+
+    @Test
+    void tellsCollidingStatesApart() {
+        TranspositionTable table = new TranspositionTable(singleBucket);
+        table.newSearch();
+        table.storeFailure(first, 10);
+        table.storeFailure(second, 10);
+        assertTrue(table.isFailed(first));
+        assertTrue(table.isFailed(second));
+        assertFalse(table.isFailed(third));
+    }
+
+    @Test
+    void replacesTheCheapestFailure() {
+        TranspositionTable table = new TranspositionTable(singleBucket);
+        table.newSearch();
+        table.storeFailure(first, 100);
+        table.storeFailure(second, 5);
+        table.storeFailure(third, 50);
+        assertTrue(table.isFailed(first));
+        assertFalse(table.isFailed(second));
+        assertTrue(table.isFailed(third));
+    }
+
+    @Test
+    void storesAFailureOnlyOnce() {
+        TranspositionTable table = new TranspositionTable(singleBucket);
+        table.newSearch();
+        table.storeFailure(first, 5);
+        table.storeFailure(first, 5);
+        table.storeFailure(second, 10);
+        assertTrue(table.isFailed(first));
+        assertTrue(table.isFailed(second));
+    }
+
+    @Test
+    void replacesTheFailuresOfPreviousSearchesFirst() {
+        TranspositionTable table = new TranspositionTable(singleBucket);
+        table.newSearch();
+        table.storeFailure(first, 1000);
+        table.storeFailure(second, 1000);
+        //the expensive entries of the previous search leave room for the cheap ones of the new search
+        table.newSearch();
+        table.storeFailure(third, 1);
+        table.storeFailure(first, 2);
+        assertTrue(table.isFailed(third));
+        assertTrue(table.isFailed(first));
+        assertFalse(table.isFailed(second));
+    }
+
+    @Test
+    void growsUpToItsMemory() {
+        TranspositionTable table = new TranspositionTable(TranspositionTable.defaultMemory);
+        long initial = table.getMemory();
+        table.newSearch();
+        Random random = new Random(1);
+        long last = 0;
+        for (int n = 0; n < 200000; n++) {
+            last = random.nextLong();
+            table.storeFailure(last, 10);
+        }
+        assertTrue(table.getMemory() > initial);
+        assertTrue(table.getMemory() <= TranspositionTable.defaultMemory);
+        assertTrue(table.isFailed(last));
+    }
+
+    @Test
+    void hashesTheDigitsWhateverTheirOrder() throws Exception {
+        CompactGrid grid = TestGrids.parse(TestGrids.example);
+        ConstraintsChecker index = new ConstraintsChecker(grid);
+        int a = grid.position(1, 2), b = grid.position(1, 3), c = grid.position(2, 1);
+        RunState forward = new RunState(index, grid, true), backward = new RunState(index, grid, true);
+        long empty = forward.getHash();
+        forward.place(a, 6);
+        forward.place(b, 2);
+        forward.place(c, 3);
+        backward.place(c, 3);
+        backward.place(b, 2);
+        backward.place(a, 6);
+        assertEquals(forward.getHash(), backward.getHash());
+
+        //other digits or other positions give another state
+        RunState other = new RunState(index, grid, true);
+        other.place(a, 2);
+        other.place(b, 6);
+        other.place(c, 3);
+        assertNotEquals(forward.getHash(), other.getHash());
+        other.remove(c, 3);
+        assertNotEquals(forward.getHash(), other.getHash());
+
+        backward.remove(a, 6);
+        backward.remove(c, 3);
+        backward.remove(b, 2);
+        assertEquals(empty, backward.getHash());
+    }
+
+    /**
+     * @return backtracking solver of a grid, without any cached solution
+     */
+    private static KakuroSolver solver(Cell[][] grid, BranchingStrategy branching, long memory) {
+        KakuroSolver solver = new KakuroSolver();
+        solver.setEngine(SolverEngine.backtracking);
+        solver.setBranching(branching);
+        solver.setSolutionCache(null);
+        solver.setTranspositionMemory(memory);
+        solver.setStatisticsEnabled(true);
+        solver.updateGrid(grid, grid.length, grid[0].length);
+        return solver;
+    }
+
+    private static String values(Cell[][] solution) {
+        StringBuilder values = new StringBuilder();
+        for (Cell[] row : solution) {
+            for (Cell cell : row)
+                values.append(cell instanceof InputCell ? ((InputCell) cell).getValue() : 0);
+        }
+        return values.toString();
+    }
+
+    @Test
+    void givesTheSameResultsWithAndWithoutTheTable() throws Exception {
+        List<Cell[][]> grids = new ArrayList<>();
+        for (File file : TestGrids.bundledGrids())
+            grids.add(TestGrids.load(file));
+        for (int size = 6; size <= 9; size++)
+            grids.add(TestGrids.generate(size, size));
+        grids.add(TestGrids.parse(SolutionVerifierTest.square).toCells());
+
+        long hits = 0;
+        for (Cell[][] grid : grids) {
+            for (BranchingStrategy branching : BranchingStrategy.values()) {
+                KakuroSolver without = solver(grid, branching, 0);
+                String expected = values(without.getSolution());
+                long count = without.countSolutions(3);
+                for (long memory : new long[]{singleBucket, TranspositionTable.defaultMemory}) {
+                    KakuroSolver with = solver(grid, branching, memory);
+                    assertEquals(expected, values(with.getSolution()), branching + ", " + memory + " bytes");
+                    hits += with.getStatistics().getTranspositionHits();
+                    assertEquals(count, with.countSolutions(3));
+                }
+            }
+        }
+        //the failures stored were actually used
+        assertTrue(hits > 0);
+    }
+}
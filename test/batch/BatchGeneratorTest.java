@@ -0,0 +1,65 @@
+package batch;
+
+import algorithm.KakuroGenerator;
+import algorithm.KakuroLoader;
+import algorithm.KakuroSolver;
+import algorithm.cells.Cell;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchGeneratorTest {
+    @TempDir
+    File directory;
+
+    private final ByteArrayOutputStream names = new ByteArrayOutputStream();
+
+    private BatchGenerator batch(KakuroGenerator generator, int rows, int columns) {
+        return new BatchGenerator(generator, rows, columns, directory, 2, 1, new PrintStream(names, true));
+    }
+
+    @Test
+    void writesTheGridsAskedFor() throws Exception {
+        //an existing file is never overwritten
+        assertTrue(new File(directory, "grid1_6x6.kakuro").createNewFile());
+        BatchGenerator batch = batch(new KakuroGenerator(6, 6, KakuroGenerator.defaultDensity, 0), 6, 6);
+        batch.generate(3, 1000);
+        assertEquals(3, batch.getWritten());
+        assertTrue(batch.getAttempts() >= 3);
+
+        String[] files = names.toString().trim().split("\\R");
+        assertEquals(3, files.length);
+        for (String name : files) {
+            assertNotEquals(new File(directory, "grid1_6x6.kakuro").getPath(), name);
+            Cell[][] grid = KakuroLoader.openLoader().loadGrid(name);
+            KakuroSolver solver = new KakuroSolver();
+            solver.updateGrid(grid, 6, 6);
+            assertTrue(solver.hasUniqueSolution(), name);
+        }
+        assertEquals(0, new File(directory, "grid1_6x6.kakuro").length());
+    }
+
+    @Test
+    void stopsWhenTheAttemptsRunOut() throws Exception {
+        //these settings never give a grid
+        BatchGenerator batch = batch(new KakuroGenerator(3, 3, 0.01, 0), 3, 3);
+        batch.generate(2, 50);
+        assertEquals(0, batch.getWritten());
+        assertEquals(50, batch.getAttempts());
+        assertEquals(0, directory.list().length);
+        assertEquals("", names.toString());
+    }
+
+    @Test
+    void stopsAtTheCountOfGrids() throws Exception {
+        BatchGenerator batch = batch(new KakuroGenerator(4, 4, KakuroGenerator.defaultDensity, 4), 4, 4);
+        batch.generate(5, 100000);
+        assertEquals(5, batch.getWritten());
+        assertEquals(5, directory.list().length);
+    }
+}